@@ -0,0 +1,57 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Input and output arrays, one set per benchmark thread, so that contended runs
+ * only share the FFT instance.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@State(Scope.Thread)
+public class Buffers {
+
+    public float[] real;
+    public float[] imaginary;
+    public float[] realOut;
+    public float[] imaginaryOut;
+    public float[] halfReal;
+    public float[] halfImaginary;
+    public float[] out;
+
+    @Setup(Level.Trial)
+    public void setup(final FFTState state) {
+        final int size = state.size;
+        final int halfSize = size / 2 + 1;
+        final Random random = new Random(0);
+        real = random(random, size);
+        imaginary = random(random, size);
+        realOut = new float[size];
+        imaginaryOut = new float[size];
+        halfReal = random(random, halfSize);
+        halfImaginary = random(random, halfSize);
+        // DC and Nyquist of a real signal's spectrum are real
+        halfImaginary[0] = 0;
+        halfImaginary[halfSize - 1] = 0;
+        out = new float[size];
+    }
+
+    private static float[] random(final Random random, final int length) {
+        final float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat() * 2 - 1;
+        }
+        return values;
+    }
+}
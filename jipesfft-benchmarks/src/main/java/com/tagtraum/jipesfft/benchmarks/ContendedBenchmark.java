@@ -0,0 +1,20 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft.benchmarks;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The transforms of {@link TransformBenchmark}, run concurrently by several
+ * threads on one shared FFT instance, i.e. on one shared native plan and
+ * per-thread scratch space. Use {@code -t} to change the number of threads.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@Threads(4)
+public class ContendedBenchmark extends TransformBenchmark {
+}
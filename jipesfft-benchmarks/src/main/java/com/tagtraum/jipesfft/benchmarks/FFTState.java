@@ -0,0 +1,57 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft.benchmarks;
+
+import com.tagtraum.jipesfft.AbstractFFT;
+import com.tagtraum.jipesfft.FFT;
+import com.tagtraum.jipesfft.PureJavaFFT;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * FFT instance shared by all benchmark threads.
+ * <p>
+ * {@code FFT} uses the native library, if it is available for the current
+ * platform, and falls back to Java otherwise.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@State(Scope.Benchmark)
+public class FFTState {
+
+    @Param({"4", "8", "16", "32", "64", "128", "256", "512", "1024", "2048", "4096", "8192",
+        "16384", "32768", "65536", "131072", "262144", "524288", "1048576"})
+    public int size;
+
+    @Param({"FFT", "PureJavaFFT"})
+    public String backend;
+
+    public AbstractFFT fft;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (backend) {
+            case "FFT":
+                fft = new FFT(size);
+                break;
+            case "PureJavaFFT":
+                fft = new PureJavaFFT(size);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fft.close();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded forward and inverse transforms of real and complex input.
+ * <p>
+ * All but {@link #realForwardAllocating(FFTState, Buffers)} write into preallocated
+ * arrays, so their allocation rate (reported by {@code -prof gc}) should be zero.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+public class TransformBenchmark {
+
+    @Benchmark
+    public float[][] realForwardAllocating(final FFTState state, final Buffers buffers) {
+        return state.fft.transform(buffers.real);
+    }
+
+    @Benchmark
+    public void realForward(final FFTState state, final Buffers buffers) {
+        state.fft.transformInto(buffers.real, buffers.realOut, buffers.imaginaryOut);
+    }
+
+    @Benchmark
+    public void realForwardToHalfSpectrum(final FFTState state, final Buffers buffers) {
+        state.fft.transformToHalfSpectrum(buffers.real, buffers.halfReal, buffers.halfImaginary);
+    }
+
+    @Benchmark
+    public void realInverseFromHalfSpectrum(final FFTState state, final Buffers buffers) {
+        state.fft.inverseTransformFromHalfSpectrum(buffers.halfReal, buffers.halfImaginary, buffers.out);
+    }
+
+    @Benchmark
+    public void complexForward(final FFTState state, final Buffers buffers) {
+        state.fft.transformInto(buffers.real, buffers.imaginary, buffers.realOut, buffers.imaginaryOut);
+    }
+
+    @Benchmark
+    public void complexInverse(final FFTState state, final Buffers buffers) {
+        state.fft.inverseTransformInto(buffers.real, buffers.imaginary, buffers.realOut, buffers.imaginaryOut);
+    }
+}
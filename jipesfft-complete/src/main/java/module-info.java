@@ -5,5 +5,6 @@
  */
 module tagtraum.jipesfft {
     requires java.logging;
+    requires java.management;
     exports com.tagtraum.jipesfft;
 }
\ No newline at end of file
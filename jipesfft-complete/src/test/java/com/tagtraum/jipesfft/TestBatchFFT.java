@@ -0,0 +1,96 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Test BatchFFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestBatchFFT {
+
+    @Test
+    public void testByComparison() {
+        final Random random = new Random(0);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // native and Java fallback
+            for (final int n : new int[]{256, 12}) {
+                final int hopSize = n / 2;
+                final int frameCount = 1001;
+                final float[] samples = new float[(frameCount - 1) * hopSize + n + 3];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = random.nextFloat() * 2 - 1;
+                }
+                final Window window = Window.hann(n);
+                try (final FFT fft = new FFT(n); final BatchFFT batch = new BatchFFT(n, pool)) {
+                    final int bins = batch.getHalfSpectrumLength();
+                    for (final boolean windowed : new boolean[]{false, true}) {
+                        final float[] expectedReal = new float[frameCount * n];
+                        final float[] expectedImaginary = new float[frameCount * n];
+                        final float[] real = new float[frameCount * n];
+                        final float[] imaginary = new float[frameCount * n];
+                        final float[] expectedHalfReal = new float[frameCount * bins];
+                        final float[] expectedHalfImaginary = new float[frameCount * bins];
+                        final float[] halfReal = new float[frameCount * bins];
+                        final float[] halfImaginary = new float[frameCount * bins];
+                        if (windowed) {
+                            fft.transformFrames(samples, 3, hopSize, frameCount, window, expectedReal, expectedImaginary);
+                            batch.transformFrames(samples, 3, hopSize, frameCount, window, real, imaginary);
+                            fft.transformFramesToHalfSpectrum(samples, 3, hopSize, frameCount, window, expectedHalfReal, expectedHalfImaginary);
+                            batch.transformFramesToHalfSpectrum(samples, 3, hopSize, frameCount, window, halfReal, halfImaginary);
+                        } else {
+                            fft.transformFrames(samples, 3, hopSize, frameCount, expectedReal, expectedImaginary);
+                            batch.transformFrames(samples, 3, hopSize, frameCount, real, imaginary);
+                            fft.transformFramesToHalfSpectrum(samples, 3, hopSize, frameCount, expectedHalfReal, expectedHalfImaginary);
+                            batch.transformFramesToHalfSpectrum(samples, 3, hopSize, frameCount, halfReal, halfImaginary);
+                        }
+                        assertArrayEquals(expectedReal, real, batch.toString());
+                        assertArrayEquals(expectedImaginary, imaginary, batch.toString());
+                        assertArrayEquals(expectedHalfReal, halfReal, batch.toString());
+                        assertArrayEquals(expectedHalfImaginary, halfImaginary, batch.toString());
+                    }
+
+                    final float[][] frames = new float[frameCount][n];
+                    final float[][] real = new float[frameCount][bins];
+                    final float[][] imaginary = new float[frameCount][bins];
+                    for (int f = 0; f < frameCount; f++) {
+                        System.arraycopy(samples, f * hopSize, frames[f], 0, n);
+                    }
+                    batch.transformToHalfSpectrum(frames, real, imaginary);
+                    final float[] expectedReal = new float[bins];
+                    final float[] expectedImaginary = new float[bins];
+                    for (int f = 0; f < frameCount; f++) {
+                        fft.transformToHalfSpectrum(frames[f], expectedReal, expectedImaginary);
+                        assertArrayEquals(expectedReal, real[f]);
+                        assertArrayEquals(expectedImaginary, imaginary[f]);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        try (final BatchFFT batch = new BatchFFT(8)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> batch.transformFrames(new float[16], 0, 4, 3, new float[23], new float[24]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> batch.transformFrames(new float[15], 0, 4, 3, new float[24], new float[24]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> batch.transformFramesToHalfSpectrum(new float[16], 0, 4, 3, Window.hann(4), new float[15], new float[15]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> batch.transformToHalfSpectrum(new float[2][8], new float[1][5], new float[2][5]));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test Convolver.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestConvolver {
+
+    @Test
+    public void testByComparison() {
+        final Random random = new Random(0);
+        // single tap, short, long and non-power of 2 FFT size
+        final int[][] configurations = {{1, 16}, {7, 16}, {300, 2048}, {300, 700}};
+        for (final int[] configuration : configurations) {
+            final float[] kernel = random(random, configuration[0]);
+            for (final int signalLength : new int[]{1, 100, 5000}) {
+                final float[] signal = random(random, signalLength);
+                final float[] convolution = directConvolution(signal, kernel);
+                final float[] correlation = directCorrelation(signal, kernel);
+                try (final Convolver convolver = new Convolver(kernel, configuration[1])) {
+                    assertArrayEquals(convolution, convolver.convolve(signal), 0.001f, convolver.toString());
+                    assertArrayEquals(correlation, convolver.correlate(signal), 0.001f, convolver.toString());
+                }
+                assertArrayEquals(convolution, Convolver.convolve(signal, kernel), 0.001f);
+                assertArrayEquals(correlation, Convolver.correlate(signal, kernel), 0.001f);
+            }
+        }
+    }
+
+    @Test
+    public void testAlignment() {
+        final Random random = new Random(1);
+        final float[] signal = random(random, 10000);
+        final float[] query = new float[500];
+        System.arraycopy(signal, 4321, query, 0, query.length);
+        try (final Convolver convolver = new Convolver(query)) {
+            assertEquals(2048, convolver.getFFTSize());
+            final float[] correlation = convolver.correlate(signal);
+            int best = 0;
+            for (int i = 0; i < correlation.length; i++) {
+                if (correlation[i] > correlation[best]) {
+                    best = i;
+                }
+            }
+            assertEquals(4321, best - (query.length - 1));
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Convolver(new float[0]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Convolver(new float[16], 8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Convolver.correlate(new float[8], new float[0]));
+    }
+
+    private static float[] random(final Random random, final int length) {
+        final float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat() * 2 - 1;
+        }
+        return values;
+    }
+
+    private static float[] directConvolution(final float[] signal, final float[] kernel) {
+        final float[] out = new float[signal.length + kernel.length - 1];
+        for (int n = 0; n < signal.length; n++) {
+            for (int k = 0; k < kernel.length; k++) {
+                out[n + k] += signal[n] * kernel[k];
+            }
+        }
+        return out;
+    }
+
+    private static float[] directCorrelation(final float[] signal, final float[] kernel) {
+        final float[] out = new float[signal.length + kernel.length - 1];
+        for (int j = 0; j < out.length; j++) {
+            for (int n = 0; n < kernel.length; n++) {
+                final int index = n + j - (kernel.length - 1);
+                if (index >= 0 && index < signal.length) {
+                    out[j] += signal[index] * kernel[n];
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -11,9 +11,14 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -148,8 +153,528 @@ public class TestFFT {
     }
 
     @Test
-    public void testNumberOfSamplesPowerOfTwo() {
-        Assertions.assertThrows(IllegalArgumentException.class, () -> new FFT(5));
+    public void testLargeTransformByComparison() {
+        final int numberOfSamples = 1 << 20;
+        try (final PureJavaFFT javaFFT = new PureJavaFFT(numberOfSamples);
+             final FFT fft = new FFT(numberOfSamples)) {
+            final float[] samples = new float[numberOfSamples];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.01) + (i * 7919 % 13) / 13f;
+            }
+            final float[][] javaRes = javaFFT.transform(samples);
+            final float[][] res = fft.transform(samples);
+            assertArrayEquals(javaRes[REAL], res[REAL], 1f);
+            assertArrayEquals(javaRes[IMAGINARY], res[IMAGINARY], 1f);
+
+            final float[][] inverse = fft.inverseTransform(res[REAL], res[IMAGINARY]);
+            assertArrayEquals(samples, inverse[REAL], 0.001f);
+
+            final double[] doubleSamples = new double[numberOfSamples];
+            for (int i = 0; i < samples.length; i++) {
+                doubleSamples[i] = samples[i];
+            }
+            final double[][] doubleRes = fft.transform(doubleSamples);
+            final double[][] doubleInverse = fft.inverseTransform(doubleRes[REAL], doubleRes[IMAGINARY]);
+            assertArrayEquals(doubleSamples, doubleInverse[REAL], 1e-9);
+        }
+    }
+
+    @Test
+    public void testNumberOfSamplesNotPowerOfTwo() {
+        try (final PureJavaFFT javaFFT = new PureJavaFFT(48000);
+             final FFT fft = new FFT(48000)) {
+            final float[] samples = new float[48000];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.7) + i % 3;
+            }
+            final float[][] javaRes = javaFFT.transform(samples);
+            final float[][] res = fft.transform(samples);
+            assertArrayEquals(javaRes[REAL], res[REAL], 0.01f);
+            assertArrayEquals(javaRes[IMAGINARY], res[IMAGINARY], 0.01f);
+
+            final float[][] inverse = fft.inverseTransform(res[REAL], res[IMAGINARY]);
+            assertArrayEquals(samples, inverse[REAL], 0.01f);
+        }
+    }
+
+    @Test
+    public void testTransformInto() {
+        try (final PureJavaFFT javaFFT = new PureJavaFFT(16);
+             final FFT nativeFFT = new FFT(16)) {
+            final float[] samples = new float[16];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.7) + i % 3;
+            }
+            final float[][] javaRes = javaFFT.transform(samples);
+
+            // use dirty arrays to ensure everything is overwritten
+            final float[] real = new float[16];
+            final float[] imaginary = new float[16];
+            Arrays.fill(real, 42f);
+            Arrays.fill(imaginary, 42f);
+            nativeFFT.transformInto(samples, real, imaginary);
+            assertArrayEquals(javaRes[REAL], real, 0.01f);
+            assertArrayEquals(javaRes[IMAGINARY], imaginary, 0.01f);
+
+            final float[] inverseReal = new float[16];
+            final float[] inverseImaginary = new float[16];
+            Arrays.fill(inverseImaginary, 42f);
+            nativeFFT.inverseTransformInto(real, imaginary, inverseReal, inverseImaginary);
+            assertArrayEquals(samples, inverseReal, 0.01f);
+            assertArrayEquals(new float[16], inverseImaginary, 0.01f);
+
+            final float[][] javaComplexRes = javaFFT.transform(javaRes[REAL], javaRes[IMAGINARY]);
+            nativeFFT.transformInto(javaRes[REAL], javaRes[IMAGINARY], real, imaginary);
+            assertArrayEquals(javaComplexRes[REAL], real, 0.01f);
+            assertArrayEquals(javaComplexRes[IMAGINARY], imaginary, 0.01f);
+        }
+    }
+
+    @Test
+    public void testInverseTransformWithoutImaginaryPart() {
+        // native, Java fallback and non-power of 2
+        for (final int n : new int[]{4, 16, 2, 12}) {
+            try (final FFT fft = new FFT(n)) {
+                final float[] real = new float[n];
+                final double[] doubleReal = new double[n];
+                for (int i = 0; i < n; i++) {
+                    doubleReal[i] = real[i] = (float) Math.sin(i * 0.7) + i % 3;
+                }
+                final float[][] expected = fft.inverseTransform(real, new float[n]);
+                final float[][] result = fft.inverseTransform(real, null);
+                assertArrayEquals(expected[REAL], result[REAL], 0.0001f);
+                assertArrayEquals(expected[IMAGINARY], result[IMAGINARY], 0.0001f);
+
+                final float[] realOut = new float[n];
+                final float[] imaginaryOut = new float[n];
+                fft.inverseTransformInto(real, null, realOut, imaginaryOut);
+                assertArrayEquals(expected[REAL], realOut, 0.0001f);
+                assertArrayEquals(expected[IMAGINARY], imaginaryOut, 0.0001f);
+
+                final double[][] expectedDouble = fft.inverseTransform(doubleReal, new double[n]);
+                final double[][] resultDouble = fft.inverseTransform(doubleReal, null);
+                assertArrayEquals(expectedDouble[REAL], resultDouble[REAL], 1e-12);
+                assertArrayEquals(expectedDouble[IMAGINARY], resultDouble[IMAGINARY], 1e-12);
+
+                // direct and heap buffers
+                for (final boolean direct : new boolean[]{true, false}) {
+                    final FloatBuffer in = direct
+                        ? ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder()).asFloatBuffer()
+                        : FloatBuffer.allocate(n);
+                    in.put(real).flip();
+                    final FloatBuffer bufferReal = FloatBuffer.allocate(n);
+                    final FloatBuffer bufferImaginary = FloatBuffer.allocate(n);
+                    fft.inverseTransformInto(in, null, bufferReal, bufferImaginary);
+                    assertArrayEquals(expected[REAL], toArray(bufferReal), 0.0001f);
+                    assertArrayEquals(expected[IMAGINARY], toArray(bufferImaginary), 0.0001f);
+                    if (direct) {
+                        final FloatBuffer directReal = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+                        final FloatBuffer directImaginary = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+                        fft.inverseTransformInto(in, null, directReal, directImaginary);
+                        assertArrayEquals(expected[REAL], toArray(directReal), 0.0001f);
+                        assertArrayEquals(expected[IMAGINARY], toArray(directImaginary), 0.0001f);
+                    }
+                }
+
+                // byte buffers, inverse and complex forward transform
+                final ByteBuffer bytes = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+                bytes.asFloatBuffer().put(real);
+                final ByteBuffer bytesReal = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+                final ByteBuffer bytesImaginary = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+                fft.inverseTransformInto(bytes, null, bytesReal, bytesImaginary);
+                assertArrayEquals(expected[REAL], toArray(bytesReal.asFloatBuffer()), 0.0001f);
+                assertArrayEquals(expected[IMAGINARY], toArray(bytesImaginary.asFloatBuffer()), 0.0001f);
+
+                final float[][] expectedForward = fft.transform(real, new float[n]);
+                fft.transformInto(real, null, realOut, imaginaryOut);
+                assertArrayEquals(expectedForward[REAL], realOut, 0.0001f * n);
+                assertArrayEquals(expectedForward[IMAGINARY], imaginaryOut, 0.0001f * n);
+                fft.transformInto(bytes, null, bytesReal, bytesImaginary);
+                assertArrayEquals(expectedForward[REAL], toArray(bytesReal.asFloatBuffer()), 0.0001f * n);
+                assertArrayEquals(expectedForward[IMAGINARY], toArray(bytesImaginary.asFloatBuffer()), 0.0001f * n);
+            }
+        }
+    }
+
+    @Test
+    public void testTransformIntoDirectBuffers() {
+        try (final FFT fft = new FFT(16)) {
+            final float[] samples = new float[16];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.cos(i * 0.3) - i % 4;
+            }
+            final float[][] expected = fft.transform(samples);
+
+            final FloatBuffer in = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            final FloatBuffer real = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            final FloatBuffer imaginary = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            in.put(samples).flip();
+            fft.transformInto(in, real, imaginary);
+            assertEquals(0, real.position());
+            assertArrayEquals(expected[REAL], toArray(real), 0.01f);
+            assertArrayEquals(expected[IMAGINARY], toArray(imaginary), 0.01f);
+
+            final FloatBuffer inverseReal = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            final FloatBuffer inverseImaginary = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            fft.inverseTransformInto(real, imaginary, inverseReal, inverseImaginary);
+            assertArrayEquals(samples, toArray(inverseReal), 0.01f);
+        }
+    }
+
+    @Test
+    public void testComplexTransformIntoDirectBuffers() {
+        // native and Java fallback
+        for (final int n : new int[]{16, 12}) {
+            try (final FFT fft = new FFT(n)) {
+                final float[] real = new float[n];
+                final float[] imaginary = new float[n];
+                for (int i = 0; i < n; i++) {
+                    real[i] = (float) Math.cos(i * 0.3) - i % 4;
+                    imaginary[i] = (float) Math.sin(i * 0.8) + i % 3;
+                }
+                final float[][] expected = fft.transform(real, imaginary);
+                final float[][] expectedReal = fft.transform(real, null);
+
+                // positions other than 0
+                final FloatBuffer realIn = direct(n + 1).position(1);
+                final FloatBuffer imaginaryIn = direct(n + 2).position(2);
+                final FloatBuffer realOut = direct(n + 3).position(3);
+                final FloatBuffer imaginaryOut = direct(n);
+                realIn.duplicate().put(real);
+                imaginaryIn.duplicate().put(imaginary);
+                fft.transformInto(realIn, imaginaryIn, realOut, imaginaryOut);
+                assertEquals(3, realOut.position());
+                assertArrayEquals(expected[REAL], toArray(realOut), 0.001f);
+                assertArrayEquals(expected[IMAGINARY], toArray(imaginaryOut), 0.001f);
+
+                fft.transformInto(realIn, null, realOut, imaginaryOut);
+                assertArrayEquals(expectedReal[REAL], toArray(realOut), 0.001f);
+                assertArrayEquals(expectedReal[IMAGINARY], toArray(imaginaryOut), 0.001f);
+            }
+        }
+    }
+
+    private static FloatBuffer direct(final int length) {
+        return ByteBuffer.allocateDirect(length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    @Test
+    public void testTransformIntoNonNativeBuffers() {
+        try (final FFT fft = new FFT(8)) {
+            final float[] samples = {0, 0, 0, 1, 0, 0, 0, 1};
+            final float[][] expected = fft.transform(samples);
+
+            // big endian byte buffers with a position offset and a heap buffer
+            final ByteBuffer in = ByteBuffer.allocateDirect(9 * 4).order(ByteOrder.BIG_ENDIAN);
+            in.position(4);
+            in.slice().asFloatBuffer().put(samples);
+            final ByteBuffer real = ByteBuffer.allocate(8 * 4);
+            final ByteBuffer imaginary = ByteBuffer.allocateDirect(8 * 4).order(ByteOrder.LITTLE_ENDIAN);
+            fft.transformInto(in, real, imaginary);
+            assertArrayEquals(expected[REAL], toArray(real.asFloatBuffer()), 0.01f);
+            assertArrayEquals(expected[IMAGINARY], toArray(imaginary.asFloatBuffer()), 0.01f);
+        }
+    }
+
+    @Test
+    public void testTransformIntoTooSmallBuffer() {
+        try (final FFT fft = new FFT(8)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformInto(
+                FloatBuffer.allocate(8), FloatBuffer.allocate(7), FloatBuffer.allocate(8)));
+        }
+    }
+
+    @Test
+    public void testTransformIntoReadOnlyBuffer() {
+        try (final FFT fft = new FFT(8)) {
+            Assertions.assertThrows(ReadOnlyBufferException.class, () -> fft.transformInto(
+                FloatBuffer.allocate(8), FloatBuffer.allocate(8).asReadOnlyBuffer(), FloatBuffer.allocate(8)));
+        }
+    }
+
+    private static float[] toArray(final FloatBuffer buffer) {
+        final float[] array = new float[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+    @Test
+    public void testHalfSpectrum() {
+        try (final FFT fft = new FFT(32)) {
+            final float[] samples = new float[32];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.4) + i % 5;
+            }
+            final float[][] expected = fft.transform(samples);
+
+            assertEquals(17, fft.getHalfSpectrumLength());
+            final float[] real = new float[17];
+            final float[] imaginary = new float[17];
+            Arrays.fill(imaginary, 42f);
+            fft.transformToHalfSpectrum(samples, real, imaginary);
+            assertArrayEquals(Arrays.copyOf(expected[REAL], 17), real, 0.01f);
+            assertArrayEquals(Arrays.copyOf(expected[IMAGINARY], 17), imaginary, 0.01f);
+
+            final float[] inverse = new float[32];
+            fft.inverseTransformFromHalfSpectrum(real, imaginary, inverse);
+            assertArrayEquals(samples, inverse, 0.01f);
+        }
+    }
+
+    @Test
+    public void testTransformFrames() {
+        // 24 is handled by the Java fallback
+        for (final int n : new int[]{8, 24, 512}) {
+            try (final FFT fft = new FFT(n)) {
+                final int hopSize = n / 4 + 1;
+                final int frameCount = 7;
+                final int offset = 3;
+                final int bins = fft.getHalfSpectrumLength();
+                final float[] samples = new float[offset + (frameCount - 1) * hopSize + n];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = (float) Math.sin(i * 0.4) + i % 5;
+                }
+                final float[] real = new float[frameCount * n];
+                final float[] imaginary = new float[frameCount * n];
+                fft.transformFrames(samples, offset, hopSize, frameCount, real, imaginary);
+                // sentinels after the output range must not be touched
+                final float[] halfReal = new float[frameCount * bins + n];
+                final float[] halfImaginary = new float[frameCount * bins + n];
+                Arrays.fill(halfReal, frameCount * bins, halfReal.length, 42f);
+                Arrays.fill(halfImaginary, frameCount * bins, halfImaginary.length, 42f);
+                fft.transformFramesToHalfSpectrum(samples, offset, hopSize, frameCount, halfReal, halfImaginary);
+                final float[] sentinels = new float[n];
+                Arrays.fill(sentinels, 42f);
+                assertArrayEquals(sentinels, Arrays.copyOfRange(halfReal, frameCount * bins, halfReal.length), 0f);
+                assertArrayEquals(sentinels, Arrays.copyOfRange(halfImaginary, frameCount * bins, halfImaginary.length), 0f);
+
+                for (int f = 0; f < frameCount; f++) {
+                    final int start = offset + f * hopSize;
+                    final float[][] expected = fft.transform(Arrays.copyOfRange(samples, start, start + n));
+                    assertArrayEquals(expected[REAL], Arrays.copyOfRange(real, f * n, (f + 1) * n), 0.01f);
+                    assertArrayEquals(expected[IMAGINARY], Arrays.copyOfRange(imaginary, f * n, (f + 1) * n), 0.01f);
+                    assertArrayEquals(Arrays.copyOf(expected[REAL], bins), Arrays.copyOfRange(halfReal, f * bins, (f + 1) * bins), 0.01f);
+                    assertArrayEquals(Arrays.copyOf(expected[IMAGINARY], bins), Arrays.copyOfRange(halfImaginary, f * bins, (f + 1) * bins), 0.01f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTransformFramesInvalidArguments() {
+        try (final FFT fft = new FFT(8)) {
+            // last frame exceeds the samples
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformFramesToHalfSpectrum(new float[19], 0, 4, 4, new float[20], new float[20]));
+            // output too short
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformFrames(new float[20], 0, 4, 4, new float[31], new float[32]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformFrames(new float[20], 0, 0, 4, new float[32], new float[32]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformFrames(new float[20], -1, 4, 4, new float[32], new float[32]));
+            // no frames, nothing to do
+            fft.transformFrames(new float[0], 0, 4, 0, new float[0], new float[0]);
+        }
+    }
+
+    @Test
+    public void testHalfSpectrumTooShortArray() {
+        try (final FFT fft = new FFT(8)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformToHalfSpectrum(new float[8], new float[4], new float[5]));
+        }
+    }
+
+    @Test
+    public void testTransformIntoTooShortArray() {
+        try (final FFT fft = new FFT(8)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformInto(new float[8], new float[4], new float[8]));
+        }
+    }
+
+    @Test
+    public void testTransformIntoSameArray() {
+        try (final FFT fft = new FFT(8)) {
+            final float[] array = new float[8];
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformInto(array, array, new float[8]));
+        }
+    }
+
+    @Test
+    public void testDoubleTransform() {
+        try (final FFT fft = new FFT(4096); final PureJavaFFT javaFFT = new PureJavaFFT(4096)) {
+            final double[] samples = new double[4096];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = Math.sin(i * 0.4) + 1e-6 * (i % 5);
+            }
+            final double[][] result = fft.transform(samples);
+            final double[][] expected = javaFFT.transform(samples);
+            assertEquals(3, result.length);
+            assertArrayEquals(expected[REAL], result[REAL], 1e-9);
+            assertArrayEquals(expected[IMAGINARY], result[IMAGINARY], 1e-9);
+            assertArrayEquals(javaFFT.getDoubleFrequencies(), result[FREQUENCY], 0.0);
+
+            final double[][] inverse = fft.inverseTransform(result[REAL], result[IMAGINARY]);
+            assertArrayEquals(samples, inverse[REAL], 1e-12);
+            assertArrayEquals(new double[4096], inverse[IMAGINARY], 1e-12);
+        }
+    }
+
+    @Test
+    public void testDoubleTransformInto() {
+        try (final FFT fft = new FFT(16)) {
+            final double[] real = new double[16];
+            final double[] imaginary = new double[16];
+            for (int i = 0; i < real.length; i++) {
+                real[i] = Math.sin(i * 0.4);
+                imaginary[i] = Math.cos(i * 0.9);
+            }
+            final double[][] expected = fft.transform(real, imaginary);
+            final double[] realOut = new double[16];
+            final double[] imaginaryOut = new double[16];
+            fft.transformInto(real, imaginary, realOut, imaginaryOut);
+            assertArrayEquals(expected[REAL], realOut, 0.0);
+            assertArrayEquals(expected[IMAGINARY], imaginaryOut, 0.0);
+
+            final double[] realInverse = new double[16];
+            final double[] imaginaryInverse = new double[16];
+            fft.transformInto(real, realOut, imaginaryOut);
+            fft.inverseTransformInto(realOut, imaginaryOut, realInverse, imaginaryInverse);
+            assertArrayEquals(real, realInverse, 1e-12);
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformInto(real, realOut, new double[8]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformInto(real, real, imaginaryOut));
+        }
+    }
+
+    @Test
+    public void testComplexTransformByComparison() {
+        for (int numberOfSamples = 4; numberOfSamples <= 32768; numberOfSamples *= 2) {
+            try (final FFT fft = new FFT(numberOfSamples); final PureJavaFFT javaFFT = new PureJavaFFT(numberOfSamples)) {
+                final float[] real = new float[numberOfSamples];
+                final float[] imaginary = new float[numberOfSamples];
+                final double[] doubleReal = new double[numberOfSamples];
+                final double[] doubleImaginary = new double[numberOfSamples];
+                for (int i = 0; i < numberOfSamples; i++) {
+                    doubleReal[i] = real[i] = (float) Math.sin(i * 0.3) + (i * 7919 % 13) / 13f;
+                    doubleImaginary[i] = imaginary[i] = (float) Math.cos(i * 0.7) - (i * 104729 % 11) / 11f;
+                }
+                final float delta = 0.0001f * numberOfSamples;
+                final float[][] expected = javaFFT.transform(real, imaginary);
+                final float[][] result = fft.transform(real, imaginary);
+                assertEquals(3, result.length);
+                assertArrayEquals(expected[REAL], result[REAL], delta);
+                assertArrayEquals(expected[IMAGINARY], result[IMAGINARY], delta);
+                assertArrayEquals(fft.getFrequencies(), result[FREQUENCY], 0f);
+
+                final float[][] inverse = fft.inverseTransform(result[REAL], result[IMAGINARY]);
+                assertArrayEquals(real, inverse[REAL], 0.001f);
+                assertArrayEquals(imaginary, inverse[IMAGINARY], 0.001f);
+
+                final double[][] expectedDouble = javaFFT.transform(doubleReal, doubleImaginary);
+                final double[][] resultDouble = fft.transform(doubleReal, doubleImaginary);
+                assertArrayEquals(expectedDouble[REAL], resultDouble[REAL], 1e-10 * numberOfSamples);
+                assertArrayEquals(expectedDouble[IMAGINARY], resultDouble[IMAGINARY], 1e-10 * numberOfSamples);
+            }
+        }
+    }
+
+    @Test
+    public void testComplexInverseTransformByComparison() {
+        // the input is not the spectrum of real numbers, so the result has an imaginary part
+        for (int numberOfSamples = 2; numberOfSamples <= 4096; numberOfSamples *= 2) {
+            try (final FFT fft = new FFT(numberOfSamples); final PureJavaFFT javaFFT = new PureJavaFFT(numberOfSamples)) {
+                final float[] real = new float[numberOfSamples];
+                final float[] imaginary = new float[numberOfSamples];
+                final double[] doubleReal = new double[numberOfSamples];
+                final double[] doubleImaginary = new double[numberOfSamples];
+                for (int i = 0; i < numberOfSamples; i++) {
+                    doubleReal[i] = real[i] = (float) Math.sin(i * 0.3) + (i * 7919 % 13) / 13f;
+                    doubleImaginary[i] = imaginary[i] = (float) Math.cos(i * 0.7) - (i * 104729 % 11) / 11f;
+                }
+                final float[][] expected = javaFFT.inverseTransform(real, imaginary);
+                final float[][] result = fft.inverseTransform(real, imaginary);
+                assertArrayEquals(expected[REAL], result[REAL], 0.0001f);
+                assertArrayEquals(expected[IMAGINARY], result[IMAGINARY], 0.0001f);
+
+                final float[] realOut = new float[numberOfSamples];
+                final float[] imaginaryOut = new float[numberOfSamples];
+                fft.inverseTransformInto(real, imaginary, realOut, imaginaryOut);
+                assertArrayEquals(expected[REAL], realOut, 0.0001f);
+                assertArrayEquals(expected[IMAGINARY], imaginaryOut, 0.0001f);
+
+                final FloatBuffer directReal = direct(numberOfSamples);
+                final FloatBuffer directImaginary = direct(numberOfSamples);
+                final FloatBuffer directRealOut = direct(numberOfSamples);
+                final FloatBuffer directImaginaryOut = direct(numberOfSamples);
+                directReal.put(real).flip();
+                directImaginary.put(imaginary).flip();
+                fft.inverseTransformInto(directReal, directImaginary, directRealOut, directImaginaryOut);
+                assertArrayEquals(expected[REAL], toArray(directRealOut), 0.0001f);
+                assertArrayEquals(expected[IMAGINARY], toArray(directImaginaryOut), 0.0001f);
+
+                final double[][] expectedDouble = javaFFT.inverseTransform(doubleReal, doubleImaginary);
+                final double[][] resultDouble = fft.inverseTransform(doubleReal, doubleImaginary);
+                assertArrayEquals(expectedDouble[REAL], resultDouble[REAL], 1e-12);
+                assertArrayEquals(expectedDouble[IMAGINARY], resultDouble[IMAGINARY], 1e-12);
+
+                final double[] doubleRealOut = new double[numberOfSamples];
+                final double[] doubleImaginaryOut = new double[numberOfSamples];
+                fft.inverseTransformInto(doubleReal, doubleImaginary, doubleRealOut, doubleImaginaryOut);
+                assertArrayEquals(expectedDouble[REAL], doubleRealOut, 1e-12);
+                assertArrayEquals(expectedDouble[IMAGINARY], doubleImaginaryOut, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testSpectra() throws Exception {
+        // native, Java fallback and non-power of 2
+        for (final int n : new int[]{2, 512, 12}) {
+            final float[] samples = new float[n];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.4) + i % 5;
+            }
+            for (final Window window : new Window[]{null, Window.hann(n)}) {
+                final float[] windowed = samples.clone();
+                if (window != null) {
+                    window.multiply(samples, 0, windowed);
+                }
+                for (final AbstractFFT fft : new AbstractFFT[]{new FFT(n), new PureJavaFFT(n)}) {
+                    final float[][] expected = fft.transform(windowed);
+                    final int bins = fft.getHalfSpectrumLength();
+                    final float[] magnitude = new float[bins];
+                    final float[] power = new float[bins];
+                    final float[] logPower = new float[bins];
+                    if (window == null) {
+                        fft.magnitudeSpectrum(samples, magnitude);
+                        fft.powerSpectrum(samples, power);
+                        fft.logPowerSpectrum(samples, logPower);
+                    } else {
+                        fft.magnitudeSpectrum(samples, window, magnitude);
+                        fft.powerSpectrum(samples, window, power);
+                        fft.logPowerSpectrum(samples, window, logPower);
+                    }
+                    for (int i = 0; i < bins; i++) {
+                        final double p = (double) expected[REAL][i] * expected[REAL][i]
+                            + (double) expected[IMAGINARY][i] * expected[IMAGINARY][i];
+                        assertEquals(Math.sqrt(p), magnitude[i], 0.001 + Math.sqrt(p) * 0.0001, fft.toString());
+                        assertEquals(p, power[i], 0.001 + p * 0.0001, fft.toString());
+                        assertEquals(Math.max(MIN_LOG_POWER, 10 * Math.log10(p)), logPower[i], 0.01, fft.toString());
+                    }
+                    fft.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLogPowerSpectrumOfSilence() {
+        try (final FFT fft = new FFT(16)) {
+            final float[] logPower = new float[fft.getHalfSpectrumLength()];
+            fft.logPowerSpectrum(new float[16], logPower);
+            for (final float value : logPower) {
+                assertEquals(MIN_LOG_POWER, value, 0.001f);
+            }
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.powerSpectrum(new float[16], new float[8]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.powerSpectrum(new float[8], new float[9]));
+        }
     }
 
 }
@@ -0,0 +1,69 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test FFTMetrics.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestFFTMetrics {
+
+    @Test
+    public void testBucket() {
+        assertEquals(0, FFTMetrics.bucket(0));
+        assertEquals(0, FFTMetrics.bucket(1));
+        assertEquals(1, FFTMetrics.bucket(2));
+        assertEquals(1, FFTMetrics.bucket(3));
+        assertEquals(10, FFTMetrics.bucket(1024));
+        assertEquals(10, FFTMetrics.bucket(2047));
+        assertEquals(62, FFTMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRecord() {
+        final FFTMetrics metrics = new FFTMetrics();
+        metrics.recordNative(1024, 1, 3 * 4 * 1024, 1500);
+        metrics.recordNative(1024, 10, 100, 10 * 3000);
+        metrics.recordNative(256, 0, 0, 100);
+        metrics.recordJava(12, 2, 200);
+        metrics.recordPlan(5000);
+
+        assertEquals(11, metrics.getNativeTransformCount());
+        assertEquals(2, metrics.getJavaTransformCount());
+        final Map<Integer, Long> nativeCounts = metrics.getNativeTransformCountsBySize();
+        assertEquals(1, nativeCounts.size());
+        assertEquals(11L, (long) nativeCounts.get(1024));
+        assertEquals(2L, (long) metrics.getJavaTransformCountsBySize().get(12));
+        assertEquals(3 * 4 * 1024 + 100, metrics.getNativeArrayBytes());
+
+        final long[] nativeHistogram = metrics.getNativeLatencyHistogram();
+        assertEquals(64, nativeHistogram.length);
+        assertEquals(1, nativeHistogram[10]);
+        assertEquals(10, nativeHistogram[11]);
+        assertEquals(2, metrics.getJavaLatencyHistogram()[6]);
+
+        assertEquals(1, metrics.getPlanCount());
+        assertEquals(5000, metrics.getPlanInitNanos());
+        assertEquals(FFT.isNativeAvailable(), metrics.isNativeLibraryLoaded());
+
+        metrics.reset();
+        assertEquals(0, metrics.getNativeTransformCount());
+        assertEquals(0L, (long) metrics.getNativeTransformCountsBySize().get(1024));
+        assertEquals(0, metrics.getNativeLatencyHistogram()[11]);
+        assertEquals(0, metrics.getNativeArrayBytes());
+        assertEquals(0, metrics.getPlanCount());
+        assertTrue(metrics.toString().contains("native=0"));
+    }
+}
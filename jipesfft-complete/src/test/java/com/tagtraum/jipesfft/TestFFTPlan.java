@@ -0,0 +1,127 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test sharing and caching of native plans.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestFFTPlan {
+
+    @Test
+    public void testConcurrentTransforms() throws Exception {
+        final int n = 4096;
+        final FFT fft = new FFT(n);
+        final PureJavaFFT javaFFT = new PureJavaFFT(n);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final long seed = t;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    final Random random = new Random(seed);
+                    for (int i = 0; i < 50; i++) {
+                        final float[] real = new float[n];
+                        final float[] imag = new float[n];
+                        for (int j = 0; j < n; j++) {
+                            real[j] = random.nextFloat() * 2 - 1;
+                            imag[j] = random.nextFloat() * 2 - 1;
+                        }
+                        final float[][] expected = javaFFT.transform(real);
+                        final float[][] actual = fft.transform(real);
+                        assertArrayEquals(expected[0], actual[0], 0.01f);
+                        assertArrayEquals(expected[1], actual[1], 0.01f);
+
+                        final float[][] expectedComplex = javaFFT.transform(real, imag);
+                        final float[][] actualComplex = fft.transform(real, imag);
+                        assertArrayEquals(expectedComplex[0], actualComplex[0], 0.01f);
+                        assertArrayEquals(expectedComplex[1], actualComplex[1], 0.01f);
+
+                        final float[] halfReal = new float[n / 2 + 1];
+                        final float[] halfImag = new float[n / 2 + 1];
+                        fft.transformToHalfSpectrum(real, halfReal, halfImag);
+                        final float[] restored = new float[n];
+                        fft.inverseTransformFromHalfSpectrum(halfReal, halfImag, restored);
+                        assertArrayEquals(real, restored, 0.0001f);
+
+                        final double[] realDouble = new double[n];
+                        for (int j = 0; j < n; j++) {
+                            realDouble[j] = real[j];
+                        }
+                        final double[][] expectedDouble = javaFFT.transform(realDouble);
+                        final double[][] actualDouble = fft.transform(realDouble);
+                        assertArrayEquals(expectedDouble[0], actualDouble[0], 1e-9);
+                        assertArrayEquals(expectedDouble[1], actualDouble[1], 1e-9);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            fft.close();
+        }
+    }
+
+    @Test
+    public void testSharedPlan() {
+        assumeTrue(FFT.isNativeAvailable());
+        final FFTPlan plan0 = FFTPlan.acquire(2048);
+        final FFTPlan plan1 = FFTPlan.acquire(2048);
+        try {
+            assertSame(plan0, plan1);
+        } finally {
+            plan0.release();
+            plan1.release();
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        assumeTrue(FFT.isNativeAvailable());
+        assumeTrue(Long.getLong(FFTPlan.MAX_CACHE_BYTES_PROPERTY) == null);
+        FFTPlan.clearCache();
+        assertEquals(0, FFTPlan.getCacheSize());
+        assertEquals(0, FFTPlan.getCachedBytes());
+
+        // ~20 MiB and ~40 MiB fit into the default limit
+        FFTPlan.acquire(1 << 20).release();
+        FFTPlan.acquire(1 << 21).release();
+        assertEquals(2, FFTPlan.getCacheSize());
+
+        // use 1<<20 again, so that 1<<21 becomes the least recently used plan
+        FFTPlan.acquire(1 << 20).release();
+        FFTPlan.acquire(1 << 19).release();
+        assertEquals(2, FFTPlan.getCacheSize());
+        assertEquals(20L * ((1 << 20) + (1 << 19)), FFTPlan.getCachedBytes());
+
+        // a plan larger than the limit is not retained, but still usable
+        final FFTPlan large = FFTPlan.acquire(1 << 22);
+        assertEquals(0, FFTPlan.getCacheSize());
+        assertEquals(0, FFTPlan.getCachedBytes());
+        assertTrue(large.getPointer() != 0);
+        large.release();
+
+        FFTPlan.clearCache();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.tagtraum.jipesfft.AbstractFFT.IMAGINARY;
+import static com.tagtraum.jipesfft.AbstractFFT.REAL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test ISTFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestISTFT {
+
+    @Test
+    public void testReconstruction() {
+        final Random random = new Random(0);
+        final float[] samples = new float[5000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextFloat() * 2 - 1;
+        }
+        final float[] hann = Window.hann(512).getCoefficients();
+        final float[] scaledHann = new float[hann.length];
+        for (int i = 0; i < hann.length; i++) {
+            scaledHann[i] = hann[i] * 2f / 3f;
+        }
+        // Hann analysis at hop size N/2 sums to 1, Hann squared at hop size N/4 to 3/2
+        final int[] hopSizes = {256, 128};
+        final Window[] synthesisWindows = {null, Window.of(scaledHann)};
+        for (int w = 0; w < hopSizes.length; w++) {
+            final int hopSize = hopSizes[w];
+            final float[] output = new float[samples.length + 512];
+            final int[] count = new int[1];
+            final ISTFT.SampleConsumer sampleConsumer = (sampleIndex, out, length) -> {
+                assertEquals(count[0], sampleIndex);
+                System.arraycopy(out, 0, output, (int) sampleIndex, length);
+                count[0] += length;
+            };
+            try (final STFT stft = new STFT(512, hopSize, Window.hann(512));
+                 final ISTFT istft = new ISTFT(512, hopSize, synthesisWindows[w])) {
+                stft.push(samples, (frameIndex, real, imaginary) -> istft.push(real, imaginary, sampleConsumer));
+                istft.flush(sampleConsumer);
+                final long frames = stft.getFrameCount();
+                assertEquals(frames * hopSize + 512 - hopSize, istft.getSampleCount());
+                assertEquals(istft.getSampleCount(), count[0]);
+                // except for the first and last frame, all samples are fully overlapped
+                for (int i = 512; i < (frames - 1) * hopSize; i++) {
+                    assertEquals(samples[i], output[i], 0.0001f, "hop size " + hopSize + ", sample " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGaps() {
+        // hop size greater than frame size, frames are separated by zeros
+        try (final FFT fft = new FFT(8); final ISTFT istft = new ISTFT(8, 12, null)) {
+            final float[] frame = {1, 2, 3, 4, 5, 6, 7, 8};
+            final float[][] spectrum = fft.transform(frame);
+            final float[] real = new float[5];
+            final float[] imaginary = new float[5];
+            System.arraycopy(spectrum[REAL], 0, real, 0, 5);
+            System.arraycopy(spectrum[IMAGINARY], 0, imaginary, 0, 5);
+            final float[] output = new float[24];
+            final ISTFT.SampleConsumer consumer = (sampleIndex, out, length) -> {
+                assertEquals(12, length);
+                System.arraycopy(out, 0, output, (int) sampleIndex, length);
+            };
+            istft.push(real, imaginary, consumer);
+            istft.push(real, imaginary, consumer);
+            // nothing overlaps, so nothing remains
+            istft.flush((sampleIndex, out, length) -> Assertions.fail("Unexpected samples"));
+            assertEquals(24, istft.getSampleCount());
+            for (int i = 0; i < output.length; i++) {
+                assertEquals(i % 12 < 8 ? frame[i % 12] : 0f, output[i], 0.0001f);
+            }
+            istft.reset();
+            assertEquals(0, istft.getSampleCount());
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ISTFT(16, 0, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ISTFT(0, 8, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ISTFT(16, 8, Window.hann(8)));
+        try (final ISTFT istft = new ISTFT(16, 8, null)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> istft.push(new float[8], new float[9], (sampleIndex, out, length) -> {}));
+        }
+    }
+}
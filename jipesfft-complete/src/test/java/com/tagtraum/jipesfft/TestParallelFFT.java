@@ -0,0 +1,71 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.tagtraum.jipesfft.AbstractFFT.IMAGINARY;
+import static com.tagtraum.jipesfft.AbstractFFT.REAL;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Test ParallelFFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestParallelFFT {
+
+    @Test
+    public void testByComparison() {
+        final Random random = new Random(0);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            // square and non-square matrix, and sizes left to PureJavaFFT
+            for (final int n : new int[]{1 << 16, 1 << 17, 1024, 1000}) {
+                final float[] real = new float[n];
+                final float[] imaginary = new float[n];
+                for (int i = 0; i < n; i++) {
+                    real[i] = random.nextFloat() * 2 - 1;
+                    imaginary[i] = random.nextFloat() * 2 - 1;
+                }
+                final PureJavaFFT expectedFFT = new PureJavaFFT(n);
+                try (final ParallelFFT fft = new ParallelFFT(n, pool)) {
+                    final float tolerance = 0.0001f * (float) Math.sqrt(n);
+                    final float[][] expected = expectedFFT.transform(real);
+                    final float[][] actual = fft.transform(real);
+                    assertArrayEquals(expected[REAL], actual[REAL], tolerance, fft.toString());
+                    assertArrayEquals(expected[IMAGINARY], actual[IMAGINARY], tolerance, fft.toString());
+
+                    final float[][] expectedComplex = expectedFFT.transform(real, imaginary);
+                    final float[][] actualComplex = fft.transform(real, imaginary);
+                    assertArrayEquals(expectedComplex[REAL], actualComplex[REAL], tolerance, fft.toString());
+                    assertArrayEquals(expectedComplex[IMAGINARY], actualComplex[IMAGINARY], tolerance, fft.toString());
+
+                    final float[][] inverse = fft.inverseTransform(actualComplex[REAL], actualComplex[IMAGINARY]);
+                    assertArrayEquals(real, inverse[REAL], 0.0001f, fft.toString());
+                    assertArrayEquals(imaginary, inverse[IMAGINARY], 0.0001f, fft.toString());
+
+                    // missing imaginary part of the inverse transform's input
+                    final float[][] expectedInverse = expectedFFT.inverseTransform(real, null);
+                    final float[][] actualInverse = fft.inverseTransform(real, null);
+                    assertArrayEquals(expectedInverse[REAL], actualInverse[REAL], 0.0001f, fft.toString());
+                    assertArrayEquals(expectedInverse[IMAGINARY], actualInverse[IMAGINARY], 0.0001f, fft.toString());
+                    final float[] realOut = new float[n];
+                    final float[] imaginaryOut = new float[n];
+                    fft.transform(true, real, null, realOut, imaginaryOut);
+                    assertArrayEquals(expectedInverse[REAL], realOut, 0.0001f, fft.toString());
+                    assertArrayEquals(expectedInverse[IMAGINARY], imaginaryOut, 0.0001f, fft.toString());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test PartitionedConvolver.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestPartitionedConvolver {
+
+    @Test
+    public void testByComparison() {
+        final Random random = new Random(0);
+        final float[] signal = new float[4096];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = random.nextFloat() * 2 - 1;
+        }
+        // kernel shorter than a block, exactly one block and not a multiple of the block size
+        for (final int kernelLength : new int[]{5, 128, 1000}) {
+            final float[] kernel = new float[kernelLength];
+            for (int i = 0; i < kernel.length; i++) {
+                kernel[i] = random.nextFloat() * 2 - 1;
+            }
+            final float[] expected;
+            try (final Convolver convolver = new Convolver(kernel)) {
+                expected = Arrays.copyOf(convolver.convolve(signal), signal.length);
+            }
+            try (final PartitionedConvolver convolver = new PartitionedConvolver(kernel, 128)) {
+                assertEquals((kernelLength + 127) / 128, convolver.getPartitions());
+                final float[] out = new float[signal.length];
+                convolver.process(signal, out);
+                assertArrayEquals(expected, out, 0.001f, convolver.toString());
+
+                // in place, after reset
+                convolver.reset();
+                final float[] inPlace = signal.clone();
+                convolver.process(inPlace, inPlace);
+                assertArrayEquals(expected, inPlace, 0.001f, convolver.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PartitionedConvolver(new float[0], 128));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PartitionedConvolver(new float[8], 0));
+        try (final PartitionedConvolver convolver = new PartitionedConvolver(new float[8], 4)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> convolver.process(new float[6], new float[6]));
+            Assertions.assertThrows(IndexOutOfBoundsException.class, () -> convolver.process(new float[4], 1, new float[4], 0));
+        }
+    }
+}
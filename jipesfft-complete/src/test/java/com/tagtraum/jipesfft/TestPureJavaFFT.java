@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -120,8 +121,176 @@ public class TestPureJavaFFT {
     }
 
     @Test
-    public void testNumberOfSamplesPowerOfTwo() {
-        Assertions.assertThrows(IllegalArgumentException.class, () -> new PureJavaFFT(5));
+    public void testNumberOfSamplesNotPowerOfTwo() {
+        final PureJavaFFT fft = new PureJavaFFT(5);
+        final float[][] result = fft.transform(new float[]{1, 1, 1, 1, 1});
+        assertArrayEquals(new float[]{5, 0, 0, 0, 0}, result[REAL], 0.0001f);
+        assertArrayEquals(new float[5], result[IMAGINARY], 0.0001f);
+    }
+
+    @Test
+    public void testHalfSpectrumNotPowerOfTwo() {
+        // 44100 = 2^2 3^2 5^2 7^2, 48000 = 2^7 3 5^3, 1021 is prime, 1023 = 3 11 31
+        for (final int numberOfSamples : new int[]{44100, 48000, 1021, 1023}) {
+            final PureJavaFFT fft = new PureJavaFFT(numberOfSamples);
+            final float[] samples = new float[numberOfSamples];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.1) + (i * 7919 % 13) / 13f;
+            }
+            final float[][] expected = fft.transform(samples, new float[numberOfSamples]);
+            final int halfSpectrumLength = numberOfSamples / 2 + 1;
+            assertEquals(halfSpectrumLength, fft.getHalfSpectrumLength());
+            final float[] real = new float[halfSpectrumLength];
+            final float[] imaginary = new float[halfSpectrumLength];
+            fft.transformToHalfSpectrum(samples, real, imaginary);
+            assertArrayEquals(Arrays.copyOf(expected[REAL], halfSpectrumLength), real, 0.001f);
+            assertArrayEquals(Arrays.copyOf(expected[IMAGINARY], halfSpectrumLength), imaginary, 0.001f);
+
+            final float[] inverse = new float[numberOfSamples];
+            fft.inverseTransformFromHalfSpectrum(real, imaginary, inverse);
+            assertArrayEquals(samples, inverse, 0.001f);
+
+            final float[][] complexInverse = fft.inverseTransform(expected[REAL], expected[IMAGINARY]);
+            assertArrayEquals(samples, complexInverse[REAL], 0.001f);
+            assertArrayEquals(new float[numberOfSamples], complexInverse[IMAGINARY], 0.001f);
+        }
+    }
+
+    @Test
+    public void testTransformInto() {
+        final PureJavaFFT fft = new PureJavaFFT(8);
+        final float[] samples = {0, 0, 0, 1, 0, 0, 0, 1};
+        final float[][] expected = fft.transform(samples);
+
+        // use dirty arrays to ensure everything is overwritten
+        final float[] real = new float[8];
+        final float[] imaginary = new float[8];
+        Arrays.fill(real, 42f);
+        Arrays.fill(imaginary, 42f);
+        fft.transformInto(samples, real, imaginary);
+        assertArrayEquals(expected[REAL], real, 0.0001f);
+        assertArrayEquals(expected[IMAGINARY], imaginary, 0.0001f);
+
+        final float[] inverseReal = new float[8];
+        final float[] inverseImaginary = new float[8];
+        fft.inverseTransformInto(real, imaginary, inverseReal, inverseImaginary);
+        assertArrayEquals(samples, inverseReal, 0.0001f);
+        assertArrayEquals(new float[8], inverseImaginary, 0.0001f);
+    }
+
+    @Test
+    public void testHalfSpectrum() {
+        final PureJavaFFT fft = new PureJavaFFT(16);
+        final float[] samples = new float[16];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) Math.cos(i * 1.3) - i % 3;
+        }
+        final float[][] expected = fft.transform(samples);
+
+        assertEquals(9, fft.getHalfSpectrumLength());
+        final float[] real = new float[9];
+        final float[] imaginary = new float[9];
+        fft.transformToHalfSpectrum(samples, real, imaginary);
+        assertArrayEquals(Arrays.copyOf(expected[REAL], 9), real, 0.0001f);
+        assertArrayEquals(Arrays.copyOf(expected[IMAGINARY], 9), imaginary, 0.0001f);
+
+        final float[] inverse = new float[16];
+        fft.inverseTransformFromHalfSpectrum(real, imaginary, inverse);
+        assertArrayEquals(samples, inverse, 0.0001f);
+    }
+
+    @Test
+    public void testRealTransformByComparisonWithComplexTransform() {
+        for (int numberOfSamples = 2; numberOfSamples <= 2048; numberOfSamples *= 2) {
+            final PureJavaFFT fft = new PureJavaFFT(numberOfSamples);
+            final float[] samples = new float[numberOfSamples];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.1) + (i * 7919 % 13) / 13f;
+            }
+            final float[][] realRes = fft.transform(samples);
+            final float[][] complexRes = fft.transform(samples, new float[numberOfSamples]);
+            assertArrayEquals(complexRes[REAL], realRes[REAL], 0.001f);
+            assertArrayEquals(complexRes[IMAGINARY], realRes[IMAGINARY], 0.001f);
+
+            final float[] inverse = new float[numberOfSamples];
+            fft.inverseTransformFromHalfSpectrum(realRes[REAL], realRes[IMAGINARY], inverse);
+            assertArrayEquals(samples, inverse, 0.001f);
+        }
+    }
+
+    @Test
+    public void testComplexTransformByComparisonWithDFT() {
+        // all sizes up to 64 (mixed radix and Bluestein), then powers of 2
+        for (int numberOfSamples = 1; numberOfSamples <= 512; numberOfSamples = numberOfSamples < 64 ? numberOfSamples + 1 : numberOfSamples * 2) {
+            final PureJavaFFT fft = new PureJavaFFT(numberOfSamples);
+            final float[] real = new float[numberOfSamples];
+            final float[] imaginary = new float[numberOfSamples];
+            for (int i = 0; i < numberOfSamples; i++) {
+                real[i] = (float) Math.sin(i * 0.3) + (i * 7919 % 13) / 13f;
+                imaginary[i] = (float) Math.cos(i * 0.7) - (i * 104729 % 11) / 11f;
+            }
+            final float[] expectedReal = new float[numberOfSamples];
+            final float[] expectedImaginary = new float[numberOfSamples];
+            for (int k = 0; k < numberOfSamples; k++) {
+                double sumReal = 0;
+                double sumImaginary = 0;
+                for (int n = 0; n < numberOfSamples; n++) {
+                    final double angle = -2 * Math.PI * ((long) k * n % numberOfSamples) / numberOfSamples;
+                    sumReal += real[n] * Math.cos(angle) - imaginary[n] * Math.sin(angle);
+                    sumImaginary += real[n] * Math.sin(angle) + imaginary[n] * Math.cos(angle);
+                }
+                expectedReal[k] = (float) sumReal;
+                expectedImaginary[k] = (float) sumImaginary;
+            }
+            final float[][] result = fft.transform(real, imaginary);
+            assertArrayEquals(expectedReal, result[REAL], 0.001f * numberOfSamples);
+            assertArrayEquals(expectedImaginary, result[IMAGINARY], 0.001f * numberOfSamples);
+
+            final float[][] inverse = fft.inverseTransform(result[REAL], result[IMAGINARY]);
+            assertArrayEquals(real, inverse[REAL], 0.001f);
+            assertArrayEquals(imaginary, inverse[IMAGINARY], 0.001f);
+        }
+    }
+
+    @Test
+    public void testDoubleTransformByComparisonWithDFT() {
+        // all sizes up to 64 (mixed radix and Bluestein), then powers of 2
+        for (int numberOfSamples = 1; numberOfSamples <= 512; numberOfSamples = numberOfSamples < 64 ? numberOfSamples + 1 : numberOfSamples * 2) {
+            final PureJavaFFT fft = new PureJavaFFT(numberOfSamples);
+            final double[] real = new double[numberOfSamples];
+            final double[] imaginary = new double[numberOfSamples];
+            for (int i = 0; i < numberOfSamples; i++) {
+                real[i] = Math.sin(i * 0.3) + (i * 7919 % 13) / 13.0;
+                imaginary[i] = Math.cos(i * 0.7) - (i * 104729 % 11) / 11.0;
+            }
+            final double[] expectedReal = new double[numberOfSamples];
+            final double[] expectedImaginary = new double[numberOfSamples];
+            for (int k = 0; k < numberOfSamples; k++) {
+                for (int n = 0; n < numberOfSamples; n++) {
+                    final double angle = -2 * Math.PI * ((long) k * n % numberOfSamples) / numberOfSamples;
+                    expectedReal[k] += real[n] * Math.cos(angle) - imaginary[n] * Math.sin(angle);
+                    expectedImaginary[k] += real[n] * Math.sin(angle) + imaginary[n] * Math.cos(angle);
+                }
+            }
+            final double[][] result = fft.transform(real, imaginary);
+            assertArrayEquals(expectedReal, result[REAL], 1e-10 * numberOfSamples);
+            assertArrayEquals(expectedImaginary, result[IMAGINARY], 1e-10 * numberOfSamples);
+
+            final double[][] inverse = fft.inverseTransform(result[REAL], result[IMAGINARY]);
+            assertArrayEquals(real, inverse[REAL], 1e-12);
+            assertArrayEquals(imaginary, inverse[IMAGINARY], 1e-12);
+
+            final double[][] realResult = fft.transform(real);
+            final double[][] complexResult = fft.transform(real, new double[numberOfSamples]);
+            assertArrayEquals(complexResult[REAL], realResult[REAL], 1e-10 * numberOfSamples);
+            assertArrayEquals(complexResult[IMAGINARY], realResult[IMAGINARY], 1e-10 * numberOfSamples);
+        }
+    }
+
+    @Test
+    public void testTransformIntoTooShortArray() {
+        final PureJavaFFT fft = new PureJavaFFT(8);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformInto(new float[8], new float[8], new float[4]));
     }
 
     @Test
@@ -0,0 +1,105 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.tagtraum.jipesfft.AbstractFFT.IMAGINARY;
+import static com.tagtraum.jipesfft.AbstractFFT.REAL;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test STFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSTFT {
+
+    @Test
+    public void testFramesByComparison() {
+        final Random random = new Random(0);
+        final float[] samples = new float[5000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextFloat() * 2 - 1;
+        }
+        // overlapping, adjacent and gapped frames
+        for (final int hopSize : new int[]{128, 512, 700}) {
+            final float[] window = new float[512];
+            for (int i = 0; i < window.length; i++) {
+                window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / window.length));
+            }
+            final List<float[][]> spectra = new ArrayList<>();
+            try (final STFT stft = new STFT(512, hopSize, Window.of(window))) {
+                // push chunks of arbitrary length
+                int offset = 0;
+                while (offset < samples.length) {
+                    final int length = Math.min(samples.length - offset, random.nextInt(1500));
+                    stft.push(samples, offset, length, (frameIndex, real, imaginary) -> {
+                        assertEquals(spectra.size(), frameIndex);
+                        spectra.add(new float[][]{real.clone(), imaginary.clone()});
+                    });
+                    offset += length;
+                }
+                assertEquals(spectra.size(), stft.getFrameCount());
+            }
+            assertEquals((samples.length - 512) / hopSize + 1, spectra.size());
+
+            try (final FFT fft = new FFT(512)) {
+                for (int f = 0; f < spectra.size(); f++) {
+                    final float[] frame = Arrays.copyOfRange(samples, f * hopSize, f * hopSize + 512);
+                    for (int i = 0; i < frame.length; i++) {
+                        frame[i] *= window[i];
+                    }
+                    final float[][] expected = fft.transform(frame);
+                    assertArrayEquals(Arrays.copyOf(expected[REAL], 257), spectra.get(f)[REAL], 0.001f);
+                    assertArrayEquals(Arrays.copyOf(expected[IMAGINARY], 257), spectra.get(f)[IMAGINARY], 0.001f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFlush() {
+        final float[] samples = new float[20];
+        Arrays.fill(samples, 1f);
+        final List<float[]> spectra = new ArrayList<>();
+        try (final STFT stft = new STFT(16, 8, null)) {
+            final STFT.FrameConsumer consumer = (frameIndex, real, imaginary) -> spectra.add(real.clone());
+            stft.push(samples, consumer);
+            assertEquals(1, spectra.size());
+            stft.flush(consumer);
+            assertEquals(2, spectra.size());
+            // frame 1 contains samples 8-19 and four zeros
+            assertEquals(12f, spectra.get(1)[0], 0.0001f);
+            // nothing pending anymore
+            stft.flush(consumer);
+            assertEquals(2, spectra.size());
+
+            stft.reset();
+            assertEquals(0, stft.getFrameCount());
+            stft.flush(consumer);
+            assertEquals(2, spectra.size());
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new STFT(16, 0, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new STFT(0, 8, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new STFT(16, 8, Window.hann(8)));
+        try (final STFT stft = new STFT(16, 8, null)) {
+            Assertions.assertThrows(IndexOutOfBoundsException.class, () -> stft.push(new float[8], 4, 5, (frameIndex, real, imaginary) -> {}));
+        }
+    }
+}
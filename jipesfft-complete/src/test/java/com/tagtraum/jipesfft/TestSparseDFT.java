@@ -0,0 +1,75 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.tagtraum.jipesfft.AbstractFFT.IMAGINARY;
+import static com.tagtraum.jipesfft.AbstractFFT.REAL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test SparseDFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSparseDFT {
+
+    @Test
+    public void testByComparison() {
+        final Random random = new Random(0);
+        final float[] samples = new float[3000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextFloat() * 2 - 1;
+        }
+        // power of 2 and not, including DC, Nyquist and negative frequencies
+        for (final int n : new int[]{256, 300}) {
+            final int[] bins = {0, 1, 17, n / 2, n - 3};
+            final SparseDFT dft = new SparseDFT(n, bins);
+            final float[] real = new float[bins.length];
+            final float[] imaginary = new float[bins.length];
+            try (final FFT fft = new FFT(n)) {
+                for (int i = 0; i < bins.length; i++) {
+                    assertEquals(fft.getFrequencyForBin(bins[i]), dft.getFrequencyForBin(i));
+                }
+                for (final int offset : new int[]{0, 123, samples.length - n}) {
+                    final float[][] expected = fft.transform(Arrays.copyOfRange(samples, offset, offset + n));
+                    // Goertzel
+                    dft.transform(samples, offset, real, imaginary);
+                    assertBins(expected, bins, real, imaginary);
+                    // sliding DFT, pushed up to the end of the block
+                    dft.reset();
+                    dft.push(samples, 0, offset + n);
+                    dft.getSpectrum(real, imaginary);
+                    assertBins(expected, bins, real, imaginary);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SparseDFT(0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SparseDFT(8, 8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SparseDFT(8, -1));
+        final SparseDFT dft = new SparseDFT(8, 1, 2);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dft.transform(new float[8], 1, new float[2], new float[2]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dft.getSpectrum(new float[2], new float[1]));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> dft.push(new float[8], 4, 5));
+    }
+
+    private static void assertBins(final float[][] expected, final int[] bins, final float[] real, final float[] imaginary) {
+        for (int i = 0; i < bins.length; i++) {
+            assertEquals(expected[REAL][bins[i]], real[i], 0.001f, "bin " + bins[i]);
+            assertEquals(expected[IMAGINARY][bins[i]], imaginary[i], 0.001f, "bin " + bins[i]);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.tagtraum.jipesfft.AbstractFFT.IMAGINARY;
+import static com.tagtraum.jipesfft.AbstractFFT.REAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test windows and windowed transforms.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestWindow {
+
+    @Test
+    public void testCoefficients() {
+        final float[] hann = Window.hann(8).getCoefficients();
+        // periodic, i.e. first 8 values of the symmetric window of size 9
+        assertArrayEquals(new float[]{0f, 0.14644662f, 0.5f, 0.8535534f, 1f, 0.8535534f, 0.5f, 0.14644662f}, hann, 0.00001f);
+
+        final float[] hamming = Window.hamming(8).getCoefficients();
+        assertEquals(0.08f, hamming[0], 0.00001f);
+        assertEquals(1f, hamming[4], 0.00001f);
+
+        final float[] blackman = Window.blackman(8).getCoefficients();
+        assertEquals(0f, blackman[0], 0.00001f);
+        assertEquals(1f, blackman[4], 0.00001f);
+
+        final float[] blackmanHarris = Window.blackmanHarris(8).getCoefficients();
+        assertEquals(0.00006f, blackmanHarris[0], 0.00001f);
+        assertEquals(1f, blackmanHarris[4], 0.00001f);
+
+        // beta 0 yields a rectangular window
+        final float[] rectangular = Window.kaiser(8, 0).getCoefficients();
+        final float[] ones = new float[8];
+        Arrays.fill(ones, 1f);
+        assertArrayEquals(ones, rectangular, 0.00001f);
+
+        final float[] kaiser = Window.kaiser(8, 8.6).getCoefficients();
+        assertEquals(1f, kaiser[4], 0.00001f);
+        // 1/I0(8.6)
+        assertEquals(0.0013325f, kaiser[0], 0.000001f);
+        assertEquals(kaiser[3], kaiser[5], 0.00001f);
+    }
+
+    @Test
+    public void testCache() {
+        assertSame(Window.hann(1024), Window.hann(1024));
+        assertSame(Window.kaiser(1024, 5), Window.kaiser(1024, 5));
+        assertNotSame(Window.kaiser(1024, 5), Window.kaiser(1024, 6));
+        assertNotSame(Window.hann(1024), Window.hamming(1024));
+    }
+
+    @Test
+    public void testCustom() {
+        final float[] coefficients = {1, 2, 3, 4};
+        final Window window = Window.of(coefficients);
+        coefficients[0] = 42;
+        assertEquals(4, window.getSize());
+        assertArrayEquals(new float[]{1, 2, 3, 4}, window.getCoefficients());
+
+        final float[] out = new float[4];
+        window.multiply(new float[]{0, 1, 1, 1, 1}, 1, out);
+        assertArrayEquals(new float[]{1, 2, 3, 4}, out);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Window.kaiser(8, -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Window.hann(-1));
+        try (final FFT fft = new FFT(8)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fft.transformWindowedToHalfSpectrum(new float[8], Window.hann(16), new float[5], new float[5]));
+        }
+    }
+
+    @Test
+    public void testWindowedTransforms() throws Exception {
+        // native, Java fallback and non-power of 2
+        for (final int n : new int[]{2, 512, 12}) {
+            final Window window = Window.blackmanHarris(n);
+            final float[] samples = new float[n];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (float) Math.sin(i * 0.4) + i % 5;
+            }
+            final float[] windowed = new float[n];
+            window.multiply(samples, 0, windowed);
+            final float[] copy = samples.clone();
+            for (final AbstractFFT fft : new AbstractFFT[]{new FFT(n), new PureJavaFFT(n)}) {
+                final float[][] expected = fft.transform(windowed);
+                final float[] real = new float[n];
+                final float[] imaginary = new float[n];
+                fft.transformWindowedInto(samples, window, real, imaginary);
+                assertArrayEquals(expected[REAL], real, 0.001f, fft.toString());
+                assertArrayEquals(expected[IMAGINARY], imaginary, 0.001f, fft.toString());
+
+                final int bins = fft.getHalfSpectrumLength();
+                final float[] halfReal = new float[bins];
+                final float[] halfImaginary = new float[bins];
+                fft.transformWindowedToHalfSpectrum(samples, window, halfReal, halfImaginary);
+                assertArrayEquals(Arrays.copyOf(expected[REAL], bins), halfReal, 0.001f, fft.toString());
+                assertArrayEquals(Arrays.copyOf(expected[IMAGINARY], bins), halfImaginary, 0.001f, fft.toString());
+                // input is not modified
+                assertArrayEquals(copy, samples);
+                fft.close();
+            }
+        }
+    }
+
+    @Test
+    public void testWindowedFrames() {
+        for (final int n : new int[]{8, 24, 512}) {
+            try (final FFT fft = new FFT(n)) {
+                final Window window = Window.hann(n);
+                final int hopSize = n / 2;
+                final int frameCount = 5;
+                final int bins = fft.getHalfSpectrumLength();
+                final float[] samples = new float[(frameCount - 1) * hopSize + n];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = (float) Math.sin(i * 0.4) + i % 5;
+                }
+                final float[] real = new float[frameCount * n];
+                final float[] imaginary = new float[frameCount * n];
+                fft.transformFrames(samples, 0, hopSize, frameCount, window, real, imaginary);
+                final float[] halfReal = new float[frameCount * bins];
+                final float[] halfImaginary = new float[frameCount * bins];
+                fft.transformFramesToHalfSpectrum(samples, 0, hopSize, frameCount, window, halfReal, halfImaginary);
+
+                final float[] frame = new float[n];
+                for (int f = 0; f < frameCount; f++) {
+                    window.multiply(samples, f * hopSize, frame);
+                    final float[][] expected = fft.transform(frame);
+                    assertArrayEquals(expected[REAL], Arrays.copyOfRange(real, f * n, (f + 1) * n), 0.01f);
+                    assertArrayEquals(expected[IMAGINARY], Arrays.copyOfRange(imaginary, f * n, (f + 1) * n), 0.01f);
+                    assertArrayEquals(Arrays.copyOf(expected[REAL], bins), Arrays.copyOfRange(halfReal, f * bins, (f + 1) * bins), 0.01f);
+                    assertArrayEquals(Arrays.copyOf(expected[IMAGINARY], bins), Arrays.copyOfRange(halfImaginary, f * bins, (f + 1) * bins), 0.01f);
+                }
+            }
+        }
+    }
+}
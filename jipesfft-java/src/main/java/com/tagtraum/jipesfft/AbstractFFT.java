@@ -19,24 +19,23 @@ public abstract class AbstractFFT implements AutoCloseable {
     public static final int IMAGINARY = 1;
     /** Index to be used on the result of {@link #transform(float[])} and the like. */
     public static final int FREQUENCY = 2;
+    /** Lower bound of {@link #logPowerSpectrum(float[], float[])} in dB. */
+    public static final float MIN_LOG_POWER = -200f;
     private final int numberOfSamples;
-    private final float[] frequencies;
+    /** Created lazily, so that instances that never need it are cheap. */
+    private volatile float[] frequencies;
 
     /**
      * Constructor for a given number of samples.
      *
      * @param numberOfSamples number of samples you intend to transform
-     * @throws IllegalArgumentException if the number of samples is negative or not a power of 2
+     * @throws IllegalArgumentException if the number of samples is negative
      */
     public AbstractFFT(final int numberOfSamples) {
         if (numberOfSamples < 0) {
             throw new IllegalArgumentException("Number of samples must not be negative: " + numberOfSamples);
         }
-        if (!isPowerOfTwo(numberOfSamples)) {
-            throw new IllegalArgumentException("Number of samples must be a power of 2: " + numberOfSamples);
-        }
         this.numberOfSamples = numberOfSamples;
-        this.frequencies = createFrequencies(numberOfSamples);
     }
 
     /**
@@ -54,10 +53,20 @@ public abstract class AbstractFFT implements AutoCloseable {
      * @param number number
      * @return true or false
      */
-    private static boolean isPowerOfTwo(final int number) {
+    static boolean isPowerOfTwo(final int number) {
         return (number & (number - 1)) == 0;
     }
 
+    /**
+     * Smallest power of two greater than or equal to the given number.
+     *
+     * @param number positive number, at most 2^30
+     * @return power of two
+     */
+    static int nextPowerOfTwo(final int number) {
+        return number <= 1 ? 1 : Integer.highestOneBit(number - 1) << 1;
+    }
+
     /**
      * Create frequencies array for a given number of samples
      *
@@ -88,7 +97,31 @@ public abstract class AbstractFFT implements AutoCloseable {
      * @return array with frequencies for the FFT (bins == index)
      */
     public float[] getFrequencies() {
-        return this.frequencies.clone();
+        float[] frequencies = this.frequencies;
+        if (frequencies == null) {
+            // concurrent callers may compute the same frequencies twice, which is harmless
+            frequencies = createFrequencies(numberOfSamples);
+            this.frequencies = frequencies;
+        }
+        return frequencies.clone();
+    }
+
+    /**
+     * Like {@link #getFrequencies()}, but with double precision.
+     * Used as frequencies of the results of double transforms like {@link #transform(double[])}.
+     *
+     * @return array with frequencies for the FFT (bins == index)
+     */
+    protected double[] getDoubleFrequencies() {
+        final double[] frequencies = new double[numberOfSamples];
+        for (int index=0; index< numberOfSamples; index++) {
+            if (index <= numberOfSamples / 2) {
+                frequencies[index] = index / (double) numberOfSamples;
+            } else {
+                frequencies[index] = -((numberOfSamples - index) / (double) numberOfSamples);
+            }
+        }
+        return frequencies;
     }
 
     /**
@@ -104,9 +137,25 @@ public abstract class AbstractFFT implements AutoCloseable {
      */
     public float getFrequencyForBin(final int bin) {
         if (bin < 0) throw new IllegalArgumentException("Frequency bin must not be negative: " + bin);
-        if (bin >= this.frequencies.length) throw new IllegalArgumentException("Frequency bin must not be greater than "
-            + (this.frequencies.length-1) + ": " + bin);
-        return this.frequencies[bin];
+        if (bin >= numberOfSamples) throw new IllegalArgumentException("Frequency bin must not be greater than "
+            + (numberOfSamples-1) + ": " + bin);
+        if (bin <= numberOfSamples / 2) {
+            return bin / (float) numberOfSamples;
+        } else {
+            return -((numberOfSamples - bin) / (float) numberOfSamples);
+        }
+    }
+
+    /**
+     * Number of non-redundant bins of the spectrum of a real signal,
+     * i.e. {@code N/2+1}. The remaining bins are the complex conjugate mirror
+     * of bins {@code 1} to {@code N/2-1}.
+     *
+     * @return {@code N/2+1}
+     * @see #transformToHalfSpectrum(float[], float[], float[])
+     */
+    public int getHalfSpectrumLength() {
+        return numberOfSamples / 2 + 1;
     }
 
     @Override
@@ -118,7 +167,6 @@ public abstract class AbstractFFT implements AutoCloseable {
 
     /**
      * Perform inverse transform.
-     * For very large number of samples (&gt;32768) the Java version is used.
      *
      * @param real real part
      * @param imaginary imaginary part
@@ -128,7 +176,6 @@ public abstract class AbstractFFT implements AutoCloseable {
 
     /**
      * Transform for real numbers.
-     * For very large number of samples (&gt;32768) the Java version is used.
      *
      * @param real samples
      * @return three-dimensional array, consisting of the real part, the imaginary, and the frequencies
@@ -137,7 +184,6 @@ public abstract class AbstractFFT implements AutoCloseable {
 
     /**
      * Transform for complex numbers.
-     * Note that the current implementation simply delegates to the pure Java version.
      *
      * @param real real part
      * @param imaginary imaginary part
@@ -145,4 +191,631 @@ public abstract class AbstractFFT implements AutoCloseable {
      */
     public abstract float[][] transform(float[] real, float[] imaginary) throws UnsupportedOperationException;
 
+    /**
+     * Perform inverse transform into caller-supplied arrays.
+     * Unlike {@link #inverseTransform(float[], float[])}, this method does not
+     * allocate any result arrays and is therefore suitable for tight loops.
+     *
+     * @param real real part
+     * @param imaginary imaginary part
+     * @param realOut array of length {@code N} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short or an output array is also used as input
+     */
+    public abstract void inverseTransformInto(float[] real, float[] imaginary, float[] realOut, float[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Transform for real numbers into caller-supplied arrays.
+     * Unlike {@link #transform(float[])}, this method does not
+     * allocate any result arrays and is therefore suitable for tight loops.
+     * Frequencies can be obtained once via {@link #getFrequencies()}.
+     *
+     * @param real samples
+     * @param realOut array of length {@code N} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short or an output array is also used as input
+     */
+    public abstract void transformInto(float[] real, float[] realOut, float[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Transform for complex numbers into caller-supplied arrays.
+     * Unlike {@link #transform(float[], float[])}, this method does not
+     * allocate any result arrays and is therefore suitable for tight loops.
+     *
+     * @param real real part
+     * @param imaginary imaginary part
+     * @param realOut array of length {@code N} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short or an output array is also used as input
+     */
+    public abstract void transformInto(float[] real, float[] imaginary, float[] realOut, float[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Transform for real numbers, computing only the {@code N/2+1} non-redundant bins
+     * (real-to-complex). Bins {@code N/2+1} to {@code N-1} are not computed, as they are
+     * merely the complex conjugate of bins {@code N/2-1} to {@code 1}.
+     * The frequencies for the computed bins are the first {@code N/2+1}
+     * values returned by {@link #getFrequencies()}.
+     *
+     * @param real samples
+     * @param realOut array of length {@code N/2+1} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N/2+1} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short or an output array is also used as input
+     * @see #getHalfSpectrumLength()
+     */
+    public abstract void transformToHalfSpectrum(float[] real, float[] realOut, float[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Transform for real numbers into caller-supplied arrays, multiplying the
+     * samples with the given window first. The samples array is not modified.
+     * <p>
+     * This implementation copies the windowed samples into a temporary array.
+     * Subclasses apply the window while copying the samples into their
+     * working memory, which saves a pass over the data.
+     *
+     * @param real samples
+     * @param window window of size {@code N}
+     * @param realOut array of length {@code N} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input
+     * or the window's size is not {@code N}
+     * @see #transformInto(float[], float[], float[])
+     */
+    public void transformWindowedInto(final float[] real, final Window window,
+                                      final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        checkWindow(window);
+        checkArrays(real, null, realOut, imaginaryOut);
+        final float[] windowed = new float[numberOfSamples];
+        window.multiply(real, 0, windowed);
+        transformInto(windowed, realOut, imaginaryOut);
+    }
+
+    /**
+     * Transform for real numbers, computing only the {@code N/2+1} non-redundant bins,
+     * multiplying the samples with the given window first. The samples array is not modified.
+     * <p>
+     * This implementation copies the windowed samples into a temporary array.
+     * Subclasses apply the window while copying the samples into their
+     * working memory, which saves a pass over the data.
+     *
+     * @param real samples
+     * @param window window of size {@code N}
+     * @param realOut array of length {@code N/2+1} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N/2+1} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input
+     * or the window's size is not {@code N}
+     * @see #transformToHalfSpectrum(float[], float[], float[])
+     */
+    public void transformWindowedToHalfSpectrum(final float[] real, final Window window,
+                                                final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        checkWindow(window);
+        checkHalfSpectrumArrays(real, realOut, imaginaryOut);
+        final float[] windowed = new float[numberOfSamples];
+        window.multiply(real, 0, windowed);
+        transformToHalfSpectrum(windowed, realOut, imaginaryOut);
+    }
+
+    /**
+     * Inverse transform from the {@code N/2+1} non-redundant bins of the spectrum
+     * of a real signal to that real signal (complex-to-real).
+     * This is the inverse of {@link #transformToHalfSpectrum(float[], float[], float[])}.
+     *
+     * @param real real part of bins {@code 0} to {@code N/2}
+     * @param imaginary imaginary part of bins {@code 0} to {@code N/2}
+     * @param out array of length {@code N} the real result is written to
+     * @throws IllegalArgumentException if an array is too short or the output array is also used as input
+     * @see #getHalfSpectrumLength()
+     */
+    public abstract void inverseTransformFromHalfSpectrum(float[] real, float[] imaginary, float[] out) throws UnsupportedOperationException;
+
+    /**
+     * Magnitude spectrum of real samples, i.e. {@code sqrt(re*re + im*im)}
+     * of the {@code N/2+1} non-redundant bins.
+     * No complex spectrum is handed to the caller, only the magnitudes.
+     *
+     * @param samples samples
+     * @param out array of length {@code N/2+1} the magnitudes are written to
+     * @throws IllegalArgumentException if an array is too short or the same array is used for in- and output
+     */
+    public void magnitudeSpectrum(final float[] samples, final float[] out) {
+        checkSpectrumArrays(samples, out);
+        spectrum(Spectrum.MAGNITUDE, samples, null, out);
+    }
+
+    /**
+     * Magnitude spectrum of real samples, multiplied with the given window first.
+     *
+     * @param samples samples
+     * @param window window of size {@code N}
+     * @param out array of length {@code N/2+1} the magnitudes are written to
+     * @throws IllegalArgumentException if an array is too short, the same array is used for in- and output
+     * or the window's size is not {@code N}
+     * @see #magnitudeSpectrum(float[], float[])
+     */
+    public void magnitudeSpectrum(final float[] samples, final Window window, final float[] out) {
+        checkWindow(window);
+        checkSpectrumArrays(samples, out);
+        spectrum(Spectrum.MAGNITUDE, samples, window, out);
+    }
+
+    /**
+     * Power spectrum of real samples, i.e. {@code re*re + im*im}
+     * of the {@code N/2+1} non-redundant bins.
+     *
+     * @param samples samples
+     * @param out array of length {@code N/2+1} the powers are written to
+     * @throws IllegalArgumentException if an array is too short or the same array is used for in- and output
+     */
+    public void powerSpectrum(final float[] samples, final float[] out) {
+        checkSpectrumArrays(samples, out);
+        spectrum(Spectrum.POWER, samples, null, out);
+    }
+
+    /**
+     * Power spectrum of real samples, multiplied with the given window first.
+     *
+     * @param samples samples
+     * @param window window of size {@code N}
+     * @param out array of length {@code N/2+1} the powers are written to
+     * @throws IllegalArgumentException if an array is too short, the same array is used for in- and output
+     * or the window's size is not {@code N}
+     * @see #powerSpectrum(float[], float[])
+     */
+    public void powerSpectrum(final float[] samples, final Window window, final float[] out) {
+        checkWindow(window);
+        checkSpectrumArrays(samples, out);
+        spectrum(Spectrum.POWER, samples, window, out);
+    }
+
+    /**
+     * Log power spectrum of real samples in decibels, i.e. {@code 10 * log10(re*re + im*im)}
+     * of the {@code N/2+1} non-redundant bins. Powers are clamped to at least
+     * {@code 1e-20}, so that the result is never less than {@value #MIN_LOG_POWER} dB.
+     *
+     * @param samples samples
+     * @param out array of length {@code N/2+1} the log powers are written to
+     * @throws IllegalArgumentException if an array is too short or the same array is used for in- and output
+     */
+    public void logPowerSpectrum(final float[] samples, final float[] out) {
+        checkSpectrumArrays(samples, out);
+        spectrum(Spectrum.LOG_POWER, samples, null, out);
+    }
+
+    /**
+     * Log power spectrum of real samples in decibels, multiplied with the given window first.
+     *
+     * @param samples samples
+     * @param window window of size {@code N}
+     * @param out array of length {@code N/2+1} the log powers are written to
+     * @throws IllegalArgumentException if an array is too short, the same array is used for in- and output
+     * or the window's size is not {@code N}
+     * @see #logPowerSpectrum(float[], float[])
+     */
+    public void logPowerSpectrum(final float[] samples, final Window window, final float[] out) {
+        checkWindow(window);
+        checkSpectrumArrays(samples, out);
+        spectrum(Spectrum.LOG_POWER, samples, window, out);
+    }
+
+    /**
+     * Computes the given kind of spectrum of already verified arguments.
+     * <p>
+     * This implementation computes the complex half spectrum into temporary arrays.
+     * Subclasses compute it in their working memory and write only the result.
+     *
+     * @param spectrum kind of spectrum
+     * @param samples samples
+     * @param window window or {@code null}
+     * @param out array of length {@code N/2+1} the result is written to
+     */
+    void spectrum(final Spectrum spectrum, final float[] samples, final Window window, final float[] out) {
+        final float[] real = new float[getHalfSpectrumLength()];
+        final float[] imaginary = new float[getHalfSpectrumLength()];
+        if (window == null) {
+            transformToHalfSpectrum(samples, real, imaginary);
+        } else {
+            transformWindowedToHalfSpectrum(samples, window, real, imaginary);
+        }
+        spectrum.compute(real, imaginary, out, getHalfSpectrumLength());
+    }
+
+    /**
+     * Transform for many frames of real numbers at once, e.g. for a spectrogram.
+     * Frame {@code f} consists of the {@code N} samples starting at
+     * {@code offset + f * hopSize}, i.e. frames overlap, if the hop size is less than {@code N}.
+     * The spectrum of frame {@code f} is written to the output arrays starting at index {@code f * N}.
+     * <p>
+     * This implementation transforms one frame after the other.
+     * Subclasses may transform all frames at once with less overhead per frame.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param realOut array of length {@code frameCount * N} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * N} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input
+     * or offset, hop size or frame count are invalid
+     * @see #transformInto(float[], float[], float[])
+     */
+    public void transformFrames(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, numberOfSamples);
+        transformFrames(false, samples, offset, hopSize, frameCount, null, realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * Transform for many frames of real numbers at once, multiplying each frame
+     * with the given window. The samples array is not modified.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param window window of size {@code N}
+     * @param realOut array of length {@code frameCount * N} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * N} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input,
+     * offset, hop size or frame count are invalid or the window's size is not {@code N}
+     * @see #transformFrames(float[], int, int, int, float[], float[])
+     */
+    public void transformFrames(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                final Window window,
+                                final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        checkWindow(window);
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, numberOfSamples);
+        transformFrames(false, samples, offset, hopSize, frameCount, window.coefficients(), realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * Transform for many frames of real numbers at once, computing only the
+     * {@code N/2+1} non-redundant bins per frame, e.g. for a spectrogram.
+     * Frame {@code f} consists of the {@code N} samples starting at
+     * {@code offset + f * hopSize}. Its half spectrum is written to the output arrays
+     * starting at index {@code f * (N/2+1)}.
+     * <p>
+     * This implementation transforms one frame after the other.
+     * Subclasses may transform all frames at once with less overhead per frame.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param realOut array of length {@code frameCount * (N/2+1)} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * (N/2+1)} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input
+     * or offset, hop size or frame count are invalid
+     * @see #transformToHalfSpectrum(float[], float[], float[])
+     */
+    public void transformFramesToHalfSpectrum(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                              final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getHalfSpectrumLength());
+        transformFrames(true, samples, offset, hopSize, frameCount, null, realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * Transform for many frames of real numbers at once, computing only the
+     * {@code N/2+1} non-redundant bins per frame and multiplying each frame
+     * with the given window. The samples array is not modified.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param window window of size {@code N}
+     * @param realOut array of length {@code frameCount * (N/2+1)} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * (N/2+1)} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input,
+     * offset, hop size or frame count are invalid or the window's size is not {@code N}
+     * @see #transformFramesToHalfSpectrum(float[], int, int, int, float[], float[])
+     */
+    public void transformFramesToHalfSpectrum(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                              final Window window,
+                                              final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        checkWindow(window);
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getHalfSpectrumLength());
+        transformFrames(true, samples, offset, hopSize, frameCount, window.coefficients(), realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * Transforms frames of already verified arguments, writing the spectrum of frame {@code f}
+     * to the output arrays starting at index {@code outOffset + f * spectrumLength}.
+     * <p>
+     * This implementation transforms one frame after the other. Each frame is copied,
+     * multiplying it with the window while doing so.
+     *
+     * @param halfSpectrum whether to compute only the {@code N/2+1} non-redundant bins
+     * @param window window coefficients or {@code null}
+     * @param outOffset index of the first bin of the first frame in the output arrays
+     */
+    void transformFrames(final boolean halfSpectrum,
+                         final float[] samples, final int offset, final int hopSize, final int frameCount,
+                         final float[] window,
+                         final float[] realOut, final float[] imaginaryOut, final int outOffset) {
+        final int spectrumLength = halfSpectrum ? getHalfSpectrumLength() : numberOfSamples;
+        final float[] frame = new float[numberOfSamples];
+        final float[] real = new float[spectrumLength];
+        final float[] imaginary = new float[spectrumLength];
+        for (int f = 0; f < frameCount; f++) {
+            final int start = offset + f * hopSize;
+            if (window == null) {
+                System.arraycopy(samples, start, frame, 0, numberOfSamples);
+            } else {
+                for (int i = 0; i < numberOfSamples; i++) {
+                    frame[i] = samples[start + i] * window[i];
+                }
+            }
+            if (halfSpectrum) {
+                transformToHalfSpectrum(frame, real, imaginary);
+            } else {
+                transformInto(frame, real, imaginary);
+            }
+            System.arraycopy(real, 0, realOut, outOffset + f * spectrumLength, spectrumLength);
+            System.arraycopy(imaginary, 0, imaginaryOut, outOffset + f * spectrumLength, spectrumLength);
+        }
+    }
+
+    /**
+     * Perform inverse transform with double precision.
+     *
+     * @param real real part
+     * @param imaginary imaginary part
+     * @return two-dimensional array for the real and the imaginary parts
+     */
+    public abstract double[][] inverseTransform(double[] real, double[] imaginary) throws UnsupportedOperationException;
+
+    /**
+     * Transform for real numbers with double precision.
+     *
+     * @param real samples
+     * @return three-dimensional array, consisting of the real part, the imaginary, and the frequencies
+     */
+    public abstract double[][] transform(double[] real) throws UnsupportedOperationException;
+
+    /**
+     * Transform for complex numbers with double precision.
+     *
+     * @param real real part
+     * @param imaginary imaginary part
+     * @return three-dimensional array, consisting of the real part, the imaginary, and the frequencies
+     */
+    public abstract double[][] transform(double[] real, double[] imaginary) throws UnsupportedOperationException;
+
+    /**
+     * Perform inverse transform with double precision into caller-supplied arrays.
+     *
+     * @param real real part
+     * @param imaginary imaginary part
+     * @param realOut array of length {@code N} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short or an output array is also used as input
+     * @see #inverseTransformInto(float[], float[], float[], float[])
+     */
+    public abstract void inverseTransformInto(double[] real, double[] imaginary, double[] realOut, double[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Transform for real numbers with double precision into caller-supplied arrays.
+     *
+     * @param real samples
+     * @param realOut array of length {@code N} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short or an output array is also used as input
+     * @see #transformInto(float[], float[], float[])
+     */
+    public abstract void transformInto(double[] real, double[] realOut, double[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Transform for complex numbers with double precision into caller-supplied arrays.
+     *
+     * @param real real part
+     * @param imaginary imaginary part
+     * @param realOut array of length {@code N} the real part of the result is written to
+     * @param imaginaryOut array of length {@code N} the imaginary part of the result is written to
+     * @throws IllegalArgumentException if an array is too short or an output array is also used as input
+     * @see #transformInto(float[], float[], float[], float[])
+     */
+    public abstract void transformInto(double[] real, double[] imaginary, double[] realOut, double[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Verifies that the given in- and output arrays are suitable for
+     * this instance, i.e. that they are at least {@code N} long and that
+     * no output array is also used as input.
+     *
+     * @param realIn real input
+     * @param imaginaryIn imaginary input, may be {@code null}
+     * @param realOut real output
+     * @param imaginaryOut imaginary output
+     * @throws IllegalArgumentException if the arrays are not suitable
+     */
+    protected void checkArrays(final float[] realIn, final float[] imaginaryIn,
+                               final float[] realOut, final float[] imaginaryOut) {
+        checkLength("realIn", realIn);
+        if (imaginaryIn != null) checkLength("imaginaryIn", imaginaryIn);
+        checkLength("realOut", realOut);
+        checkLength("imaginaryOut", imaginaryOut);
+        if (realOut == imaginaryOut) {
+            throw new IllegalArgumentException("realOut and imaginaryOut must not be the same array");
+        }
+        if (realOut == realIn || realOut == imaginaryIn || imaginaryOut == realIn || imaginaryOut == imaginaryIn) {
+            throw new IllegalArgumentException("Output arrays must not also be used as input");
+        }
+    }
+
+    /**
+     * Verifies that the given double in- and output arrays are suitable for
+     * this instance.
+     *
+     * @param realIn real input
+     * @param imaginaryIn imaginary input, may be {@code null}
+     * @param realOut real output
+     * @param imaginaryOut imaginary output
+     * @throws IllegalArgumentException if the arrays are not suitable
+     * @see #checkArrays(float[], float[], float[], float[])
+     */
+    protected void checkArrays(final double[] realIn, final double[] imaginaryIn,
+                               final double[] realOut, final double[] imaginaryOut) {
+        checkLength("realIn", realIn);
+        if (imaginaryIn != null) checkLength("imaginaryIn", imaginaryIn);
+        checkLength("realOut", realOut);
+        checkLength("imaginaryOut", imaginaryOut);
+        if (realOut == imaginaryOut) {
+            throw new IllegalArgumentException("realOut and imaginaryOut must not be the same array");
+        }
+        if (realOut == realIn || realOut == imaginaryIn || imaginaryOut == realIn || imaginaryOut == imaginaryIn) {
+            throw new IllegalArgumentException("Output arrays must not also be used as input");
+        }
+    }
+
+    /**
+     * Verifies that the given arrays are suitable for a real-to-complex
+     * or complex-to-real transform for this instance, i.e. that the samples
+     * array is at least {@code N} long, that the spectrum arrays are at least
+     * {@code N/2+1} long and that no array is used twice.
+     *
+     * @param samples samples, i.e. real signal
+     * @param real real part of the half spectrum
+     * @param imaginary imaginary part of the half spectrum
+     * @throws IllegalArgumentException if the arrays are not suitable
+     */
+    protected void checkHalfSpectrumArrays(final float[] samples, final float[] real, final float[] imaginary) {
+        checkLength("samples", samples, numberOfSamples);
+        checkLength("real", real, getHalfSpectrumLength());
+        checkLength("imaginary", imaginary, getHalfSpectrumLength());
+        if (samples == real || samples == imaginary || real == imaginary) {
+            throw new IllegalArgumentException("Samples, real and imaginary must not be the same array");
+        }
+    }
+
+    /**
+     * Verifies that the given arrays are suitable for a magnitude, power or log power spectrum.
+     *
+     * @param samples samples, at least {@code N} long
+     * @param out output, at least {@code N/2+1} long
+     * @throws IllegalArgumentException if the arrays are not suitable
+     */
+    private void checkSpectrumArrays(final float[] samples, final float[] out) {
+        checkLength("samples", samples, numberOfSamples);
+        checkLength("out", out, getHalfSpectrumLength());
+        if (samples == out) {
+            throw new IllegalArgumentException("Samples and out must not be the same array");
+        }
+    }
+
+    /**
+     * Verifies that the given window is made for this instance's number of samples.
+     *
+     * @param window window
+     * @throws IllegalArgumentException if the window's size is not {@code N}
+     */
+    protected void checkWindow(final Window window) {
+        if (window == null) {
+            throw new NullPointerException("window must not be null");
+        }
+        if (window.getSize() != numberOfSamples) {
+            throw new IllegalArgumentException("Window size must be " + numberOfSamples + ": " + window.getSize());
+        }
+    }
+
+    /**
+     * Verifies that the given arrays, offset, hop size and frame count are suitable
+     * for a transform of many frames, i.e. that all frames lie within the samples array,
+     * that the output arrays can hold {@code frameCount} spectra of the given length
+     * and that no array is used twice.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param realOut real output
+     * @param imaginaryOut imaginary output
+     * @param spectrumLength number of values per frame in each output array
+     * @throws IllegalArgumentException if the arguments are not suitable
+     */
+    protected void checkFrames(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                               final float[] realOut, final float[] imaginaryOut, final int spectrumLength) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+        }
+        if (hopSize <= 0) {
+            throw new IllegalArgumentException("Hop size must be positive: " + hopSize);
+        }
+        if (frameCount < 0) {
+            throw new IllegalArgumentException("Frame count must not be negative: " + frameCount);
+        }
+        final long samplesNeeded = frameCount == 0 ? 0 : offset + (long) (frameCount - 1) * hopSize + numberOfSamples;
+        final long spectraNeeded = (long) frameCount * spectrumLength;
+        if (samplesNeeded > Integer.MAX_VALUE || spectraNeeded > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many frames: " + frameCount);
+        }
+        checkLength("samples", samples, (int) samplesNeeded);
+        checkLength("realOut", realOut, (int) spectraNeeded);
+        checkLength("imaginaryOut", imaginaryOut, (int) spectraNeeded);
+        if (samples == realOut || samples == imaginaryOut || realOut == imaginaryOut) {
+            throw new IllegalArgumentException("Samples, realOut and imaginaryOut must not be the same array");
+        }
+    }
+
+    private void checkLength(final String name, final float[] array) {
+        checkLength(name, array, numberOfSamples);
+    }
+
+    private void checkLength(final String name, final double[] array) {
+        if (array == null) {
+            throw new NullPointerException(name + " must not be null");
+        }
+        if (array.length < numberOfSamples) {
+            throw new IllegalArgumentException("Length of " + name + " must be at least "
+                + numberOfSamples + ": " + array.length);
+        }
+    }
+
+    private static void checkLength(final String name, final float[] array, final int minLength) {
+        if (array == null) {
+            throw new NullPointerException(name + " must not be null");
+        }
+        if (array.length < minLength) {
+            throw new IllegalArgumentException("Length of " + name + " must be at least "
+                + minLength + ": " + array.length);
+        }
+    }
+
+    /**
+     * Kinds of spectra computed from the complex half spectrum.
+     * The ordinal is passed to native code.
+     */
+    enum Spectrum {
+        MAGNITUDE, POWER, LOG_POWER;
+
+        /** {@code 10^(MIN_LOG_POWER/10)} */
+        static final float MIN_POWER = 1e-20f;
+
+        /**
+         * Computes this kind of spectrum from the given complex spectrum.
+         *
+         * @param real real part
+         * @param imaginary imaginary part
+         * @param out output
+         * @param length number of bins
+         */
+        void compute(final float[] real, final float[] imaginary, final float[] out, final int length) {
+            switch (this) {
+                case MAGNITUDE:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = (float) Math.sqrt(real[i] * real[i] + imaginary[i] * imaginary[i]);
+                    }
+                    break;
+                case POWER:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = real[i] * real[i] + imaginary[i] * imaginary[i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < length; i++) {
+                        final float power = real[i] * real[i] + imaginary[i] * imaginary[i];
+                        out[i] = (float) (10.0 * Math.log10(Math.max(MIN_POWER, power)));
+                    }
+                    break;
+            }
+        }
+    }
 }
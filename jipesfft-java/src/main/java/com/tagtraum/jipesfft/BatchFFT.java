@@ -0,0 +1,199 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Transforms large batches of independent frames on all threads of a {@link ForkJoinPool}.
+ * <p>
+ * A batch is split into ranges of consecutive frames, a few per thread, so that idle
+ * threads can steal work from busy ones. Each range is transformed with a single call
+ * to {@link FFT}, i.e. natively, if possible, and its spectra are written directly to
+ * their place in the caller-supplied output arrays. Results are therefore in frame order,
+ * no matter which thread computed them. All threads share the same read-only native plan,
+ * each uses its own scratch space.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see AbstractFFT#transformFrames(float[], int, int, int, float[], float[])
+ */
+public class BatchFFT implements AutoCloseable {
+
+    private final FFT fft;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a batch FFT that uses the common pool.
+     *
+     * @param numberOfSamples number of samples per frame
+     * @see ForkJoinPool#commonPool()
+     */
+    public BatchFFT(final int numberOfSamples) {
+        this(numberOfSamples, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a batch FFT.
+     *
+     * @param numberOfSamples number of samples per frame
+     * @param pool pool that runs the transforms
+     */
+    public BatchFFT(final int numberOfSamples, final ForkJoinPool pool) {
+        this.fft = new FFT(numberOfSamples);
+        this.pool = pool;
+    }
+
+    /**
+     * Number of samples per frame.
+     *
+     * @return number of samples
+     */
+    public int getNumberOfSamples() {
+        return fft.getNumberOfSamples();
+    }
+
+    /**
+     * Number of non-redundant bins per frame, i.e. {@code N/2+1}.
+     *
+     * @return {@code N/2+1}
+     */
+    public int getHalfSpectrumLength() {
+        return fft.getHalfSpectrumLength();
+    }
+
+    /**
+     * Transforms many frames of real numbers in parallel.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param realOut array of length {@code frameCount * N} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * N} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input
+     * or offset, hop size or frame count are invalid
+     * @see AbstractFFT#transformFrames(float[], int, int, int, float[], float[])
+     */
+    public void transformFrames(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                final float[] realOut, final float[] imaginaryOut) {
+        fft.checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getNumberOfSamples());
+        transformFrames(false, samples, offset, hopSize, frameCount, null, realOut, imaginaryOut);
+    }
+
+    /**
+     * Transforms many frames of real numbers in parallel, multiplying each frame
+     * with the given window.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param window window of size {@code N}
+     * @param realOut array of length {@code frameCount * N} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * N} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input,
+     * offset, hop size or frame count are invalid or the window's size is not {@code N}
+     * @see AbstractFFT#transformFrames(float[], int, int, int, Window, float[], float[])
+     */
+    public void transformFrames(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                final Window window, final float[] realOut, final float[] imaginaryOut) {
+        fft.checkWindow(window);
+        fft.checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getNumberOfSamples());
+        transformFrames(false, samples, offset, hopSize, frameCount, window.coefficients(), realOut, imaginaryOut);
+    }
+
+    /**
+     * Transforms many frames of real numbers in parallel, computing only the
+     * {@code N/2+1} non-redundant bins per frame.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param realOut array of length {@code frameCount * (N/2+1)} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * (N/2+1)} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input
+     * or offset, hop size or frame count are invalid
+     * @see AbstractFFT#transformFramesToHalfSpectrum(float[], int, int, int, float[], float[])
+     */
+    public void transformFramesToHalfSpectrum(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                              final float[] realOut, final float[] imaginaryOut) {
+        fft.checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getHalfSpectrumLength());
+        transformFrames(true, samples, offset, hopSize, frameCount, null, realOut, imaginaryOut);
+    }
+
+    /**
+     * Transforms many frames of real numbers in parallel, computing only the
+     * {@code N/2+1} non-redundant bins per frame and multiplying each frame
+     * with the given window.
+     *
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param window window of size {@code N}
+     * @param realOut array of length {@code frameCount * (N/2+1)} the real parts of the spectra are written to
+     * @param imaginaryOut array of length {@code frameCount * (N/2+1)} the imaginary parts of the spectra are written to
+     * @throws IllegalArgumentException if an array is too short, an output array is also used as input,
+     * offset, hop size or frame count are invalid or the window's size is not {@code N}
+     * @see AbstractFFT#transformFramesToHalfSpectrum(float[], int, int, int, Window, float[], float[])
+     */
+    public void transformFramesToHalfSpectrum(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                              final Window window, final float[] realOut, final float[] imaginaryOut) {
+        fft.checkWindow(window);
+        fft.checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getHalfSpectrumLength());
+        transformFrames(true, samples, offset, hopSize, frameCount, window.coefficients(), realOut, imaginaryOut);
+    }
+
+    /**
+     * Transforms frames that are stored in separate arrays in parallel, computing only the
+     * {@code N/2+1} non-redundant bins per frame.
+     *
+     * @param frames frames of {@code N} samples each
+     * @param realOut one array of at least {@code N/2+1} per frame, the real parts of its spectrum are written to
+     * @param imaginaryOut one array of at least {@code N/2+1} per frame, the imaginary parts of its spectrum are written to
+     * @throws IllegalArgumentException if there are fewer output arrays than frames or an array is too short
+     * @see AbstractFFT#transformToHalfSpectrum(float[], float[], float[])
+     */
+    public void transformToHalfSpectrum(final float[][] frames, final float[][] realOut, final float[][] imaginaryOut) {
+        if (realOut.length < frames.length || imaginaryOut.length < frames.length) {
+            throw new IllegalArgumentException("Number of output arrays must be at least the number of frames " + frames.length);
+        }
+        RangeTask.invoke(pool, frames.length, 1, (from, to) -> {
+            for (int f = from; f < to; f++) {
+                fft.transformToHalfSpectrum(frames[f], realOut[f], imaginaryOut[f]);
+            }
+        });
+    }
+
+    private void transformFrames(final boolean halfSpectrum,
+                                 final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                 final float[] window, final float[] realOut, final float[] imaginaryOut) {
+        final int spectrumLength = halfSpectrum ? getHalfSpectrumLength() : getNumberOfSamples();
+        RangeTask.invoke(pool, frameCount, 1, (from, to) ->
+            fft.transformFrames(halfSpectrum, samples, offset + from * hopSize, hopSize, to - from,
+                window, realOut, imaginaryOut, from * spectrumLength));
+    }
+
+    /**
+     * Releases the underlying {@link FFT}.
+     */
+    @Override
+    public void close() {
+        fft.close();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchFFT{" +
+            "N=" + getNumberOfSamples() +
+            ", parallelism=" + pool.getParallelism() +
+            '}';
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.Arrays;
+
+/**
+ * FFT-based linear convolution and cross-correlation.
+ * <p>
+ * An instance holds the spectrum of a kernel, e.g. an FIR filter or a query fingerprint,
+ * computed once and reused for every block of every signal. Signals of arbitrary
+ * length are processed block by block with the overlap-save method, so that
+ * the cost is {@code O(N log M)} instead of {@code O(N M)} for direct convolution of
+ * {@code N} samples with {@code M} kernel taps.
+ * <p>
+ * For two arrays of similar length, use the one-shot methods
+ * {@link #convolve(float[], float[])} and {@link #correlate(float[], float[])}, which
+ * zero-pad both to the next power of two.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class Convolver implements AutoCloseable {
+
+    private final int kernelLength;
+    private final int fftSize;
+    /** Number of output samples per block. */
+    private final int hopSize;
+    private final FFT fft;
+    private final float[] kernelReal;
+    private final float[] kernelImaginary;
+
+    /**
+     * Creates a convolver with an FFT size of four times the kernel length,
+     * rounded up to a power of two.
+     *
+     * @param kernel kernel, copied
+     * @throws IllegalArgumentException if the kernel is empty
+     */
+    public Convolver(final float[] kernel) {
+        this(kernel, AbstractFFT.nextPowerOfTwo(Math.max(16, 4 * kernel.length)));
+    }
+
+    /**
+     * Creates a convolver.
+     *
+     * @param kernel kernel, copied
+     * @param fftSize block size of the overlap-save method, should be a power of 2.
+     *                Each block yields {@code fftSize - kernel.length + 1} output samples.
+     * @throws IllegalArgumentException if the kernel is empty or longer than the FFT size
+     */
+    public Convolver(final float[] kernel, final int fftSize) {
+        if (kernel.length == 0) {
+            throw new IllegalArgumentException("Kernel must not be empty");
+        }
+        if (fftSize < kernel.length) {
+            throw new IllegalArgumentException("FFT size must be at least the kernel length " + kernel.length + ": " + fftSize);
+        }
+        this.kernelLength = kernel.length;
+        this.fftSize = fftSize;
+        this.hopSize = fftSize - kernel.length + 1;
+        this.fft = new FFT(fftSize);
+        this.kernelReal = new float[fft.getHalfSpectrumLength()];
+        this.kernelImaginary = new float[fft.getHalfSpectrumLength()];
+        fft.transformToHalfSpectrum(Arrays.copyOf(kernel, fftSize), kernelReal, kernelImaginary);
+    }
+
+    /**
+     * Number of kernel taps.
+     *
+     * @return kernel length
+     */
+    public int getKernelLength() {
+        return kernelLength;
+    }
+
+    /**
+     * Block size of the overlap-save method.
+     *
+     * @return FFT size
+     */
+    public int getFFTSize() {
+        return fftSize;
+    }
+
+    /**
+     * Full linear convolution of the given signal with the kernel, i.e.
+     * {@code out[n] = sum_k kernel[k] * signal[n - k]}.
+     *
+     * @param signal signal
+     * @return {@code signal.length + kernelLength - 1} samples
+     */
+    public float[] convolve(final float[] signal) {
+        return overlapSave(signal, false);
+    }
+
+    /**
+     * Full cross-correlation of the given signal with the kernel, i.e.
+     * {@code out[j] = sum_n signal[n + j - (kernelLength - 1)] * kernel[n]}.
+     * Index {@code kernelLength - 1} corresponds to lag 0.
+     *
+     * @param signal signal
+     * @return {@code signal.length + kernelLength - 1} samples
+     */
+    public float[] correlate(final float[] signal) {
+        return overlapSave(signal, true);
+    }
+
+    private float[] overlapSave(final float[] signal, final boolean correlate) {
+        final float[] out = new float[signal.length + kernelLength - 1];
+        final float[] block = new float[fftSize];
+        final float[] real = new float[kernelReal.length];
+        final float[] imaginary = new float[kernelReal.length];
+        // convolution results start after the kernelLength - 1 wrapped-around samples,
+        // correlation results end before them
+        final int first = correlate ? 0 : kernelLength - 1;
+        for (int start = 0; start < out.length; start += hopSize) {
+            // block of signal samples [start - (kernelLength - 1), start + hopSize), zero outside the signal
+            final int from = start - (kernelLength - 1);
+            final int lo = Math.max(0, from);
+            final int hi = Math.min(signal.length, from + fftSize);
+            Arrays.fill(block, 0f);
+            if (hi > lo) {
+                System.arraycopy(signal, lo, block, lo - from, hi - lo);
+            }
+            fft.transformToHalfSpectrum(block, real, imaginary);
+            multiply(real, imaginary, kernelReal, kernelImaginary, correlate);
+            fft.inverseTransformFromHalfSpectrum(real, imaginary, block);
+            System.arraycopy(block, first, out, start, Math.min(hopSize, out.length - start));
+        }
+        return out;
+    }
+
+    /**
+     * Full linear convolution of two arrays, i.e. {@code out[n] = sum_k b[k] * a[n - k]},
+     * computed with one FFT of the next power of two.
+     *
+     * @param a first array
+     * @param b second array
+     * @return {@code a.length + b.length - 1} samples
+     * @throws IllegalArgumentException if an array is empty
+     */
+    public static float[] convolve(final float[] a, final float[] b) {
+        return oneShot(a, b, false);
+    }
+
+    /**
+     * Full cross-correlation of two arrays, i.e.
+     * {@code out[j] = sum_n a[n + j - (b.length - 1)] * b[n]},
+     * computed with one FFT of the next power of two.
+     * Index {@code b.length - 1} corresponds to lag 0.
+     *
+     * @param a first array
+     * @param b second array
+     * @return {@code a.length + b.length - 1} samples
+     * @throws IllegalArgumentException if an array is empty
+     */
+    public static float[] correlate(final float[] a, final float[] b) {
+        return oneShot(a, b, true);
+    }
+
+    private static float[] oneShot(final float[] a, final float[] b, final boolean correlate) {
+        if (a.length == 0 || b.length == 0) {
+            throw new IllegalArgumentException("Arrays must not be empty");
+        }
+        final int length = a.length + b.length - 1;
+        // large enough to avoid circular wrap-around
+        final int size = AbstractFFT.nextPowerOfTwo(Math.max(4, length));
+        try (final FFT fft = new FFT(size)) {
+            final int bins = fft.getHalfSpectrumLength();
+            final float[] aReal = new float[bins];
+            final float[] aImaginary = new float[bins];
+            final float[] bReal = new float[bins];
+            final float[] bImaginary = new float[bins];
+            fft.transformToHalfSpectrum(Arrays.copyOf(a, size), aReal, aImaginary);
+            fft.transformToHalfSpectrum(Arrays.copyOf(b, size), bReal, bImaginary);
+            multiply(aReal, aImaginary, bReal, bImaginary, correlate);
+            final float[] circular = new float[size];
+            fft.inverseTransformFromHalfSpectrum(aReal, aImaginary, circular);
+            if (!correlate) {
+                return Arrays.copyOf(circular, length);
+            }
+            // negative lags are at the end of the circular result
+            final float[] out = new float[length];
+            System.arraycopy(circular, size - (b.length - 1), out, 0, b.length - 1);
+            System.arraycopy(circular, 0, out, b.length - 1, a.length);
+            return out;
+        }
+    }
+
+    /**
+     * Multiplies a spectrum in place with another one or its complex conjugate.
+     */
+    private static void multiply(final float[] real, final float[] imaginary,
+                                 final float[] otherReal, final float[] otherImaginary, final boolean conjugate) {
+        final float sign = conjugate ? -1f : 1f;
+        for (int i = 0; i < real.length; i++) {
+            final float re = real[i];
+            final float im = imaginary[i];
+            final float otherRe = otherReal[i];
+            final float otherIm = sign * otherImaginary[i];
+            real[i] = re * otherRe - im * otherIm;
+            imaginary[i] = re * otherIm + im * otherRe;
+        }
+    }
+
+    /**
+     * Releases the underlying {@link FFT}.
+     */
+    @Override
+    public void close() {
+        fft.close();
+    }
+
+    @Override
+    public String toString() {
+        return "Convolver{" +
+            "kernelLength=" + kernelLength +
+            ", fftSize=" + fftSize +
+            '}';
+    }
+}
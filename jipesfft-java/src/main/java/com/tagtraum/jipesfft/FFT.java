@@ -7,13 +7,33 @@
 package com.tagtraum.jipesfft;
 
 import java.lang.ref.Cleaner;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Native implementation of FFT for a specific number of samples.
  * Uses {@link PureJavaFFT} as fallback for some cases.
- * An instance may be re-used for efficiency, but is not necessarily thread-safe.
+ * If the optional {@code jipesfft-vector} artifact is present and the module
+ * {@code jdk.incubator.vector} is resolved (Java 17+), its SIMD-accelerated
+ * subclass of {@link PureJavaFFT} is used as fallback instead.
+ * Instances are thread-safe, i.e. one instance may be used by many threads at once.
+ * Native plans are cached and shared by all instances of the same size,
+ * so creating an instance is cheap, once a plan for its size exists.
+ * <p>
+ * Besides arrays, samples may also be passed as {@link FloatBuffer}s or {@link ByteBuffer}s.
+ * If those buffers are direct and use the platform's native byte order,
+ * the native code operates on their memory without copying anything.
+ * Input and output buffers must not share memory.
+ * Memory segments can be passed as well by viewing them as byte buffers,
+ * e.g. {@code segment.asByteBuffer().order(ByteOrder.nativeOrder())}.
+ * <p>
+ * How many transforms are computed natively or by the Java fallback, and how long
+ * they take, can be monitored via JMX, see {@link FFTMetricsMXBean}.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
@@ -31,86 +51,873 @@ public class FFT extends AbstractFFT {
         }
     }
 
+    private static final String VECTOR_FFT_CLASS = "com.tagtraum.jipesfft.vector.VectorFFT";
+    private static final Constructor<? extends PureJavaFFT> vectorFFTConstructor = findVectorFFTConstructor();
     private static final Cleaner cleaner = Cleaner.create();
+    /** Per-thread scratch space for native half spectrum transforms. */
+    private static final ThreadLocal<float[]> SCRATCH = new ThreadLocal<>();
     private final Cleaner.Cleanable cleanable;
 
-    private PureJavaFFT javaFFT;
+    private volatile PureJavaFFT javaFFT;
+    private final FFTPlan plan;
     private final long pointer;
 
     /**
      * Constructor for a given number of samples.
      *
-     * @param numberOfSamples number of samples you intend to transform, must be a power of two
+     * @param numberOfSamples number of samples you intend to transform.
+     *                        Sizes that are not a power of two are handled by the Java implementation.
      */
     public FFT(final int numberOfSamples) {
         super(numberOfSamples);
         if (usePureJavaFFT()) {
+            this.plan = null;
             this.pointer = 0;
             this.cleanable = null;
         } else {
-            this.pointer = init(numberOfSamples);
-            this.cleanable = cleaner.register(this, new Destroyer(this.pointer));
+            this.plan = FFTPlan.acquire(numberOfSamples);
+            this.pointer = plan.getPointer();
+            this.cleanable = cleaner.register(this, new Releaser(this.plan));
         }
     }
 
+    /**
+     * Indicates whether the native library was loaded.
+     *
+     * @return true, if native transforms are available
+     */
+    static boolean isNativeAvailable() {
+        return nativeAvailable;
+    }
+
     private boolean usePureJavaFFT() {
-        // TODO: check power of 2?
         final int numberOfSamples = getNumberOfSamples();
-        return !nativeAvailable || numberOfSamples < 4 || numberOfSamples > 32768;
+        // native code only supports powers of 2
+        return !nativeAvailable || numberOfSamples < 4 || !isPowerOfTwo(numberOfSamples);
     }
 
     private PureJavaFFT getPureJavaFFT() {
-        if (javaFFT == null) {
-            // instantiate lazily to avoid initialization overhead
-            javaFFT = new PureJavaFFT(getNumberOfSamples());
+        PureJavaFFT fft = javaFFT;
+        if (fft == null) {
+            // instantiate lazily to avoid initialization overhead,
+            // racing threads may create more than one, which is harmless
+            fft = createPureJavaFFT(getNumberOfSamples());
+            javaFFT = fft;
+        }
+        return fft;
+    }
+
+    private static PureJavaFFT createPureJavaFFT(final int numberOfSamples) {
+        if (vectorFFTConstructor != null) {
+            try {
+                return vectorFFTConstructor.newInstance(numberOfSamples);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOG.log(Level.WARNING, "Failed to instantiate " + VECTOR_FFT_CLASS + ". Will use scalar Java fallback.", e);
+            }
+        }
+        return new PureJavaFFT(numberOfSamples);
+    }
+
+    private static Constructor<? extends PureJavaFFT> findVectorFFTConstructor() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return Class.forName(VECTOR_FFT_CLASS).asSubclass(PureJavaFFT.class).getConstructor(int.class);
+        } catch (ClassNotFoundException e) {
+            // jipesfft-vector is optional
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOG.log(Level.WARNING, "Failed to load " + VECTOR_FFT_CLASS + ". Will use scalar Java fallback.", e);
+            return null;
         }
-        return javaFFT;
     }
 
     @Override
     public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
         if (usePureJavaFFT()) {
-            return getPureJavaFFT().inverseTransform(real, imaginary);
+            final long start = FFTMetrics.start();
+            final float[][] result = getPureJavaFFT().inverseTransform(real, imaginary);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return result;
         }
-        return FFT.realFFT(pointer, false, real.length, real, imaginary);
+        final float[][] result = new float[2][getNumberOfSamples()];
+        inverseTransformInto(real, imaginary, result[REAL], result[IMAGINARY]);
+        return result;
     }
 
     @Override
     public float[][] transform(final float[] real) throws UnsupportedOperationException {
         if (usePureJavaFFT()) {
-            return getPureJavaFFT().transform(real);
+            final long start = FFTMetrics.start();
+            final float[][] result = getPureJavaFFT().transform(real);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return result;
         }
         final float[][] result = new float[3][];
-        final float[][] nativeResult = FFT.realFFT(pointer, true, real.length, real, null);
-        result[0] = nativeResult[0];
-        result[1] = nativeResult[1];
-        result[2] = getFrequencies();
+        result[REAL] = new float[getNumberOfSamples()];
+        result[IMAGINARY] = new float[getNumberOfSamples()];
+        transformInto(real, result[REAL], result[IMAGINARY]);
+        result[FREQUENCY] = getFrequencies();
         return result;
     }
 
     @Override
     public float[][] transform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
-        // TODO: native version!
-        return getPureJavaFFT().transform(real, imaginary);
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            final float[][] result = getPureJavaFFT().transform(real, imaginary);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return result;
+        }
+        final float[][] result = new float[3][];
+        result[REAL] = new float[getNumberOfSamples()];
+        result[IMAGINARY] = new float[getNumberOfSamples()];
+        transformInto(real, imaginary, result[REAL], result[IMAGINARY]);
+        result[FREQUENCY] = getFrequencies();
+        return result;
+    }
+
+    @Override
+    public void inverseTransformInto(final float[] real, final float[] imaginary,
+                                     final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().inverseTransformInto(real, imaginary, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        final long start = FFTMetrics.start();
+        FFT.realFFT(pointer, false, getNumberOfSamples(), real, imaginary, realOut, imaginaryOut);
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 4L * Float.BYTES * getNumberOfSamples(), start);
+    }
+
+    @Override
+    public void transformInto(final float[] real, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformInto(real, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkArrays(real, null, realOut, imaginaryOut);
+        final long start = FFTMetrics.start();
+        FFT.realFFT(pointer, true, getNumberOfSamples(), real, null, realOut, imaginaryOut);
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 3L * Float.BYTES * getNumberOfSamples(), start);
+    }
+
+    @Override
+    public void transformInto(final float[] real, final float[] imaginary,
+                              final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformInto(real, imaginary, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        final long start = FFTMetrics.start();
+        FFT.complexFFT(pointer, getNumberOfSamples(), real, imaginary, realOut, imaginaryOut);
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 4L * Float.BYTES * getNumberOfSamples(), start);
+    }
+
+    @Override
+    public void transformToHalfSpectrum(final float[] real, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformToHalfSpectrum(real, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkHalfSpectrumArrays(real, realOut, imaginaryOut);
+        final long start = FFTMetrics.start();
+        FFT.realHalfFFT(pointer, true, getNumberOfSamples(), real, null, realOut, imaginaryOut, scratch(3 * getNumberOfSamples()));
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, (long) Float.BYTES * (getNumberOfSamples() + 2 * getHalfSpectrumLength()), start);
+    }
+
+    @Override
+    public void inverseTransformFromHalfSpectrum(final float[] real, final float[] imaginary, final float[] out) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().inverseTransformFromHalfSpectrum(real, imaginary, out);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkHalfSpectrumArrays(out, real, imaginary);
+        final long start = FFTMetrics.start();
+        FFT.realHalfFFT(pointer, false, getNumberOfSamples(), real, imaginary, out, null, scratch(3 * getNumberOfSamples()));
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, (long) Float.BYTES * (getNumberOfSamples() + 2 * getHalfSpectrumLength()), start);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The window is applied while the native code copies the samples.
+     */
+    @Override
+    public void transformWindowedInto(final float[] real, final Window window,
+                                      final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformWindowedInto(real, window, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkWindow(window);
+        checkArrays(real, null, realOut, imaginaryOut);
+        realFFTFrames(true, real, 0, getNumberOfSamples(), 1, window.coefficients(), realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The window is applied while the native code copies the samples.
+     */
+    @Override
+    public void transformWindowedToHalfSpectrum(final float[] real, final Window window,
+                                                final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformWindowedToHalfSpectrum(real, window, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkWindow(window);
+        checkHalfSpectrumArrays(real, realOut, imaginaryOut);
+        realFFTFrames(false, real, 0, getNumberOfSamples(), 1, window.coefficients(), realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * Computes the spectrum natively, only the result is written to the Java array.
+     */
+    @Override
+    void spectrum(final Spectrum spectrum, final float[] samples, final Window window, final float[] out) {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().spectrum(spectrum, samples, window, out);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        final long start = FFTMetrics.start();
+        FFT.realSpectrum(pointer, spectrum.ordinal(), getNumberOfSamples(), samples,
+            window == null ? null : window.coefficients(), out, scratch(2 * getNumberOfSamples()));
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1,
+            (long) Float.BYTES * ((window == null ? 1 : 2) * getNumberOfSamples() + getHalfSpectrumLength()), start);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All frames are transformed in a single native call. Note that the
+     * arrays are pinned for the duration of that call, which may delay
+     * garbage collection, if there are very many frames.
+     */
+    @Override
+    public void transformFrames(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            super.transformFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut);
+            return;
+        }
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getNumberOfSamples());
+        realFFTFrames(true, samples, offset, hopSize, frameCount, null, realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All frames are transformed in a single native call, which applies the
+     * window while copying the samples.
+     */
+    @Override
+    public void transformFrames(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                final Window window,
+                                final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            super.transformFrames(samples, offset, hopSize, frameCount, window, realOut, imaginaryOut);
+            return;
+        }
+        checkWindow(window);
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getNumberOfSamples());
+        realFFTFrames(true, samples, offset, hopSize, frameCount, window.coefficients(), realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All frames are transformed in a single native call. Note that the
+     * arrays are pinned for the duration of that call, which may delay
+     * garbage collection, if there are very many frames.
+     */
+    @Override
+    public void transformFramesToHalfSpectrum(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                              final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            super.transformFramesToHalfSpectrum(samples, offset, hopSize, frameCount, realOut, imaginaryOut);
+            return;
+        }
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getHalfSpectrumLength());
+        realFFTFrames(false, samples, offset, hopSize, frameCount, null, realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All frames are transformed in a single native call, which applies the
+     * window while copying the samples.
+     */
+    @Override
+    public void transformFramesToHalfSpectrum(final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                              final Window window,
+                                              final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            super.transformFramesToHalfSpectrum(samples, offset, hopSize, frameCount, window, realOut, imaginaryOut);
+            return;
+        }
+        checkWindow(window);
+        checkFrames(samples, offset, hopSize, frameCount, realOut, imaginaryOut, getHalfSpectrumLength());
+        realFFTFrames(false, samples, offset, hopSize, frameCount, window.coefficients(), realOut, imaginaryOut, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All frames are transformed in a single native call.
+     */
+    @Override
+    void transformFrames(final boolean halfSpectrum,
+                         final float[] samples, final int offset, final int hopSize, final int frameCount,
+                         final float[] window,
+                         final float[] realOut, final float[] imaginaryOut, final int outOffset) {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformFrames(halfSpectrum, samples, offset, hopSize, frameCount, window, realOut, imaginaryOut, outOffset);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), frameCount, start);
+            return;
+        }
+        realFFTFrames(!halfSpectrum, samples, offset, hopSize, frameCount, window, realOut, imaginaryOut, outOffset);
+    }
+
+    private void realFFTFrames(final boolean fullSpectrum,
+                               final float[] samples, final int offset, final int hopSize, final int frameCount,
+                               final float[] window, final float[] realOut, final float[] imaginaryOut, final int outOffset) {
+        final long start = FFTMetrics.start();
+        FFT.realFFTFrames(pointer, fullSpectrum, getNumberOfSamples(), samples, offset, hopSize, frameCount,
+            window, realOut, imaginaryOut, outOffset, scratch(2 * getNumberOfSamples()));
+        if (FFTMetrics.ENABLED && frameCount > 0) {
+            final int spectrumLength = fullSpectrum ? getNumberOfSamples() : getHalfSpectrumLength();
+            final long samplesRead = (long) (frameCount - 1) * hopSize + getNumberOfSamples();
+            final long windowRead = window == null ? 0 : getNumberOfSamples();
+            final long binsWritten = 2L * frameCount * spectrumLength;
+            FFTMetrics.nativeTransforms(getNumberOfSamples(), frameCount,
+                Float.BYTES * (samplesRead + windowRead + binsWritten), start);
+        }
+    }
+
+    @Override
+    public double[][] inverseTransform(final double[] real, final double[] imaginary) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            final double[][] result = getPureJavaFFT().inverseTransform(real, imaginary);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return result;
+        }
+        final double[][] result = new double[2][getNumberOfSamples()];
+        inverseTransformInto(real, imaginary, result[REAL], result[IMAGINARY]);
+        return result;
+    }
+
+    @Override
+    public double[][] transform(final double[] real) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            final double[][] result = getPureJavaFFT().transform(real);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return result;
+        }
+        final double[][] result = new double[3][];
+        result[REAL] = new double[getNumberOfSamples()];
+        result[IMAGINARY] = new double[getNumberOfSamples()];
+        transformInto(real, result[REAL], result[IMAGINARY]);
+        result[FREQUENCY] = getDoubleFrequencies();
+        return result;
+    }
+
+    @Override
+    public double[][] transform(final double[] real, final double[] imaginary) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            final double[][] result = getPureJavaFFT().transform(real, imaginary);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return result;
+        }
+        final double[][] result = new double[3][];
+        result[REAL] = new double[getNumberOfSamples()];
+        result[IMAGINARY] = new double[getNumberOfSamples()];
+        transformInto(real, imaginary, result[REAL], result[IMAGINARY]);
+        result[FREQUENCY] = getDoubleFrequencies();
+        return result;
+    }
+
+    @Override
+    public void inverseTransformInto(final double[] real, final double[] imaginary,
+                                     final double[] realOut, final double[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().inverseTransformInto(real, imaginary, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        plan.initDouble();
+        final long start = FFTMetrics.start();
+        FFT.realFFTDouble(pointer, false, getNumberOfSamples(), real, imaginary, realOut, imaginaryOut);
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 4L * Double.BYTES * getNumberOfSamples(), start);
+    }
+
+    @Override
+    public void transformInto(final double[] real, final double[] realOut, final double[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformInto(real, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkArrays(real, null, realOut, imaginaryOut);
+        plan.initDouble();
+        final long start = FFTMetrics.start();
+        FFT.realFFTDouble(pointer, true, getNumberOfSamples(), real, null, realOut, imaginaryOut);
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 3L * Double.BYTES * getNumberOfSamples(), start);
+    }
+
+    @Override
+    public void transformInto(final double[] real, final double[] imaginary,
+                              final double[] realOut, final double[] imaginaryOut) throws UnsupportedOperationException {
+        if (usePureJavaFFT()) {
+            final long start = FFTMetrics.start();
+            getPureJavaFFT().transformInto(real, imaginary, realOut, imaginaryOut);
+            FFTMetrics.javaTransforms(getNumberOfSamples(), 1, start);
+            return;
+        }
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        plan.initDouble();
+        final long start = FFTMetrics.start();
+        FFT.complexFFTDouble(pointer, getNumberOfSamples(), real, imaginary, realOut, imaginaryOut);
+        FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 4L * Double.BYTES * getNumberOfSamples(), start);
+    }
+
+    /**
+     * Perform inverse transform, reading from and writing to buffers.
+     * {@code N} values are read starting at each input buffer's position
+     * and written starting at each output buffer's position.
+     * Buffer positions are not changed.
+     * <p>
+     * If all buffers are direct and in native byte order, no data is copied.
+     *
+     * @param real real part
+     * @param imaginary imaginary part, {@code null} is treated as 0
+     * @param realOut buffer the real part of the result is written to
+     * @param imaginaryOut buffer the imaginary part of the result is written to
+     * @throws IllegalArgumentException if a buffer has fewer than {@code N} values remaining
+     * @throws ReadOnlyBufferException if an output buffer is read-only
+     */
+    public void inverseTransformInto(final FloatBuffer real, final FloatBuffer imaginary,
+                                     final FloatBuffer realOut, final FloatBuffer imaginaryOut) {
+        checkBuffers(real, imaginary, realOut, imaginaryOut);
+        if (!usePureJavaFFT() && isDirectAndNative(real, imaginary, realOut, imaginaryOut)) {
+            final long start = FFTMetrics.start();
+            FFT.realFFTDirect(pointer, false, getNumberOfSamples(),
+                real, real.position(), imaginary, imaginary == null ? 0 : imaginary.position(),
+                realOut, realOut.position(), imaginaryOut, imaginaryOut.position());
+            FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 0, start);
+        } else {
+            final float[] realOutArray = new float[getNumberOfSamples()];
+            final float[] imaginaryOutArray = new float[getNumberOfSamples()];
+            inverseTransformInto(toArray(real), toArray(imaginary), realOutArray, imaginaryOutArray);
+            realOut.duplicate().put(realOutArray);
+            imaginaryOut.duplicate().put(imaginaryOutArray);
+        }
+    }
+
+    /**
+     * Transform for real numbers, reading from and writing to buffers.
+     * {@code N} values are read starting at the input buffer's position
+     * and written starting at each output buffer's position.
+     * Buffer positions are not changed.
+     * <p>
+     * If all buffers are direct and in native byte order, no data is copied.
+     *
+     * @param real samples
+     * @param realOut buffer the real part of the result is written to
+     * @param imaginaryOut buffer the imaginary part of the result is written to
+     * @throws IllegalArgumentException if a buffer has fewer than {@code N} values remaining
+     * @throws ReadOnlyBufferException if an output buffer is read-only
+     */
+    public void transformInto(final FloatBuffer real, final FloatBuffer realOut, final FloatBuffer imaginaryOut) {
+        checkBuffers(real, null, realOut, imaginaryOut);
+        if (!usePureJavaFFT() && isDirectAndNative(real, null, realOut, imaginaryOut)) {
+            final long start = FFTMetrics.start();
+            FFT.realFFTDirect(pointer, true, getNumberOfSamples(),
+                real, real.position(), null, 0,
+                realOut, realOut.position(), imaginaryOut, imaginaryOut.position());
+            FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 0, start);
+        } else {
+            final float[] realOutArray = new float[getNumberOfSamples()];
+            final float[] imaginaryOutArray = new float[getNumberOfSamples()];
+            transformInto(toArray(real), realOutArray, imaginaryOutArray);
+            realOut.duplicate().put(realOutArray);
+            imaginaryOut.duplicate().put(imaginaryOutArray);
+        }
+    }
+
+    /**
+     * Transform for complex numbers, reading from and writing to buffers.
+     * {@code N} values are read starting at each input buffer's position
+     * and written starting at each output buffer's position.
+     * Buffer positions are not changed.
+     * <p>
+     * If all buffers are direct and in native byte order, no data is copied.
+     *
+     * @param real real part
+     * @param imaginary imaginary part, {@code null} is treated as 0
+     * @param realOut buffer the real part of the result is written to
+     * @param imaginaryOut buffer the imaginary part of the result is written to
+     * @throws IllegalArgumentException if a buffer has fewer than {@code N} values remaining
+     * @throws ReadOnlyBufferException if an output buffer is read-only
+     */
+    public void transformInto(final FloatBuffer real, final FloatBuffer imaginary,
+                              final FloatBuffer realOut, final FloatBuffer imaginaryOut) {
+        checkBuffers(real, imaginary, realOut, imaginaryOut);
+        if (!usePureJavaFFT() && isDirectAndNative(real, imaginary, realOut, imaginaryOut)) {
+            final long start = FFTMetrics.start();
+            FFT.complexFFTDirect(pointer, getNumberOfSamples(),
+                real, real.position(), imaginary, imaginary == null ? 0 : imaginary.position(),
+                realOut, realOut.position(), imaginaryOut, imaginaryOut.position());
+            FFTMetrics.nativeTransforms(getNumberOfSamples(), 1, 0, start);
+        } else {
+            final float[] realOutArray = new float[getNumberOfSamples()];
+            final float[] imaginaryOutArray = new float[getNumberOfSamples()];
+            transformInto(toArray(real), toArray(imaginary), realOutArray, imaginaryOutArray);
+            realOut.duplicate().put(realOutArray);
+            imaginaryOut.duplicate().put(imaginaryOutArray);
+        }
+    }
+
+    /**
+     * Perform inverse transform, reading from and writing to byte buffers
+     * holding {@code float} values in the buffers' byte order.
+     *
+     * @param real real part
+     * @param imaginary imaginary part, {@code null} is treated as 0
+     * @param realOut buffer the real part of the result is written to
+     * @param imaginaryOut buffer the imaginary part of the result is written to
+     * @see #inverseTransformInto(FloatBuffer, FloatBuffer, FloatBuffer, FloatBuffer)
+     */
+    public void inverseTransformInto(final ByteBuffer real, final ByteBuffer imaginary,
+                                     final ByteBuffer realOut, final ByteBuffer imaginaryOut) {
+        inverseTransformInto(real.asFloatBuffer(), imaginary == null ? null : imaginary.asFloatBuffer(),
+            realOut.asFloatBuffer(), imaginaryOut.asFloatBuffer());
+    }
+
+    /**
+     * Transform for real numbers, reading from and writing to byte buffers
+     * holding {@code float} values in the buffers' byte order.
+     *
+     * @param real samples
+     * @param realOut buffer the real part of the result is written to
+     * @param imaginaryOut buffer the imaginary part of the result is written to
+     * @see #transformInto(FloatBuffer, FloatBuffer, FloatBuffer)
+     */
+    public void transformInto(final ByteBuffer real, final ByteBuffer realOut, final ByteBuffer imaginaryOut) {
+        transformInto(real.asFloatBuffer(), realOut.asFloatBuffer(), imaginaryOut.asFloatBuffer());
+    }
+
+    /**
+     * Transform for complex numbers, reading from and writing to byte buffers
+     * holding {@code float} values in the buffers' byte order.
+     *
+     * @param real real part
+     * @param imaginary imaginary part, {@code null} is treated as 0
+     * @param realOut buffer the real part of the result is written to
+     * @param imaginaryOut buffer the imaginary part of the result is written to
+     * @see #transformInto(FloatBuffer, FloatBuffer, FloatBuffer, FloatBuffer)
+     */
+    public void transformInto(final ByteBuffer real, final ByteBuffer imaginary,
+                              final ByteBuffer realOut, final ByteBuffer imaginaryOut) {
+        transformInto(real.asFloatBuffer(), imaginary == null ? null : imaginary.asFloatBuffer(),
+            realOut.asFloatBuffer(), imaginaryOut.asFloatBuffer());
+    }
+
+    private void checkBuffers(final FloatBuffer realIn, final FloatBuffer imaginaryIn,
+                              final FloatBuffer realOut, final FloatBuffer imaginaryOut) {
+        checkRemaining("realIn", realIn);
+        if (imaginaryIn != null) checkRemaining("imaginaryIn", imaginaryIn);
+        checkRemaining("realOut", realOut);
+        checkRemaining("imaginaryOut", imaginaryOut);
+        if (realOut.isReadOnly() || imaginaryOut.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+    }
+
+    private void checkRemaining(final String name, final FloatBuffer buffer) {
+        if (buffer == null) {
+            throw new NullPointerException(name + " must not be null");
+        }
+        if (buffer.remaining() < getNumberOfSamples()) {
+            throw new IllegalArgumentException("Remaining values in " + name + " must be at least "
+                + getNumberOfSamples() + ": " + buffer.remaining());
+        }
+    }
+
+    /**
+     * Indicates whether the native code can directly access the memory of the given buffers.
+     *
+     * @param buffers buffers, may contain {@code null}
+     * @return true, if all non-null buffers are direct and in native byte order
+     */
+    private static boolean isDirectAndNative(final FloatBuffer... buffers) {
+        for (final FloatBuffer buffer : buffers) {
+            if (buffer != null && (!buffer.isDirect() || buffer.order() != ByteOrder.nativeOrder())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private float[] toArray(final FloatBuffer buffer) {
+        if (buffer == null) return null;
+        final float[] array = new float[getNumberOfSamples()];
+        buffer.duplicate().get(array);
+        return array;
     }
 
     /**
      * Perform real FFT.
+     * The result is written directly into the given output arrays, i.e. no
+     * Java objects are allocated by the native code.
      *
      * @param pointer pointer to a native FFT object
      * @param forward indicates whether this is a forward or inverse DFT
      * @param numberOfSamples number of samples
      * @param realIn input array of floats
      * @param imagIn imaginary input needed for inverse transform
-     * @return real and imaginary part of the FFT's result
+     * @param realOut real part of the FFT's result
+     * @param imagOut imaginary part of the FFT's result
      * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2
      */
-    private static native float[][] realFFT(final long pointer, final boolean forward, final int numberOfSamples, final float[] realIn, final float[] imagIn) throws IllegalArgumentException;
+    private static native void realFFT(final long pointer, final boolean forward, final int numberOfSamples,
+                                       final float[] realIn, final float[] imagIn,
+                                       final float[] realOut, final float[] imagOut) throws IllegalArgumentException;
 
-    private static native long init(final int numberOfSamples);
+    /**
+     * Perform real FFT with double precision.
+     * The result is written directly into the given output arrays, i.e. no
+     * Java objects are allocated by the native code.
+     *
+     * @param pointer pointer to a native FFT object
+     * @param forward indicates whether this is a forward or inverse DFT
+     * @param numberOfSamples number of samples
+     * @param realIn input array of doubles
+     * @param imagIn imaginary input needed for inverse transform
+     * @param realOut real part of the FFT's result
+     * @param imagOut imaginary part of the FFT's result
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2
+     */
+    private static native void realFFTDouble(final long pointer, final boolean forward, final int numberOfSamples,
+                                             final double[] realIn, final double[] imagIn,
+                                             final double[] realOut, final double[] imagOut) throws IllegalArgumentException;
 
-    private static native void destroy(final long pointer);
+    /**
+     * Perform complex forward FFT.
+     * The result is written directly into the given output arrays, i.e. no
+     * Java objects are allocated by the native code.
+     *
+     * @param pointer pointer to a native FFT object
+     * @param numberOfSamples number of samples
+     * @param realIn real part of the input
+     * @param imagIn imaginary part of the input, may be {@code null}
+     * @param realOut real part of the FFT's result
+     * @param imagOut imaginary part of the FFT's result
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2
+     */
+    private static native void complexFFT(final long pointer, final int numberOfSamples,
+                                          final float[] realIn, final float[] imagIn,
+                                          final float[] realOut, final float[] imagOut) throws IllegalArgumentException;
 
+    /**
+     * Perform complex forward FFT with double precision.
+     * The result is written directly into the given output arrays, i.e. no
+     * Java objects are allocated by the native code.
+     *
+     * @param pointer pointer to a native FFT object
+     * @param numberOfSamples number of samples
+     * @param realIn real part of the input
+     * @param imagIn imaginary part of the input, may be {@code null}
+     * @param realOut real part of the FFT's result
+     * @param imagOut imaginary part of the FFT's result
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2
+     */
+    private static native void complexFFTDouble(final long pointer, final int numberOfSamples,
+                                                final double[] realIn, final double[] imagIn,
+                                                final double[] realOut, final double[] imagOut) throws IllegalArgumentException;
+
+    /**
+     * Perform real-to-complex or complex-to-real FFT, only using the
+     * {@code N/2+1} non-redundant bins of the spectrum.
+     * For the forward transform, {@code N} samples are read from {@code realIn} and
+     * {@code N/2+1} bins are written to {@code realOut} and {@code imagOut}.
+     * For the inverse transform, {@code N/2+1} bins are read from {@code realIn} and
+     * {@code imagIn} and {@code N} samples are written to {@code realOut}.
+     *
+     * @param pointer pointer to a native FFT object
+     * @param forward indicates whether this is a forward or inverse DFT
+     * @param numberOfSamples number of samples
+     * @param realIn samples (forward) or real part of the half spectrum (inverse)
+     * @param imagIn imaginary part of the half spectrum, needed for inverse transform
+     * @param realOut real part of the half spectrum (forward) or samples (inverse)
+     * @param imagOut imaginary part of the half spectrum, needed for forward transform
+     * @param scratch at least {@code 3N} floats of scratch space
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2
+     */
+    private static native void realHalfFFT(final long pointer, final boolean forward, final int numberOfSamples,
+                                           final float[] realIn, final float[] imagIn,
+                                           final float[] realOut, final float[] imagOut,
+                                           final float[] scratch) throws IllegalArgumentException;
+
+    /**
+     * Perform real forward FFTs of many, possibly overlapping frames in a single call.
+     * Frame {@code f} starts at {@code samples[offset + f * hopSize]}. Its spectrum is written
+     * to {@code realOut} and {@code imagOut} starting at index {@code f * N} (full spectrum)
+     * or {@code f * (N/2+1)} (half spectrum).
+     *
+     * @param pointer pointer to a native FFT object
+     * @param fullSpectrum whether to write all {@code N} or only the {@code N/2+1} non-redundant bins per frame
+     * @param numberOfSamples number of samples per frame
+     * @param samples samples of all frames
+     * @param offset index of the first sample of the first frame
+     * @param hopSize distance between the first samples of two consecutive frames
+     * @param frameCount number of frames
+     * @param window window coefficients each frame is multiplied with while it is copied, may be {@code null}
+     * @param realOut real parts of the spectra
+     * @param imagOut imaginary parts of the spectra
+     * @param outOffset index of the first bin of the first frame in the output arrays
+     * @param scratch at least {@code 2N} floats of scratch space
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2,
+     * or the arrays are too short
+     */
+    private static native void realFFTFrames(final long pointer, final boolean fullSpectrum, final int numberOfSamples,
+                                             final float[] samples, final int offset, final int hopSize, final int frameCount,
+                                             final float[] window, final float[] realOut, final float[] imagOut,
+                                             final int outOffset, final float[] scratch) throws IllegalArgumentException;
+
+    /**
+     * Compute the magnitude, power or log power spectrum of real samples,
+     * i.e. only {@code N/2+1} values, from the complex spectrum in scratch space.
+     *
+     * @param pointer pointer to a native FFT object
+     * @param spectrum ordinal of {@link AbstractFFT.Spectrum}
+     * @param numberOfSamples number of samples
+     * @param samples samples
+     * @param window window coefficients the samples are multiplied with while they are copied, may be {@code null}
+     * @param out {@code N/2+1} values of the requested spectrum
+     * @param scratch at least {@code 2N} floats of scratch space
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2,
+     * or an array is too short
+     */
+    private static native void realSpectrum(final long pointer, final int spectrum, final int numberOfSamples,
+                                            final float[] samples, final float[] window, final float[] out,
+                                            final float[] scratch) throws IllegalArgumentException;
+
+    /**
+     * Perform real FFT on direct buffers.
+     * The native code operates directly on the buffers' memory.
+     * Offsets are given in floats and are relative to the buffer's memory address.
+     *
+     * @param pointer pointer to a native FFT object
+     * @param forward indicates whether this is a forward or inverse DFT
+     * @param numberOfSamples number of samples
+     * @param realIn direct input buffer
+     * @param realInOffset offset into realIn
+     * @param imagIn direct imaginary input buffer needed for inverse transform
+     * @param imagInOffset offset into imagIn
+     * @param realOut direct buffer for the real part of the FFT's result
+     * @param realOutOffset offset into realOut
+     * @param imagOut direct buffer for the imaginary part of the FFT's result
+     * @param imagOutOffset offset into imagOut
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2,
+     * or a buffer is not direct
+     */
+    private static native void realFFTDirect(final long pointer, final boolean forward, final int numberOfSamples,
+                                             final FloatBuffer realIn, final int realInOffset,
+                                             final FloatBuffer imagIn, final int imagInOffset,
+                                             final FloatBuffer realOut, final int realOutOffset,
+                                             final FloatBuffer imagOut, final int imagOutOffset) throws IllegalArgumentException;
+
+    /**
+     * Perform complex forward FFT on direct buffers.
+     * The native code operates directly on the buffers' memory.
+     * Offsets are given in floats and are relative to the buffer's memory address.
+     *
+     * @param pointer pointer to a native FFT object
+     * @param numberOfSamples number of samples
+     * @param realIn direct buffer for the real part of the input
+     * @param realInOffset offset into realIn
+     * @param imagIn direct buffer for the imaginary part of the input, may be {@code null}
+     * @param imagInOffset offset into imagIn
+     * @param realOut direct buffer for the real part of the FFT's result
+     * @param realOutOffset offset into realOut
+     * @param imagOut direct buffer for the imaginary part of the FFT's result
+     * @param imagOutOffset offset into imagOut
+     * @throws IllegalArgumentException if the number of samples is less than 4 or not a power of 2,
+     * or a buffer is not direct
+     */
+    private static native void complexFFTDirect(final long pointer, final int numberOfSamples,
+                                                final FloatBuffer realIn, final int realInOffset,
+                                                final FloatBuffer imagIn, final int imagInOffset,
+                                                final FloatBuffer realOut, final int realOutOffset,
+                                                final FloatBuffer imagOut, final int imagOutOffset) throws IllegalArgumentException;
+
+    /**
+     * Creates a native plan.
+     *
+     * @param numberOfSamples number of samples
+     * @return pointer to a native FFT object
+     * @see FFTPlan
+     */
+    static native long init(final int numberOfSamples);
+
+    /**
+     * Prepares a native plan for double precision transforms.
+     * Must be called once before the first double precision transform, and not concurrently.
+     *
+     * @param pointer pointer to a native FFT object
+     * @see FFTPlan#initDouble()
+     */
+    static native void initDouble(final long pointer);
+
+    static native void destroy(final long pointer);
+
+    /**
+     * Per-thread scratch space for native transforms.
+     *
+     * @param length minimum length
+     * @return array of at least the given length
+     */
+    private static float[] scratch(final int length) {
+        float[] scratch = SCRATCH.get();
+        if (scratch == null || scratch.length < length) {
+            scratch = new float[length];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    /**
+     * Releases this instance's native plan. It is destroyed, once it is
+     * neither cached nor used by other instances anymore.
+     * This instance must not be used afterwards.
+     */
     @Override
     public void close() {
         if (cleanable != null) {
@@ -119,22 +926,20 @@ public class FFT extends AbstractFFT {
     }
 
     /**
-     * Hook that ensures native resources are eventually freed.
+     * Hook that ensures native resources are eventually released.
      * This is the Java 9 equivalent of the deprecated {@link #finalize()}.
      */
-    private static class Destroyer implements Runnable {
-        
-        private final long pointer;
+    private static class Releaser implements Runnable {
 
-        public Destroyer(final long pointer) {
-            this.pointer = pointer;
+        private final FFTPlan plan;
+
+        public Releaser(final FFTPlan plan) {
+            this.plan = plan;
         }
 
         @Override
         public void run() {
-            if (pointer != 0) {
-                destroy(pointer);
-            }
+            plan.release();
         }
     }
 }
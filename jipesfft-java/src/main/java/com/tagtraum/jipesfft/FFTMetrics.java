@@ -0,0 +1,244 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the metrics published by {@link FFTMetricsMXBean}.
+ * <p>
+ * Whether metrics are collected is decided once, when this class is initialized.
+ * Because {@link #ENABLED} is a constant, the JIT removes the instrumentation
+ * entirely, if it is disabled.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class FFTMetrics implements FFTMetricsMXBean {
+
+    /** System property that enables metrics. */
+    static final String ENABLED_PROPERTY = "com.tagtraum.jipesfft.metrics";
+    static final String OBJECT_NAME = "com.tagtraum.jipesfft:type=FFTMetrics";
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+    private static final Logger LOG = Logger.getLogger(FFTMetrics.class.getName());
+    private static final int BUCKETS = 64;
+    private static final FFTMetrics INSTANCE = ENABLED ? register(new FFTMetrics()) : null;
+
+    private final Backend nativeBackend = new Backend();
+    private final Backend javaBackend = new Backend();
+    private final LongAdder nativeArrayBytes = new LongAdder();
+    private final LongAdder planCount = new LongAdder();
+    private final LongAdder planInitNanos = new LongAdder();
+
+    FFTMetrics() {
+    }
+
+    private static FFTMetrics register(final FFTMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to register " + OBJECT_NAME + ". Metrics are collected, but not published.", e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Start time of a measurement.
+     *
+     * @return current time in nanoseconds or 0, if metrics are disabled
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records native transforms.
+     *
+     * @param numberOfSamples number of samples per transform
+     * @param count number of transforms
+     * @param arrayBytes bytes of Java arrays read or written
+     * @param start value of {@link #start()} before the transforms
+     */
+    static void nativeTransforms(final int numberOfSamples, final int count, final long arrayBytes, final long start) {
+        if (ENABLED) {
+            INSTANCE.recordNative(numberOfSamples, count, arrayBytes, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records Java fallback transforms.
+     *
+     * @param numberOfSamples number of samples per transform
+     * @param count number of transforms
+     * @param start value of {@link #start()} before the transforms
+     */
+    static void javaTransforms(final int numberOfSamples, final int count, final long start) {
+        if (ENABLED) {
+            INSTANCE.recordJava(numberOfSamples, count, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the creation of a native plan.
+     *
+     * @param start value of {@link #start()} before the plan was created
+     */
+    static void planCreated(final long start) {
+        if (ENABLED) {
+            INSTANCE.recordPlan(System.nanoTime() - start);
+        }
+    }
+
+    void recordNative(final int numberOfSamples, final int count, final long arrayBytes, final long nanos) {
+        nativeBackend.record(numberOfSamples, count, nanos);
+        nativeArrayBytes.add(arrayBytes);
+    }
+
+    void recordJava(final int numberOfSamples, final int count, final long nanos) {
+        javaBackend.record(numberOfSamples, count, nanos);
+    }
+
+    void recordPlan(final long nanos) {
+        planCount.increment();
+        planInitNanos.add(nanos);
+    }
+
+    @Override
+    public boolean isNativeLibraryLoaded() {
+        return FFT.isNativeAvailable();
+    }
+
+    @Override
+    public long getNativeTransformCount() {
+        return nativeBackend.transforms.sum();
+    }
+
+    @Override
+    public long getJavaTransformCount() {
+        return javaBackend.transforms.sum();
+    }
+
+    @Override
+    public Map<Integer, Long> getNativeTransformCountsBySize() {
+        return nativeBackend.getTransformsBySize();
+    }
+
+    @Override
+    public Map<Integer, Long> getJavaTransformCountsBySize() {
+        return javaBackend.getTransformsBySize();
+    }
+
+    @Override
+    public long[] getNativeLatencyHistogram() {
+        return nativeBackend.getLatencyHistogram();
+    }
+
+    @Override
+    public long[] getJavaLatencyHistogram() {
+        return javaBackend.getLatencyHistogram();
+    }
+
+    @Override
+    public long getNativeArrayBytes() {
+        return nativeArrayBytes.sum();
+    }
+
+    @Override
+    public long getPlanCount() {
+        return planCount.sum();
+    }
+
+    @Override
+    public long getPlanInitNanos() {
+        return planInitNanos.sum();
+    }
+
+    @Override
+    public void reset() {
+        nativeBackend.reset();
+        javaBackend.reset();
+        nativeArrayBytes.reset();
+        planCount.reset();
+        planInitNanos.reset();
+    }
+
+    /**
+     * Histogram bucket for the given duration.
+     *
+     * @param nanos duration
+     * @return {@code floor(log2(nanos))}, 0 for durations of less than 2ns
+     */
+    static int bucket(final long nanos) {
+        return nanos < 2 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "FFTMetrics{" +
+            "native=" + getNativeTransformCount() +
+            ", java=" + getJavaTransformCount() +
+            ", plans=" + getPlanCount() +
+            '}';
+    }
+
+    /**
+     * Counters of one backend.
+     */
+    private static final class Backend {
+
+        private final LongAdder transforms = new LongAdder();
+        private final ConcurrentHashMap<Integer, LongAdder> transformsBySize = new ConcurrentHashMap<>();
+        private final LongAdder[] latencyHistogram = new LongAdder[BUCKETS];
+
+        Backend() {
+            for (int i = 0; i < BUCKETS; i++) {
+                latencyHistogram[i] = new LongAdder();
+            }
+        }
+
+        void record(final int numberOfSamples, final int count, final long nanos) {
+            if (count <= 0) return;
+            transforms.add(count);
+            LongAdder bySize = transformsBySize.get(numberOfSamples);
+            if (bySize == null) {
+                bySize = transformsBySize.computeIfAbsent(numberOfSamples, n -> new LongAdder());
+            }
+            bySize.add(count);
+            // transforms of many frames are recorded with their average latency
+            latencyHistogram[bucket(nanos / count)].add(count);
+        }
+
+        Map<Integer, Long> getTransformsBySize() {
+            final Map<Integer, Long> map = new TreeMap<>();
+            transformsBySize.forEach((numberOfSamples, count) -> map.put(numberOfSamples, count.sum()));
+            return map;
+        }
+
+        long[] getLatencyHistogram() {
+            final long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = latencyHistogram[i].sum();
+            }
+            return histogram;
+        }
+
+        void reset() {
+            transforms.reset();
+            transformsBySize.values().forEach(LongAdder::reset);
+            for (final LongAdder bucket : latencyHistogram) {
+                bucket.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.Map;
+
+/**
+ * Usage metrics of {@link FFT}, registered with the platform MBean server as
+ * {@code com.tagtraum.jipesfft:type=FFTMetrics}, if the system property
+ * {@code com.tagtraum.jipesfft.metrics} is {@code true}.
+ * <p>
+ * Transforms are counted per backend, i.e. native code or Java fallback.
+ * A transform of {@code n} frames counts as {@code n} transforms.
+ * Latency histograms have 64 buckets. Bucket {@code i} counts
+ * transforms that took between {@code 2^i} and {@code 2^(i+1)-1} nanoseconds.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public interface FFTMetricsMXBean {
+
+    /**
+     * Indicates whether the native library was loaded. If not,
+     * all transforms use the Java fallback.
+     *
+     * @return true, if native transforms are available
+     */
+    boolean isNativeLibraryLoaded();
+
+    /**
+     * Number of transforms computed natively.
+     *
+     * @return number of transforms
+     */
+    long getNativeTransformCount();
+
+    /**
+     * Number of transforms computed by the Java fallback, either because the
+     * native library is not available or because the size is not supported natively.
+     *
+     * @return number of transforms
+     */
+    long getJavaTransformCount();
+
+    /**
+     * Number of native transforms per number of samples.
+     *
+     * @return map of number of samples to number of transforms
+     */
+    Map<Integer, Long> getNativeTransformCountsBySize();
+
+    /**
+     * Number of Java fallback transforms per number of samples.
+     *
+     * @return map of number of samples to number of transforms
+     */
+    Map<Integer, Long> getJavaTransformCountsBySize();
+
+    /**
+     * Latency histogram of native transforms.
+     *
+     * @return 64 buckets
+     */
+    long[] getNativeLatencyHistogram();
+
+    /**
+     * Latency histogram of Java fallback transforms.
+     *
+     * @return 64 buckets
+     */
+    long[] getJavaLatencyHistogram();
+
+    /**
+     * Bytes of Java arrays read or written by native transforms.
+     * Depending on the JVM, these arrays are either pinned or copied.
+     * Direct buffers are not included, as they are never copied.
+     *
+     * @return bytes
+     */
+    long getNativeArrayBytes();
+
+    /**
+     * Number of native plans created.
+     *
+     * @return number of plans
+     */
+    long getPlanCount();
+
+    /**
+     * Time spent creating native plans.
+     *
+     * @return nanoseconds
+     */
+    long getPlanInitNanos();
+
+    /**
+     * Sets all counters and histograms to zero.
+     */
+    void reset();
+}
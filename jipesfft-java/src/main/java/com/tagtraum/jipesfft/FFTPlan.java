@@ -0,0 +1,199 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Native FFT plan for a given number of samples, shared by all {@link FFT}
+ * instances of that size.
+ * <p>
+ * Native transforms only read their plan, so one plan may be used by many
+ * threads at once. The same plan serves forward and inverse transforms,
+ * because the latter are computed as forward transforms with real and
+ * imaginary part swapped.
+ * <p>
+ * Plans are kept in a process-wide, least-recently-used cache. Its native memory
+ * is limited to {@value #DEFAULT_MAX_CACHE_BYTES} bytes by default, which can be
+ * changed with the system property {@value #MAX_CACHE_BYTES_PROPERTY}. A plan is
+ * destroyed once it has been evicted from the cache and has been released by
+ * all {@link FFT} instances using it.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class FFTPlan {
+
+    /** System property for the maximum native memory of cached plans in bytes. */
+    static final String MAX_CACHE_BYTES_PROPERTY = "com.tagtraum.jipesfft.plancache.maxbytes";
+    static final long DEFAULT_MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_CACHE_BYTES = Long.getLong(MAX_CACHE_BYTES_PROPERTY, DEFAULT_MAX_CACHE_BYTES);
+    /** Estimated native memory per sample: bit-reversal permutation and four twiddle tables. */
+    private static final int BYTES_PER_SAMPLE = Integer.BYTES + 4 * Float.BYTES;
+    /** Estimated additional native memory per sample for double precision twiddle tables. */
+    private static final int DOUBLE_BYTES_PER_SAMPLE = 4 * Double.BYTES;
+
+    /** Access-ordered, i.e. the eldest entry is the least recently used one. Guards all plan state. */
+    private static final LinkedHashMap<Integer, FFTPlan> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    private static long cachedBytes;
+
+    private final int numberOfSamples;
+    private final long pointer;
+    private long bytes;
+    private int references;
+    private boolean cached;
+    private boolean destroyed;
+    private volatile boolean doublePrecision;
+
+    private FFTPlan(final int numberOfSamples) {
+        this.numberOfSamples = numberOfSamples;
+        final long start = FFTMetrics.start();
+        this.pointer = FFT.init(numberOfSamples);
+        FFTMetrics.planCreated(start);
+        this.bytes = (long) numberOfSamples * BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * Returns a plan for the given number of samples from the cache or creates a new one.
+     * Each call must be matched by a call to {@link #release()}.
+     *
+     * @param numberOfSamples number of samples, power of 2
+     * @return plan
+     */
+    static FFTPlan acquire(final int numberOfSamples) {
+        synchronized (CACHE) {
+            final FFTPlan plan = CACHE.get(numberOfSamples);
+            if (plan != null) {
+                plan.references++;
+                return plan;
+            }
+        }
+        // create outside the lock, large plans take a while
+        final FFTPlan newPlan = new FFTPlan(numberOfSamples);
+        synchronized (CACHE) {
+            final FFTPlan plan = CACHE.get(numberOfSamples);
+            if (plan != null) {
+                // another thread was faster
+                plan.references++;
+                newPlan.destroy();
+                return plan;
+            }
+            newPlan.references = 1;
+            newPlan.cached = true;
+            CACHE.put(numberOfSamples, newPlan);
+            cachedBytes += newPlan.bytes;
+            evict();
+            return newPlan;
+        }
+    }
+
+    /**
+     * Releases a plan obtained from {@link #acquire(int)}.
+     * The plan must not be used anymore by the caller.
+     */
+    void release() {
+        synchronized (CACHE) {
+            references--;
+            if (references == 0 && !cached) {
+                destroy();
+            }
+        }
+    }
+
+    /**
+     * Makes sure the native plan supports double precision transforms.
+     */
+    void initDouble() {
+        if (doublePrecision) return;
+        synchronized (this) {
+            if (doublePrecision) return;
+            FFT.initDouble(pointer);
+            doublePrecision = true;
+        }
+        synchronized (CACHE) {
+            bytes += (long) numberOfSamples * DOUBLE_BYTES_PER_SAMPLE;
+            if (cached) {
+                cachedBytes += (long) numberOfSamples * DOUBLE_BYTES_PER_SAMPLE;
+                evict();
+            }
+        }
+    }
+
+    long getPointer() {
+        return pointer;
+    }
+
+    /**
+     * Estimated native memory used by all cached plans.
+     *
+     * @return bytes
+     */
+    static long getCachedBytes() {
+        synchronized (CACHE) {
+            return cachedBytes;
+        }
+    }
+
+    /**
+     * Number of cached plans.
+     *
+     * @return number of plans
+     */
+    static int getCacheSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Evicts all plans from the cache. Plans still in use are destroyed once they are released.
+     */
+    static void clearCache() {
+        synchronized (CACHE) {
+            final Iterator<FFTPlan> plans = CACHE.values().iterator();
+            while (plans.hasNext()) {
+                uncache(plans.next());
+                plans.remove();
+            }
+        }
+    }
+
+    /**
+     * Evicts least recently used plans, until the cached plans fit into the limit.
+     * Must be called while holding the lock on {@link #CACHE}.
+     */
+    private static void evict() {
+        final Iterator<Map.Entry<Integer, FFTPlan>> entries = CACHE.entrySet().iterator();
+        while (cachedBytes > MAX_CACHE_BYTES && entries.hasNext()) {
+            uncache(entries.next().getValue());
+            entries.remove();
+        }
+    }
+
+    private static void uncache(final FFTPlan plan) {
+        plan.cached = false;
+        cachedBytes -= plan.bytes;
+        if (plan.references == 0) {
+            plan.destroy();
+        }
+    }
+
+    private void destroy() {
+        if (!destroyed) {
+            destroyed = true;
+            FFT.destroy(pointer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FFTPlan{" +
+            "N=" + numberOfSamples +
+            '}';
+    }
+}
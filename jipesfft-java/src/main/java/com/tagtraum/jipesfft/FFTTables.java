@@ -0,0 +1,98 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed tables for power-of-two FFTs of a given size.
+ * Instances are immutable and shared by all FFTs of the same size.
+ * <p>
+ * The twiddle factors are stored per butterfly stage, so that the inner
+ * loop of each stage reads them contiguously: For the stage combining
+ * blocks of size {@code h} into blocks of size {@code 2h}, the values
+ * {@code cos(pi m/h)} and {@code sin(pi m/h)} for {@code 0 <= m < h} are
+ * stored at index {@code h+m}. Because these values do not depend on
+ * {@code N}, the same tables also serve transforms of size {@code N/2}
+ * (as used for real input), and the last stage holds {@code cos(2 pi k/N)}
+ * and {@code sin(2 pi k/N)} at index {@code N/2+k}.
+ * <p>
+ * For radix-4 passes, {@code cos(3 pi m/h)} and {@code sin(3 pi m/h)}
+ * are stored in the same layout.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class FFTTables {
+
+    private static final Map<Integer, SoftReference<FFTTables>> CACHE = new ConcurrentHashMap<>();
+
+    /** Bit-reversal permutation for {@code N}. */
+    final int[] reverseIndices;
+    /** Cosine of the twiddle factors, per stage. */
+    final double[] cos;
+    /** Sine of the twiddle factors, per stage. */
+    final double[] sin;
+    /** Cosine of the tripled twiddle factors, per stage. */
+    final double[] cos3;
+    /** Sine of the tripled twiddle factors, per stage. */
+    final double[] sin3;
+
+    private FFTTables(final int numberOfSamples) {
+        this.reverseIndices = createReverseIndices(numberOfSamples);
+        this.cos = new double[numberOfSamples];
+        this.sin = new double[numberOfSamples];
+        this.cos3 = new double[numberOfSamples];
+        this.sin3 = new double[numberOfSamples];
+        final int top = numberOfSamples / 2;
+        for (int m = 0; m < top; m++) {
+            final double angle = Math.PI * m / top;
+            this.cos[top + m] = Math.cos(angle);
+            this.sin[top + m] = Math.sin(angle);
+            this.cos3[top + m] = Math.cos(3 * angle);
+            this.sin3[top + m] = Math.sin(3 * angle);
+        }
+        // lower stages are subsets of the top stage
+        for (int h = top / 2; h >= 1; h /= 2) {
+            final int stride = top / h;
+            for (int m = 0; m < h; m++) {
+                this.cos[h + m] = this.cos[top + m * stride];
+                this.sin[h + m] = this.sin[top + m * stride];
+                this.cos3[h + m] = this.cos3[top + m * stride];
+                this.sin3[h + m] = this.sin3[top + m * stride];
+            }
+        }
+    }
+
+    /**
+     * Tables for the given number of samples.
+     *
+     * @param numberOfSamples number of samples, power of 2
+     * @return shared tables
+     */
+    static FFTTables getInstance(final int numberOfSamples) {
+        final SoftReference<FFTTables> reference = CACHE.get(numberOfSamples);
+        FFTTables tables = reference == null ? null : reference.get();
+        if (tables == null) {
+            // concurrent callers may compute the same tables twice, which is harmless
+            tables = new FFTTables(numberOfSamples);
+            CACHE.put(numberOfSamples, new SoftReference<>(tables));
+        }
+        return tables;
+    }
+
+    private static int[] createReverseIndices(final int numberOfSamples) {
+        final int[] reverseIndices = new int[numberOfSamples];
+        final int numberOfBits = Integer.numberOfTrailingZeros(numberOfSamples);
+        for (int i = 1; i < numberOfSamples; i++) {
+            reverseIndices[i] = (reverseIndices[i >> 1] >> 1) | ((i & 1) << (numberOfBits - 1));
+        }
+        return reverseIndices;
+    }
+
+}
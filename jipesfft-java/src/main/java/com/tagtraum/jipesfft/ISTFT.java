@@ -0,0 +1,217 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.Arrays;
+
+/**
+ * Streaming inverse short-time Fourier transform (ISTFT) with overlap-add synthesis.
+ * <p>
+ * Half spectra with {@code N/2+1} bins, e.g. as emitted by {@link STFT}, are
+ * {@link #push(float[], float[], SampleConsumer) pushed} one frame at a time. Each frame
+ * is inverse transformed, multiplied with the synthesis {@link Window} and added to an
+ * internal ring buffer. Frame {@code i} starts at sample {@code i * hopSize} of the output
+ * stream. After each frame, the next {@code hopSize} samples cannot receive any further
+ * contributions and are handed to a {@link SampleConsumer}.
+ * <p>
+ * Samples are reconstructed perfectly, if analysis window {@code a} and synthesis window
+ * {@code s} satisfy {@code sum_k a(n - k * hopSize) * s(n - k * hopSize) = 1} for all
+ * {@code n}. For example, a Hann analysis window with a hop size of {@code N/2} and no
+ * synthesis window, or Hann analysis and synthesis windows with a hop size of {@code N/4},
+ * if one of them is scaled by {@code 2/3}.
+ * <p>
+ * All frames are transformed with the same {@link FFT}. The array handed to the consumer
+ * is reused, so that no memory is allocated once an instance has been created.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see STFT
+ */
+public class ISTFT implements AutoCloseable {
+
+    private final int frameSize;
+    private final int hopSize;
+    private final Window window;
+    private final FFT fft;
+    /** Overlap-add accumulator, {@link #position} points to the next sample to emit. */
+    private final float[] ring;
+    private final float[] frame;
+    private final float[] samples;
+    private int position;
+    /** Indicates whether frames have been pushed since the last flush. */
+    private boolean pending;
+    private long sampleIndex;
+
+    /**
+     * Creates an ISTFT.
+     *
+     * @param frameSize number of samples per frame, i.e. the FFT size
+     * @param hopSize number of samples between the starts of two consecutive frames
+     * @param window synthesis window of size {@code frameSize}, applied to each inverse
+     *               transformed frame before it is added, or {@code null} for a rectangular window
+     * @throws IllegalArgumentException if frame or hop size are not positive
+     * or the window's size is not the frame size
+     */
+    public ISTFT(final int frameSize, final int hopSize, final Window window) {
+        if (frameSize <= 0) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameSize);
+        }
+        if (hopSize <= 0) {
+            throw new IllegalArgumentException("Hop size must be positive: " + hopSize);
+        }
+        if (window != null && window.getSize() != frameSize) {
+            throw new IllegalArgumentException("Window size must be equal to frame size " + frameSize + ": " + window.getSize());
+        }
+        this.frameSize = frameSize;
+        this.hopSize = hopSize;
+        this.window = window;
+        this.fft = new FFT(frameSize);
+        // with a hop size greater than the frame size, frames are separated by zeros
+        this.ring = new float[Math.max(frameSize, hopSize)];
+        this.frame = new float[frameSize];
+        this.samples = new float[ring.length];
+    }
+
+    /**
+     * Number of samples per frame.
+     *
+     * @return frame size
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * Number of samples between the starts of two consecutive frames.
+     *
+     * @return hop size
+     */
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    /**
+     * Length of the spectra to push, i.e. {@code frameSize/2+1}.
+     *
+     * @return number of bins
+     */
+    public int getHalfSpectrumLength() {
+        return fft.getHalfSpectrumLength();
+    }
+
+    /**
+     * Number of samples emitted so far.
+     *
+     * @return sample count
+     */
+    public long getSampleCount() {
+        return sampleIndex;
+    }
+
+    /**
+     * Pushes the half spectrum of the next frame and hands the {@code hopSize}
+     * samples completed by it to the given consumer.
+     *
+     * @param real real part of the {@code N/2+1} non-redundant bins
+     * @param imaginary imaginary part of the {@code N/2+1} non-redundant bins
+     * @param consumer consumer for completed samples
+     * @throws IllegalArgumentException if an array is shorter than {@code N/2+1}
+     */
+    public void push(final float[] real, final float[] imaginary, final SampleConsumer consumer) {
+        fft.inverseTransformFromHalfSpectrum(real, imaginary, frame);
+        if (window != null) {
+            window.multiply(frame, 0, frame);
+        }
+        // overlap-add in at most two contiguous runs
+        final int first = Math.min(frameSize, ring.length - position);
+        for (int i = 0; i < first; i++) {
+            ring[position + i] += frame[i];
+        }
+        for (int i = first; i < frameSize; i++) {
+            ring[i - first] += frame[i];
+        }
+        pending = true;
+        emit(hopSize, consumer);
+    }
+
+    /**
+     * Hands the remaining {@code frameSize - hopSize} samples of the frames pushed so far
+     * to the given consumer, as if the stream ended with silence.
+     * Afterwards, the next pushed frame starts after the emitted samples.
+     *
+     * @param consumer consumer for the remaining samples
+     */
+    public void flush(final SampleConsumer consumer) {
+        if (!pending) {
+            return;
+        }
+        pending = false;
+        final int remaining = frameSize - hopSize;
+        if (remaining > 0) {
+            emit(remaining, consumer);
+        }
+    }
+
+    /**
+     * Discards all accumulated samples and resets the sample count,
+     * so that this instance can be used for a new stream.
+     */
+    public void reset() {
+        Arrays.fill(ring, 0f);
+        position = 0;
+        pending = false;
+        sampleIndex = 0;
+    }
+
+    private void emit(final int length, final SampleConsumer consumer) {
+        // unroll the ring buffer and clear the emitted part for the next frames
+        final int first = Math.min(length, ring.length - position);
+        System.arraycopy(ring, position, samples, 0, first);
+        System.arraycopy(ring, 0, samples, first, length - first);
+        Arrays.fill(ring, position, position + first, 0f);
+        Arrays.fill(ring, 0, length - first, 0f);
+        position = (position + length) % ring.length;
+        final long index = sampleIndex;
+        sampleIndex += length;
+        consumer.accept(index, samples, length);
+    }
+
+    /**
+     * Releases the underlying {@link FFT}.
+     */
+    @Override
+    public void close() {
+        fft.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ISTFT{" +
+            "frameSize=" + frameSize +
+            ", hopSize=" + hopSize +
+            ", window=" + window +
+            '}';
+    }
+
+    /**
+     * Receives completed output samples.
+     */
+    @FunctionalInterface
+    public interface SampleConsumer {
+
+        /**
+         * Called with samples that will not receive any further contributions.
+         * The array is reused for the next call.
+         *
+         * @param sampleIndex index of the first sample in the output stream, starting at 0
+         * @param samples samples, starting at index 0
+         * @param length number of valid samples
+         */
+        void accept(long sampleIndex, float[] samples, int length);
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Complex forward FFT with double precision for sizes that are not a power of 2.
+ * <p>
+ * If {@code N} is a product of 2, 3, 5 and 7, a self-sorting
+ * (Stockham) decimation-in-frequency FFT with radix-4, 2, 3, 5 and 7
+ * kernels is used. For all other sizes, the transform is computed
+ * via Bluestein's algorithm (chirp-z transform) as a convolution, using
+ * power-of-2 FFTs of size {@code M >= 2N-1}.
+ * <p>
+ * The inverse transform is not offered directly. It can be computed
+ * by swapping real and imaginary part of input and output and scaling by {@code 1/N}.
+ * Instances are immutable, scratch space is allocated per thread.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class MixedRadixFFT {
+
+    private static final ThreadLocal<double[][]> SCRATCH = new ThreadLocal<>();
+    private static final int[] RADICES = {4, 2, 3, 5, 7};
+    /** {@code cos(2 pi k/7)} and {@code sin(2 pi k/7)} for {@code 1 <= k <= 3}. */
+    private static final double C71 = Math.cos(2 * Math.PI / 7);
+    private static final double C72 = Math.cos(4 * Math.PI / 7);
+    private static final double C73 = Math.cos(6 * Math.PI / 7);
+    private static final double S71 = Math.sin(2 * Math.PI / 7);
+    private static final double S72 = Math.sin(4 * Math.PI / 7);
+    private static final double S73 = Math.sin(6 * Math.PI / 7);
+
+    private final int numberOfSamples;
+    /** Radices, or {@code null} for Bluestein. */
+    private final int[] factors;
+    /** {@code cos(2 pi k/N)} for {@code 0 <= k < N}. */
+    private final double[] cos;
+    /** {@code sin(2 pi k/N)} for {@code 0 <= k < N}. */
+    private final double[] sin;
+    /** Chirp {@code exp(-i pi k^2/N)}, only for Bluestein. */
+    private final double[] chirpReal;
+    private final double[] chirpImaginary;
+    /** Spectrum of the conjugated chirp, only for Bluestein. */
+    private final double[] kernelReal;
+    private final double[] kernelImaginary;
+    /** Power-of-2 FFT of size {@code M}, only for Bluestein. */
+    private final PureJavaFFT convolutionFFT;
+
+    /**
+     * Constructor for a given number of samples.
+     *
+     * @param numberOfSamples number of samples, positive
+     */
+    MixedRadixFFT(final int numberOfSamples) {
+        this.numberOfSamples = numberOfSamples;
+        this.factors = factorize(numberOfSamples);
+        if (factors != null) {
+            this.cos = new double[numberOfSamples];
+            this.sin = new double[numberOfSamples];
+            for (int k = 0; k < numberOfSamples; k++) {
+                final double angle = 2 * Math.PI * k / numberOfSamples;
+                this.cos[k] = Math.cos(angle);
+                this.sin[k] = Math.sin(angle);
+            }
+            this.chirpReal = null;
+            this.chirpImaginary = null;
+            this.kernelReal = null;
+            this.kernelImaginary = null;
+            this.convolutionFFT = null;
+        } else {
+            this.cos = null;
+            this.sin = null;
+            final int m = Integer.highestOneBit(2 * numberOfSamples - 1) << 1;
+            this.convolutionFFT = new PureJavaFFT(m);
+            this.chirpReal = new double[numberOfSamples];
+            this.chirpImaginary = new double[numberOfSamples];
+            final double[] kernelIn = new double[m];
+            final double[] kernelInImaginary = new double[m];
+            for (int k = 0; k < numberOfSamples; k++) {
+                // k^2 mod 2N keeps the angle small and therefore accurate
+                final long k2 = (long) k * k % (2L * numberOfSamples);
+                final double angle = Math.PI * k2 / numberOfSamples;
+                this.chirpReal[k] = Math.cos(angle);
+                this.chirpImaginary[k] = -Math.sin(angle);
+                kernelIn[k] = this.chirpReal[k];
+                kernelInImaginary[k] = -this.chirpImaginary[k];
+                if (k > 0) {
+                    kernelIn[m - k] = kernelIn[k];
+                    kernelInImaginary[m - k] = kernelInImaginary[k];
+                }
+            }
+            this.kernelReal = new double[m];
+            this.kernelImaginary = new double[m];
+            this.convolutionFFT.transform(false, kernelIn, kernelInImaginary, this.kernelReal, this.kernelImaginary);
+        }
+    }
+
+    /**
+     * Factorizes the given number into the supported radices.
+     *
+     * @param n number
+     * @return radices, or {@code null}, if {@code n} has other prime factors
+     */
+    private static int[] factorize(final int n) {
+        final List<Integer> factors = new ArrayList<>();
+        int remainder = n;
+        for (final int radix : RADICES) {
+            while (remainder % radix == 0) {
+                factors.add(radix);
+                remainder /= radix;
+            }
+        }
+        if (remainder != 1) return null;
+        final int[] result = new int[factors.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = factors.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Indicates whether the mixed-radix kernels are used, i.e. whether the
+     * number of samples is a product of 2, 3, 5 and 7.
+     *
+     * @return true, if no Bluestein transform is needed
+     */
+    boolean isMixedRadix() {
+        return factors != null;
+    }
+
+    /**
+     * In-place complex forward transform.
+     *
+     * @param real real part, at least {@code N} long
+     * @param imaginary imaginary part, at least {@code N} long
+     */
+    void transform(final double[] real, final double[] imaginary) {
+        if (numberOfSamples == 1) return;
+        if (factors != null) {
+            stockham(real, imaginary);
+        } else {
+            bluestein(real, imaginary);
+        }
+    }
+
+    private void stockham(final double[] real, final double[] imaginary) {
+        final double[][] scratch = scratch(numberOfSamples);
+        double[] xr = real;
+        double[] xi = imaginary;
+        double[] yr = scratch[0];
+        double[] yi = scratch[1];
+        int n = numberOfSamples;
+        int stride = 1;
+        for (final int radix : factors) {
+            final int m = n / radix;
+            switch (radix) {
+                case 2:
+                    radix2(m, stride, xr, xi, yr, yi);
+                    break;
+                case 3:
+                    radix3(m, stride, xr, xi, yr, yi);
+                    break;
+                case 4:
+                    radix4(m, stride, xr, xi, yr, yi);
+                    break;
+                case 5:
+                    radix5(m, stride, xr, xi, yr, yi);
+                    break;
+                default:
+                    radix7(m, stride, xr, xi, yr, yi);
+                    break;
+            }
+            n = m;
+            stride *= radix;
+            final double[] tr = xr;
+            final double[] ti = xi;
+            xr = yr;
+            xi = yi;
+            yr = tr;
+            yi = ti;
+        }
+        if (xr != real) {
+            System.arraycopy(xr, 0, real, 0, numberOfSamples);
+            System.arraycopy(xi, 0, imaginary, 0, numberOfSamples);
+        }
+    }
+
+    /*
+     * Each radix-p stage splits sequences of length n = p * m, each present
+     * stride times (interleaved). Input x[q + stride * (j + m * r)] for r < p
+     * is combined with a p-point DFT, multiplied with the twiddle
+     * exp(-2 pi i j t/n) = exp(-2 pi i stride j t/N), and written to
+     * y[q + stride * (p * j + t)]. After all stages, the output is in natural order.
+     */
+
+    private void radix2(final int m, final int stride,
+                        final double[] xr, final double[] xi, final double[] yr, final double[] yi) {
+        for (int j = 0; j < m; j++) {
+            final double w1r = cos[stride * j];
+            final double w1i = -sin[stride * j];
+            for (int q = 0; q < stride; q++) {
+                final int in = q + stride * j;
+                final int out = q + stride * 2 * j;
+                final int s = stride * m;
+                final double ar = xr[in];
+                final double ai = xi[in];
+                final double br = xr[in + s];
+                final double bi = xi[in + s];
+                yr[out] = ar + br;
+                yi[out] = ai + bi;
+                final double dr = ar - br;
+                final double di = ai - bi;
+                yr[out + stride] = dr * w1r - di * w1i;
+                yi[out + stride] = dr * w1i + di * w1r;
+            }
+        }
+    }
+
+    private void radix3(final int m, final int stride,
+                        final double[] xr, final double[] xi, final double[] yr, final double[] yi) {
+        // sin(2 pi/3)
+        final double s3 = Math.sqrt(0.75);
+        final int s = stride * m;
+        for (int j = 0; j < m; j++) {
+            final double w1r = cos[stride * j];
+            final double w1i = -sin[stride * j];
+            final double w2r = cos[2 * stride * j];
+            final double w2i = -sin[2 * stride * j];
+            for (int q = 0; q < stride; q++) {
+                final int in = q + stride * j;
+                final int out = q + stride * 3 * j;
+                final double ar = xr[in];
+                final double ai = xi[in];
+                final double sr = xr[in + s] + xr[in + 2 * s];
+                final double si = xi[in + s] + xi[in + 2 * s];
+                final double dr = xr[in + s] - xr[in + 2 * s];
+                final double di = xi[in + s] - xi[in + 2 * s];
+                final double cr = ar - 0.5 * sr;
+                final double ci = ai - 0.5 * si;
+                yr[out] = ar + sr;
+                yi[out] = ai + si;
+                // t = 1, 2: c -/+ i s3 d
+                final double t1r = cr + s3 * di;
+                final double t1i = ci - s3 * dr;
+                final double t2r = cr - s3 * di;
+                final double t2i = ci + s3 * dr;
+                yr[out + stride] = t1r * w1r - t1i * w1i;
+                yi[out + stride] = t1r * w1i + t1i * w1r;
+                yr[out + 2 * stride] = t2r * w2r - t2i * w2i;
+                yi[out + 2 * stride] = t2r * w2i + t2i * w2r;
+            }
+        }
+    }
+
+    private void radix4(final int m, final int stride,
+                        final double[] xr, final double[] xi, final double[] yr, final double[] yi) {
+        final int s = stride * m;
+        for (int j = 0; j < m; j++) {
+            final double w1r = cos[stride * j];
+            final double w1i = -sin[stride * j];
+            final double w2r = cos[2 * stride * j];
+            final double w2i = -sin[2 * stride * j];
+            final double w3r = cos[3 * stride * j];
+            final double w3i = -sin[3 * stride * j];
+            for (int q = 0; q < stride; q++) {
+                final int in = q + stride * j;
+                final int out = q + stride * 4 * j;
+                final double s0r = xr[in] + xr[in + 2 * s];
+                final double s0i = xi[in] + xi[in + 2 * s];
+                final double d0r = xr[in] - xr[in + 2 * s];
+                final double d0i = xi[in] - xi[in + 2 * s];
+                final double s1r = xr[in + s] + xr[in + 3 * s];
+                final double s1i = xi[in + s] + xi[in + 3 * s];
+                final double d1r = xr[in + s] - xr[in + 3 * s];
+                final double d1i = xi[in + s] - xi[in + 3 * s];
+                yr[out] = s0r + s1r;
+                yi[out] = s0i + s1i;
+                // t = 1: d0 - i d1
+                final double t1r = d0r + d1i;
+                final double t1i = d0i - d1r;
+                // t = 2: s0 - s1
+                final double t2r = s0r - s1r;
+                final double t2i = s0i - s1i;
+                // t = 3: d0 + i d1
+                final double t3r = d0r - d1i;
+                final double t3i = d0i + d1r;
+                yr[out + stride] = t1r * w1r - t1i * w1i;
+                yi[out + stride] = t1r * w1i + t1i * w1r;
+                yr[out + 2 * stride] = t2r * w2r - t2i * w2i;
+                yi[out + 2 * stride] = t2r * w2i + t2i * w2r;
+                yr[out + 3 * stride] = t3r * w3r - t3i * w3i;
+                yi[out + 3 * stride] = t3r * w3i + t3i * w3r;
+            }
+        }
+    }
+
+    private void radix5(final int m, final int stride,
+                        final double[] xr, final double[] xi, final double[] yr, final double[] yi) {
+        final double c1 = Math.cos(2 * Math.PI / 5);
+        final double c2 = Math.cos(4 * Math.PI / 5);
+        final double s1 = Math.sin(2 * Math.PI / 5);
+        final double s2 = Math.sin(4 * Math.PI / 5);
+        final int s = stride * m;
+        for (int j = 0; j < m; j++) {
+            for (int q = 0; q < stride; q++) {
+                final int in = q + stride * j;
+                final int out = q + stride * 5 * j;
+                final double ar = xr[in];
+                final double ai = xi[in];
+                // symmetric sums and differences of the pairs (1, 4) and (2, 3)
+                final double p1r = xr[in + s] + xr[in + 4 * s];
+                final double p1i = xi[in + s] + xi[in + 4 * s];
+                final double m1r = xr[in + s] - xr[in + 4 * s];
+                final double m1i = xi[in + s] - xi[in + 4 * s];
+                final double p2r = xr[in + 2 * s] + xr[in + 3 * s];
+                final double p2i = xi[in + 2 * s] + xi[in + 3 * s];
+                final double m2r = xr[in + 2 * s] - xr[in + 3 * s];
+                final double m2i = xi[in + 2 * s] - xi[in + 3 * s];
+                yr[out] = ar + p1r + p2r;
+                yi[out] = ai + p1i + p2i;
+                final double c1r = ar + c1 * p1r + c2 * p2r;
+                final double c1i = ai + c1 * p1i + c2 * p2i;
+                final double c2r = ar + c2 * p1r + c1 * p2r;
+                final double c2i = ai + c2 * p1i + c1 * p2i;
+                // multiplied with -i
+                final double e1r = s1 * m1i + s2 * m2i;
+                final double e1i = -(s1 * m1r + s2 * m2r);
+                final double e2r = s2 * m1i - s1 * m2i;
+                final double e2i = -(s2 * m1r - s1 * m2r);
+                twiddle(c1r + e1r, c1i + e1i, stride * j, out + stride, yr, yi);
+                twiddle(c2r + e2r, c2i + e2i, 2 * stride * j, out + 2 * stride, yr, yi);
+                twiddle(c2r - e2r, c2i - e2i, 3 * stride * j, out + 3 * stride, yr, yi);
+                twiddle(c1r - e1r, c1i - e1i, 4 * stride * j, out + 4 * stride, yr, yi);
+            }
+        }
+    }
+
+    private void radix7(final int m, final int stride,
+                        final double[] xr, final double[] xi, final double[] yr, final double[] yi) {
+        final int s = stride * m;
+        for (int j = 0; j < m; j++) {
+            for (int q = 0; q < stride; q++) {
+                final int in = q + stride * j;
+                final int out = q + stride * 7 * j;
+                final double ar = xr[in];
+                final double ai = xi[in];
+                // symmetric sums and differences of the pairs (1, 6), (2, 5) and (3, 4)
+                final double p1r = xr[in + s] + xr[in + 6 * s];
+                final double p1i = xi[in + s] + xi[in + 6 * s];
+                final double m1r = xr[in + s] - xr[in + 6 * s];
+                final double m1i = xi[in + s] - xi[in + 6 * s];
+                final double p2r = xr[in + 2 * s] + xr[in + 5 * s];
+                final double p2i = xi[in + 2 * s] + xi[in + 5 * s];
+                final double m2r = xr[in + 2 * s] - xr[in + 5 * s];
+                final double m2i = xi[in + 2 * s] - xi[in + 5 * s];
+                final double p3r = xr[in + 3 * s] + xr[in + 4 * s];
+                final double p3i = xi[in + 3 * s] + xi[in + 4 * s];
+                final double m3r = xr[in + 3 * s] - xr[in + 4 * s];
+                final double m3i = xi[in + 3 * s] - xi[in + 4 * s];
+                yr[out] = ar + p1r + p2r + p3r;
+                yi[out] = ai + p1i + p2i + p3i;
+                // cos(2 pi r t/7) and sin(2 pi r t/7), reduced to 1 <= k <= 3 by symmetry
+                final double c1r = ar + C71 * p1r + C72 * p2r + C73 * p3r;
+                final double c1i = ai + C71 * p1i + C72 * p2i + C73 * p3i;
+                final double c2r = ar + C72 * p1r + C73 * p2r + C71 * p3r;
+                final double c2i = ai + C72 * p1i + C73 * p2i + C71 * p3i;
+                final double c3r = ar + C73 * p1r + C71 * p2r + C72 * p3r;
+                final double c3i = ai + C73 * p1i + C71 * p2i + C72 * p3i;
+                // multiplied with -i
+                final double e1r = S71 * m1i + S72 * m2i + S73 * m3i;
+                final double e1i = -(S71 * m1r + S72 * m2r + S73 * m3r);
+                final double e2r = S72 * m1i - S73 * m2i - S71 * m3i;
+                final double e2i = -(S72 * m1r - S73 * m2r - S71 * m3r);
+                final double e3r = S73 * m1i - S71 * m2i + S72 * m3i;
+                final double e3i = -(S73 * m1r - S71 * m2r + S72 * m3r);
+                twiddle(c1r + e1r, c1i + e1i, stride * j, out + stride, yr, yi);
+                twiddle(c2r + e2r, c2i + e2i, 2 * stride * j, out + 2 * stride, yr, yi);
+                twiddle(c3r + e3r, c3i + e3i, 3 * stride * j, out + 3 * stride, yr, yi);
+                twiddle(c3r - e3r, c3i - e3i, 4 * stride * j, out + 4 * stride, yr, yi);
+                twiddle(c2r - e2r, c2i - e2i, 5 * stride * j, out + 5 * stride, yr, yi);
+                twiddle(c1r - e1r, c1i - e1i, 6 * stride * j, out + 6 * stride, yr, yi);
+            }
+        }
+    }
+
+    /**
+     * Multiplies with {@code exp(-2 pi i k/N)} and stores the result.
+     */
+    private void twiddle(final double re, final double im, final int k, final int index,
+                         final double[] yr, final double[] yi) {
+        final double wr = cos[k];
+        final double wi = -sin[k];
+        yr[index] = re * wr - im * wi;
+        yi[index] = re * wi + im * wr;
+    }
+
+    private void bluestein(final double[] real, final double[] imaginary) {
+        final int m = convolutionFFT.getNumberOfSamples();
+        final double[][] scratch = scratch(m);
+        final double[] ar = scratch[0];
+        final double[] ai = scratch[1];
+        final double[] br = scratch[2];
+        final double[] bi = scratch[3];
+        // a = x * chirp, zero-padded to M
+        for (int k = 0; k < numberOfSamples; k++) {
+            final double wr = chirpReal[k];
+            final double wi = chirpImaginary[k];
+            ar[k] = real[k] * wr - imaginary[k] * wi;
+            ai[k] = real[k] * wi + imaginary[k] * wr;
+        }
+        for (int k = numberOfSamples; k < m; k++) {
+            ar[k] = 0;
+            ai[k] = 0;
+        }
+        convolutionFFT.transform(false, ar, ai, br, bi);
+        // multiply with the kernel spectrum and transform back,
+        // inverse computed as forward transform with swapped real and imaginary part
+        for (int k = 0; k < m; k++) {
+            final double r = br[k] * kernelReal[k] - bi[k] * kernelImaginary[k];
+            final double i = br[k] * kernelImaginary[k] + bi[k] * kernelReal[k];
+            ai[k] = r;
+            ar[k] = i;
+        }
+        convolutionFFT.transform(false, ar, ai, bi, br);
+        final double scale = 1.0 / m;
+        for (int k = 0; k < numberOfSamples; k++) {
+            final double r = br[k] * scale;
+            final double i = bi[k] * scale;
+            final double wr = chirpReal[k];
+            final double wi = chirpImaginary[k];
+            real[k] = r * wr - i * wi;
+            imaginary[k] = r * wi + i * wr;
+        }
+    }
+
+    /**
+     * Per-thread scratch space.
+     *
+     * @param length minimum length
+     * @return four arrays of at least the given length
+     */
+    private static double[][] scratch(final int length) {
+        double[][] scratch = SCRATCH.get();
+        if (scratch == null || scratch[0].length < length) {
+            scratch = new double[4][length];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+}
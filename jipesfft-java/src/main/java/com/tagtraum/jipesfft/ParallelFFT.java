@@ -0,0 +1,327 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * FFT for very large transforms, which spreads a single transform across the
+ * threads of a {@link ForkJoinPool} using the four-step algorithm.
+ * <p>
+ * The {@code N = N1 * N2} samples are viewed as a matrix with {@code N1} rows and
+ * {@code N2} columns. First, all columns are transformed with {@code N1}-point FFTs
+ * and multiplied with twiddle factors, then all rows are transformed with
+ * {@code N2}-point FFTs, and the result is transposed. Columns and rows are transformed
+ * independently of each other, i.e. in parallel, by {@link FFT} instances, which use
+ * native code if available. Both transposes are blocked, so that every cache line
+ * that is read or written is fully used, instead of scattering single values across
+ * the whole array like a bit-reversal permutation does.
+ * Real input is packed into {@code N/2} complex samples, whose spectrum is then split
+ * into the spectrum of the real samples, also in parallel.
+ * <p>
+ * Forward and inverse float transforms of the full spectrum are computed in parallel
+ * for powers of 2 of at least {@link #MIN_PARALLEL_SAMPLES}. Other sizes, half spectra
+ * and double precision transforms are left to {@link PureJavaFFT}.
+ * <p>
+ * Instances are thread-safe. Each parallel transform allocates {@code 2N} floats of
+ * working memory.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class ParallelFFT extends PureJavaFFT {
+
+    /** Smallest number of samples that is transformed in parallel. */
+    public static final int MIN_PARALLEL_SAMPLES = 1 << 16;
+    /** Number of columns or rows transposed together, 16 floats fill a 64 byte cache line. */
+    private static final int BLOCK = 16;
+
+    private final ForkJoinPool pool;
+    /** Transform of {@code N} complex samples. */
+    private final FourStep complex;
+    /** Transform of {@code N/2} complex samples, which pack {@code N} real samples. */
+    private final FourStep packed;
+    /** {@code exp(-2 pi i k/N)} to split the packed spectrum. */
+    private final Twiddles twiddles;
+
+    /**
+     * Constructor for a given number of samples, using the common pool.
+     *
+     * @param numberOfSamples number of samples you intend to transform
+     * @see ForkJoinPool#commonPool()
+     */
+    public ParallelFFT(final int numberOfSamples) {
+        this(numberOfSamples, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for a given number of samples.
+     *
+     * @param numberOfSamples number of samples you intend to transform
+     * @param pool pool that runs the column and row transforms
+     */
+    public ParallelFFT(final int numberOfSamples, final ForkJoinPool pool) {
+        super(numberOfSamples);
+        this.pool = pool;
+        if (numberOfSamples >= MIN_PARALLEL_SAMPLES && isPowerOfTwo(numberOfSamples)) {
+            this.complex = new FourStep(numberOfSamples);
+            this.packed = new FourStep(numberOfSamples / 2);
+            this.twiddles = new Twiddles(numberOfSamples);
+        } else {
+            this.complex = null;
+            this.packed = null;
+            this.twiddles = null;
+        }
+    }
+
+    @Override
+    public void transform(final boolean inverse, final float[] realIn, final float[] imaginaryIn,
+                          final float[] realOut, final float[] imaginaryOut) {
+        if (complex == null) {
+            super.transform(inverse, realIn, imaginaryIn, realOut, imaginaryOut);
+            return;
+        }
+        final int numberOfSamples = getNumberOfSamples();
+        if (realIn.length < numberOfSamples) {
+            throw new IllegalArgumentException("Number of samples must be " + numberOfSamples + " for this instance of PureJavaFFT");
+        }
+        if (imaginaryIn == null) {
+            // spectrum of the packed samples in the lower half, split into the spectrum of the real samples
+            packed.transform(realIn, null, true, realOut, imaginaryOut, inverse ? 1f / numberOfSamples : 1f);
+            RangeTask.invoke(pool, numberOfSamples / 4 + 1, BLOCK, (from, to) -> split(realOut, imaginaryOut, from, to));
+            if (inverse) {
+                // the inverse transform of real input is the conjugate of its scaled forward transform
+                RangeTask.invoke(pool, numberOfSamples, BLOCK, (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        imaginaryOut[i] = -imaginaryOut[i];
+                    }
+                });
+            }
+            return;
+        }
+        // the inverse transform is the forward transform with real and imaginary parts swapped
+        if (inverse) {
+            complex.transform(imaginaryIn, realIn, false, imaginaryOut, realOut, 1f / numberOfSamples);
+        } else {
+            complex.transform(realIn, imaginaryIn, false, realOut, imaginaryOut, 1f);
+        }
+    }
+
+    /**
+     * Computes bins {@code k} and {@code N/2 - k} of the spectrum of real samples for {@code k} in
+     * {@code [from, to)} from bins {@code k} and {@code N/2 - k} of the spectrum {@code Z} of the
+     * packed samples, in place, and mirrors them to the upper half.
+     */
+    private void split(final float[] re, final float[] im, final int from, final int to) {
+        final int numberOfSamples = getNumberOfSamples();
+        final int half = numberOfSamples / 2;
+        for (int k = from; k < to; k++) {
+            if (k == 0) {
+                final float z0Re = re[0];
+                final float z0Im = im[0];
+                re[0] = z0Re + z0Im;
+                im[0] = 0f;
+                re[half] = z0Re - z0Im;
+                im[half] = 0f;
+                continue;
+            }
+            final int j = half - k;
+            // even samples E = (Z[k] + conj(Z[j]))/2, odd samples O = (Z[k] - conj(Z[j]))/2i
+            final float evenRe = (re[k] + re[j]) * 0.5f;
+            final float evenIm = (im[k] - im[j]) * 0.5f;
+            final float oddRe = (im[k] + im[j]) * 0.5f;
+            final float oddIm = (re[j] - re[k]) * 0.5f;
+            final double c = twiddles.cos(k);
+            final double s = twiddles.sin(k);
+            // X[k] = E + exp(-2 pi i k/N) O, X[j] = conj(E) - exp(2 pi i k/N) conj(O)
+            final float wOddRe = (float) (oddRe * c + oddIm * s);
+            final float wOddIm = (float) (oddIm * c - oddRe * s);
+            re[k] = evenRe + wOddRe;
+            im[k] = evenIm + wOddIm;
+            re[j] = evenRe - wOddRe;
+            im[j] = wOddIm - evenIm;
+            re[numberOfSamples - k] = re[k];
+            im[numberOfSamples - k] = -im[k];
+            re[numberOfSamples - j] = re[j];
+            im[numberOfSamples - j] = -im[j];
+        }
+    }
+
+    @Override
+    public void close() {
+        if (complex != null) {
+            complex.close();
+            packed.close();
+        }
+        super.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelFFT{" +
+            "numberOfSamples=" + getNumberOfSamples() +
+            ", parallelism=" + pool.getParallelism() +
+            '}';
+    }
+
+    /**
+     * Four-step transform of a fixed number of complex samples.
+     */
+    private final class FourStep {
+
+        /** Number of rows, i.e. length of the column transforms. */
+        private final int rows;
+        /** Number of columns, i.e. length of the row transforms. */
+        private final int columns;
+        private final FFT columnFFT;
+        private final FFT rowFFT;
+        private final Twiddles twiddles;
+
+        FourStep(final int numberOfSamples) {
+            this.rows = 1 << (Integer.numberOfTrailingZeros(numberOfSamples) / 2);
+            this.columns = numberOfSamples / rows;
+            this.columnFFT = new FFT(rows);
+            this.rowFFT = new FFT(columns);
+            this.twiddles = new Twiddles(numberOfSamples);
+        }
+
+        /**
+         * Transforms all samples.
+         *
+         * @param re real parts, or all samples if packed
+         * @param im imaginary parts, {@code null} for zeros
+         * @param packed if true, sample {@code n} is {@code re[2n] + i re[2n+1]}
+         * @param reOut real parts of the spectrum
+         * @param imOut imaginary parts of the spectrum
+         * @param scale factor the spectrum is multiplied with
+         */
+        void transform(final float[] re, final float[] im, final boolean packed,
+                       final float[] reOut, final float[] imOut, final float scale) {
+            final float[][] matrixRe = new float[rows][columns];
+            final float[][] matrixIm = new float[rows][columns];
+            RangeTask.invoke(pool, columns, BLOCK, (from, to) -> transformColumns(re, im, packed, matrixRe, matrixIm, from, to));
+            RangeTask.invoke(pool, rows, BLOCK, (from, to) -> transformRows(matrixRe, matrixIm, reOut, imOut, scale, from, to));
+        }
+
+        /**
+         * Transforms the columns {@code [from, to)} of the input, multiplies them with the
+         * twiddle factors and writes them to the matrix.
+         */
+        private void transformColumns(final float[] re, final float[] im, final boolean packed,
+                                      final float[][] matrixRe, final float[][] matrixIm,
+                                      final int from, final int to) {
+            final float[][] columnRe = new float[BLOCK][rows];
+            final float[][] columnIm = new float[BLOCK][rows];
+            final float[][] spectrumRe = new float[BLOCK][rows];
+            final float[][] spectrumIm = new float[BLOCK][rows];
+            for (int column = from; column < to; column += BLOCK) {
+                final int width = Math.min(BLOCK, to - column);
+                // blocked transpose: each input row contributes width contiguous values
+                for (int row = 0; row < rows; row++) {
+                    final int offset = row * columns + column;
+                    for (int b = 0; b < width; b++) {
+                        if (packed) {
+                            columnRe[b][row] = re[2 * (offset + b)];
+                            columnIm[b][row] = re[2 * (offset + b) + 1];
+                        } else {
+                            columnRe[b][row] = re[offset + b];
+                            columnIm[b][row] = im == null ? 0f : im[offset + b];
+                        }
+                    }
+                }
+                for (int b = 0; b < width; b++) {
+                    columnFFT.transformInto(columnRe[b], columnIm[b], spectrumRe[b], spectrumIm[b]);
+                }
+                for (int k1 = 0; k1 < rows; k1++) {
+                    final float[] rowRe = matrixRe[k1];
+                    final float[] rowIm = matrixIm[k1];
+                    for (int b = 0; b < width; b++) {
+                        // multiply with exp(-2 pi i column k1/N)
+                        final int exponent = (column + b) * k1;
+                        final double c = twiddles.cos(exponent);
+                        final double s = twiddles.sin(exponent);
+                        final float yRe = spectrumRe[b][k1];
+                        final float yIm = spectrumIm[b][k1];
+                        rowRe[column + b] = (float) (yRe * c + yIm * s);
+                        rowIm[column + b] = (float) (yIm * c - yRe * s);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Transforms the rows {@code [from, to)} of the matrix and writes them transposed to the output.
+         */
+        private void transformRows(final float[][] matrixRe, final float[][] matrixIm,
+                                   final float[] reOut, final float[] imOut, final float scale,
+                                   final int from, final int to) {
+            final float[][] spectrumRe = new float[BLOCK][columns];
+            final float[][] spectrumIm = new float[BLOCK][columns];
+            for (int row = from; row < to; row += BLOCK) {
+                final int height = Math.min(BLOCK, to - row);
+                for (int b = 0; b < height; b++) {
+                    rowFFT.transformInto(matrixRe[row + b], matrixIm[row + b], spectrumRe[b], spectrumIm[b]);
+                }
+                // blocked transpose: bin k1 + rows * k2 of row k1, each output row receives height contiguous values
+                for (int k2 = 0; k2 < columns; k2++) {
+                    final int offset = k2 * rows + row;
+                    for (int b = 0; b < height; b++) {
+                        reOut[offset + b] = spectrumRe[b][k2] * scale;
+                        imOut[offset + b] = spectrumIm[b][k2] * scale;
+                    }
+                }
+            }
+        }
+
+        void close() {
+            columnFFT.close();
+            rowFFT.close();
+        }
+    }
+
+    /**
+     * {@code exp(2 pi i p/n)} for {@code 0 <= p < n}, computed from two tables of
+     * about {@code sqrt(n)} entries with {@code p = hi * fine.length + lo}.
+     */
+    private static final class Twiddles {
+
+        private final int shift;
+        private final int mask;
+        private final double[] fineCos;
+        private final double[] fineSin;
+        private final double[] coarseCos;
+        private final double[] coarseSin;
+
+        Twiddles(final int n) {
+            this.shift = Integer.numberOfTrailingZeros(n) / 2;
+            this.mask = (1 << shift) - 1;
+            this.fineCos = new double[1 << shift];
+            this.fineSin = new double[1 << shift];
+            for (int lo = 0; lo < fineCos.length; lo++) {
+                fineCos[lo] = Math.cos(2.0 * Math.PI * lo / n);
+                fineSin[lo] = Math.sin(2.0 * Math.PI * lo / n);
+            }
+            this.coarseCos = new double[n >> shift];
+            this.coarseSin = new double[n >> shift];
+            for (int hi = 0; hi < coarseCos.length; hi++) {
+                coarseCos[hi] = Math.cos(2.0 * Math.PI * hi / coarseCos.length);
+                coarseSin[hi] = Math.sin(2.0 * Math.PI * hi / coarseCos.length);
+            }
+        }
+
+        double cos(final int p) {
+            final int hi = p >>> shift;
+            final int lo = p & mask;
+            return coarseCos[hi] * fineCos[lo] - coarseSin[hi] * fineSin[lo];
+        }
+
+        double sin(final int p) {
+            final int hi = p >>> shift;
+            final int lo = p & mask;
+            return coarseSin[hi] * fineCos[lo] + coarseCos[hi] * fineSin[lo];
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.Arrays;
+
+/**
+ * Low-latency streaming convolution with long kernels, e.g. impulse responses of
+ * several seconds, using uniformly partitioned overlap-save.
+ * <p>
+ * The kernel is split into partitions of {@code blockSize} taps, whose spectra are
+ * computed once with an FFT of size {@code 2 * blockSize}. For every block of input
+ * samples, one forward transform is added to a frequency-domain delay line of the most
+ * recent input spectra, all partitions are multiplied with their delayed input spectrum
+ * and accumulated, and one inverse transform yields the output block. The latency is
+ * therefore one block, independent of the kernel length, and every block costs the same
+ * amount of work. No memory is allocated once an instance has been created.
+ * <p>
+ * For offline processing of long signals, {@link Convolver} is faster.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see Convolver
+ */
+public class PartitionedConvolver implements AutoCloseable {
+
+    private final int kernelLength;
+    private final int blockSize;
+    private final int partitions;
+    private final int bins;
+    private final FFT fft;
+    /** Spectra of all partitions, one after the other. */
+    private final float[] kernelReal;
+    private final float[] kernelImaginary;
+    /** Spectra of the most recent inputs, {@link #current} is the newest one. */
+    private final float[] delayLineReal;
+    private final float[] delayLineImaginary;
+    /** Previous and current input block. */
+    private final float[] input;
+    private final float[] accumulatorReal;
+    private final float[] accumulatorImaginary;
+    private final float[] output;
+    private int current;
+
+    /**
+     * Creates a partitioned convolver.
+     *
+     * @param kernel kernel, copied
+     * @param blockSize number of samples per block, i.e. partition size and latency,
+     *                  should be a power of 2
+     * @throws IllegalArgumentException if the kernel is empty or the block size is not positive
+     */
+    public PartitionedConvolver(final float[] kernel, final int blockSize) {
+        if (kernel.length == 0) {
+            throw new IllegalArgumentException("Kernel must not be empty");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.kernelLength = kernel.length;
+        this.blockSize = blockSize;
+        this.partitions = (kernel.length + blockSize - 1) / blockSize;
+        this.fft = new FFT(2 * blockSize);
+        this.bins = fft.getHalfSpectrumLength();
+        this.kernelReal = new float[partitions * bins];
+        this.kernelImaginary = new float[partitions * bins];
+        this.delayLineReal = new float[partitions * bins];
+        this.delayLineImaginary = new float[partitions * bins];
+        this.input = new float[2 * blockSize];
+        this.accumulatorReal = new float[bins];
+        this.accumulatorImaginary = new float[bins];
+        this.output = new float[2 * blockSize];
+
+        // each partition is zero-padded to twice its size
+        final float[] padded = new float[2 * blockSize];
+        for (int p = 0; p < partitions; p++) {
+            Arrays.fill(padded, 0f);
+            System.arraycopy(kernel, p * blockSize, padded, 0, Math.min(blockSize, kernel.length - p * blockSize));
+            fft.transformToHalfSpectrum(padded, accumulatorReal, accumulatorImaginary);
+            System.arraycopy(accumulatorReal, 0, kernelReal, p * bins, bins);
+            System.arraycopy(accumulatorImaginary, 0, kernelImaginary, p * bins, bins);
+        }
+    }
+
+    /**
+     * Number of kernel taps.
+     *
+     * @return kernel length
+     */
+    public int getKernelLength() {
+        return kernelLength;
+    }
+
+    /**
+     * Number of samples per block.
+     *
+     * @return block size
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Number of kernel partitions, i.e. the length of the frequency-domain delay line.
+     *
+     * @return partitions
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Convolves the next block of {@code blockSize} samples with the kernel.
+     * Output sample {@code n} of the stream is {@code sum_k kernel[k] * in[n - k]},
+     * where samples before the first block are zero.
+     *
+     * @param in input samples
+     * @param inOffset index of the first input sample
+     * @param out array the {@code blockSize} output samples are written to.
+     *            May be the same array as {@code in}.
+     * @param outOffset index of the first output sample
+     * @throws IndexOutOfBoundsException if an array is too short
+     */
+    public void process(final float[] in, final int inOffset, final float[] out, final int outOffset) {
+        if (inOffset < 0 || inOffset > in.length - blockSize || outOffset < 0 || outOffset > out.length - blockSize) {
+            throw new IndexOutOfBoundsException("Arrays are too short for block size " + blockSize);
+        }
+        // slide the input window by one block and transform it into the newest delay line slot
+        System.arraycopy(input, blockSize, input, 0, blockSize);
+        System.arraycopy(in, inOffset, input, blockSize, blockSize);
+        current = current == 0 ? partitions - 1 : current - 1;
+        fft.transformToHalfSpectrum(input, accumulatorReal, accumulatorImaginary);
+        System.arraycopy(accumulatorReal, 0, delayLineReal, current * bins, bins);
+        System.arraycopy(accumulatorImaginary, 0, delayLineImaginary, current * bins, bins);
+
+        // multiply-accumulate partition p with the input spectrum from p blocks ago
+        Arrays.fill(accumulatorReal, 0f);
+        Arrays.fill(accumulatorImaginary, 0f);
+        for (int p = 0; p < partitions; p++) {
+            final int slot = current + p < partitions ? current + p : current + p - partitions;
+            multiplyAccumulate(p * bins, slot * bins);
+        }
+
+        // the first half is circularly aliased, the second half is the linear convolution
+        fft.inverseTransformFromHalfSpectrum(accumulatorReal, accumulatorImaginary, output);
+        System.arraycopy(output, blockSize, out, outOffset, blockSize);
+    }
+
+    /**
+     * Convolves a number of complete blocks with the kernel.
+     *
+     * @param in input samples, a multiple of {@code blockSize}
+     * @param out array of at least {@code in.length} the output samples are written to.
+     *            May be the same array as {@code in}.
+     * @throws IllegalArgumentException if the input is not a multiple of the block size
+     * @throws IndexOutOfBoundsException if the output array is too short
+     * @see #process(float[], int, float[], int)
+     */
+    public void process(final float[] in, final float[] out) {
+        if (in.length % blockSize != 0) {
+            throw new IllegalArgumentException("Length of in must be a multiple of the block size " + blockSize + ": " + in.length);
+        }
+        for (int offset = 0; offset < in.length; offset += blockSize) {
+            process(in, offset, out, offset);
+        }
+    }
+
+    /**
+     * Discards the input history, so that this instance can be used for a new stream.
+     */
+    public void reset() {
+        Arrays.fill(input, 0f);
+        Arrays.fill(delayLineReal, 0f);
+        Arrays.fill(delayLineImaginary, 0f);
+        current = 0;
+    }
+
+    private void multiplyAccumulate(final int kernelOffset, final int delayLineOffset) {
+        for (int i = 0; i < bins; i++) {
+            final float xRe = delayLineReal[delayLineOffset + i];
+            final float xIm = delayLineImaginary[delayLineOffset + i];
+            final float hRe = kernelReal[kernelOffset + i];
+            final float hIm = kernelImaginary[kernelOffset + i];
+            accumulatorReal[i] += xRe * hRe - xIm * hIm;
+            accumulatorImaginary[i] += xRe * hIm + xIm * hRe;
+        }
+    }
+
+    /**
+     * Releases the underlying {@link FFT}.
+     */
+    @Override
+    public void close() {
+        fft.close();
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionedConvolver{" +
+            "kernelLength=" + kernelLength +
+            ", blockSize=" + blockSize +
+            ", partitions=" + partitions +
+            '}';
+    }
+}
@@ -6,41 +6,53 @@
  */
 package com.tagtraum.jipesfft;
 
+import java.util.Arrays;
+
 /**
  * Pure Java FFT for a specific number of samples.
  * Used as fallback for certain cases by {@link FFT}.
+ * <p>
+ * Sizes that are a power of 2 are transformed fastest. Other sizes are
+ * supported as well, see {@link MixedRadixFFT}; products of 2, 3, 5 and 7 are
+ * computed with mixed-radix kernels, all others with Bluestein's algorithm.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
 public class PureJavaFFT extends AbstractFFT {
 
-    private static final int MAX_FAST_BITS = 16;
-    private static final int[][] FFT_BIT_TABLE = new int[MAX_FAST_BITS][];
+    private static final ThreadLocal<float[][]> SCRATCH = new ThreadLocal<>();
+    private static final ThreadLocal<double[][]> DOUBLE_SCRATCH = new ThreadLocal<>();
+    private static final float SQRT1_2 = (float) Math.sqrt(0.5);
     private final int[] reverseIndices;
-
-    static {
-        int len = 2;
-        for (int b = 1; b <= MAX_FAST_BITS; b++) {
-            FFT_BIT_TABLE[b - 1] = new int[len];
-            for (int i = 0; i < len; i++) {
-                FFT_BIT_TABLE[b - 1][i] = reverseBits(i, b);
-            }
-            len <<= 1;
-        }
-    }
+    private final double[] cos;
+    private final double[] sin;
+    private final double[] cos3;
+    private final double[] sin3;
+    /** Kernels for sizes that are not a power of 2, otherwise {@code null}. */
+    private final MixedRadixFFT mixedRadixFFT;
 
     /**
      * Constructor for a given number of samples.
      *
-     * @param numberOfSamples number of samples you intend to transform, must be a power of two
+     * @param numberOfSamples number of samples you intend to transform
      */
     public PureJavaFFT(final int numberOfSamples) {
         super(numberOfSamples);
-        final int numberOfBits = getNumberOfNeededBits(numberOfSamples);
-        this.reverseIndices = new int[numberOfSamples];
-        for (int i = 0; i < numberOfSamples; i++) {
-            final int j = fastReverseBits(i, numberOfBits);
-            this.reverseIndices[i] = j;
+        if (isPowerOfTwo(numberOfSamples)) {
+            final FFTTables tables = FFTTables.getInstance(numberOfSamples);
+            this.reverseIndices = tables.reverseIndices;
+            this.cos = tables.cos;
+            this.sin = tables.sin;
+            this.cos3 = tables.cos3;
+            this.sin3 = tables.sin3;
+            this.mixedRadixFFT = null;
+        } else {
+            this.reverseIndices = null;
+            this.cos = null;
+            this.sin = null;
+            this.cos3 = null;
+            this.sin3 = null;
+            this.mixedRadixFFT = new MixedRadixFFT(numberOfSamples);
         }
     }
 
@@ -52,8 +64,8 @@ public class PureJavaFFT extends AbstractFFT {
      * @return two-dimensional array for the real and the imaginary parts
      */
     public float[][] inverseTransform(final float[] real, final float[] imaginary) {
-        final float[][] out = new float[2][real.length];
-        transform(true, real, imaginary, out[0], out[1]);
+        final float[][] out = new float[2][getNumberOfSamples()];
+        inverseTransformInto(real, imaginary, out[0], out[1]);
         return out;
     }
 
@@ -64,8 +76,8 @@ public class PureJavaFFT extends AbstractFFT {
      * @return three-dimensional array, consisting of the real part, the imaginary, and the frequencies
      */
     public float[][] transform(final float[] real) {
-        final float[][] out = new float[3][real.length];
-        transform(false, real, null, out[0], out[1]);
+        final float[][] out = new float[3][getNumberOfSamples()];
+        transformInto(real, out[0], out[1]);
         out[2] = getFrequencies();
         return out;
     }
@@ -78,14 +90,167 @@ public class PureJavaFFT extends AbstractFFT {
      * @return three-dimensional array, consisting of the real part, the imaginary, and the frequencies
      */
     public float[][] transform(final float[] real, final float[] imaginary) {
-        final float[][] out = new float[3][real.length];
-        transform(false, real, imaginary, out[0], out[1]);
+        final float[][] out = new float[3][getNumberOfSamples()];
+        transformInto(real, imaginary, out[0], out[1]);
         out[2] = getFrequencies();
         return out;
     }
 
+    @Override
+    public double[][] inverseTransform(final double[] real, final double[] imaginary) {
+        final double[][] out = new double[2][getNumberOfSamples()];
+        inverseTransformInto(real, imaginary, out[0], out[1]);
+        return out;
+    }
+
+    @Override
+    public double[][] transform(final double[] real) {
+        final double[][] out = new double[3][getNumberOfSamples()];
+        transformInto(real, out[0], out[1]);
+        out[2] = getDoubleFrequencies();
+        return out;
+    }
+
+    @Override
+    public double[][] transform(final double[] real, final double[] imaginary) {
+        final double[][] out = new double[3][getNumberOfSamples()];
+        transformInto(real, imaginary, out[0], out[1]);
+        out[2] = getDoubleFrequencies();
+        return out;
+    }
+
+    @Override
+    public void inverseTransformInto(final float[] real, final float[] imaginary,
+                                     final float[] realOut, final float[] imaginaryOut) {
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        transform(true, real, imaginary, realOut, imaginaryOut);
+    }
+
+    @Override
+    public void transformInto(final float[] real, final float[] realOut, final float[] imaginaryOut) {
+        checkArrays(real, null, realOut, imaginaryOut);
+        transform(false, real, null, realOut, imaginaryOut);
+    }
+
+    @Override
+    public void transformInto(final float[] real, final float[] imaginary,
+                              final float[] realOut, final float[] imaginaryOut) {
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        transform(false, real, imaginary, realOut, imaginaryOut);
+    }
+
+    @Override
+    public void inverseTransformInto(final double[] real, final double[] imaginary,
+                                     final double[] realOut, final double[] imaginaryOut) {
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        transform(true, real, imaginary, realOut, imaginaryOut);
+    }
+
+    @Override
+    public void transformInto(final double[] real, final double[] realOut, final double[] imaginaryOut) {
+        checkArrays(real, null, realOut, imaginaryOut);
+        transform(false, real, null, realOut, imaginaryOut);
+    }
+
+    @Override
+    public void transformInto(final double[] real, final double[] imaginary,
+                              final double[] realOut, final double[] imaginaryOut) {
+        checkArrays(real, imaginary, realOut, imaginaryOut);
+        transform(false, real, imaginary, realOut, imaginaryOut);
+    }
+
+    @Override
+    public void transformToHalfSpectrum(final float[] real, final float[] realOut, final float[] imaginaryOut) {
+        checkHalfSpectrumArrays(real, realOut, imaginaryOut);
+        if (mixedRadixFFT != null) {
+            mixedRadixHalfForward(real, null, realOut, imaginaryOut);
+            return;
+        }
+        if (getNumberOfSamples() < 2) {
+            transform(false, real, null, realOut, imaginaryOut);
+            return;
+        }
+        realForward(real, null, realOut, imaginaryOut);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For powers of 2, the window is applied while the samples are copied
+     * in bit-reversed order.
+     */
+    @Override
+    public void transformWindowedInto(final float[] real, final Window window, final float[] realOut, final float[] imaginaryOut) {
+        if (mixedRadixFFT != null || getNumberOfSamples() < 2) {
+            super.transformWindowedInto(real, window, realOut, imaginaryOut);
+            return;
+        }
+        checkWindow(window);
+        checkArrays(real, null, realOut, imaginaryOut);
+        realForward(real, window.coefficients(), realOut, imaginaryOut);
+        mirror(realOut, imaginaryOut);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The window is applied while the samples are copied into working memory,
+     * for powers of 2 in bit-reversed order.
+     */
+    @Override
+    public void transformWindowedToHalfSpectrum(final float[] real, final Window window, final float[] realOut, final float[] imaginaryOut) {
+        if (getNumberOfSamples() < 2) {
+            super.transformWindowedToHalfSpectrum(real, window, realOut, imaginaryOut);
+            return;
+        }
+        checkWindow(window);
+        checkHalfSpectrumArrays(real, realOut, imaginaryOut);
+        if (mixedRadixFFT != null) {
+            mixedRadixHalfForward(real, window.coefficients(), realOut, imaginaryOut);
+        } else {
+            realForward(real, window.coefficients(), realOut, imaginaryOut);
+        }
+    }
+
+    /**
+     * Computes the complex half spectrum in per-thread scratch space
+     * and only writes the requested kind of spectrum.
+     */
+    @Override
+    void spectrum(final Spectrum spectrum, final float[] samples, final Window window, final float[] out) {
+        if (getNumberOfSamples() < 2) {
+            super.spectrum(spectrum, samples, window, out);
+            return;
+        }
+        final int halfSpectrumLength = getHalfSpectrumLength();
+        final float[][] scratch = scratch(halfSpectrumLength);
+        final float[] coefficients = window == null ? null : window.coefficients();
+        if (mixedRadixFFT != null) {
+            mixedRadixHalfForward(samples, coefficients, scratch[0], scratch[1]);
+        } else {
+            realForward(samples, coefficients, scratch[0], scratch[1]);
+        }
+        spectrum.compute(scratch[0], scratch[1], out, halfSpectrumLength);
+    }
+
+    @Override
+    public void inverseTransformFromHalfSpectrum(final float[] real, final float[] imaginary, final float[] out) {
+        checkHalfSpectrumArrays(out, real, imaginary);
+        if (mixedRadixFFT != null) {
+            mixedRadixHalfInverse(real, imaginary, out);
+            return;
+        }
+        if (getNumberOfSamples() < 2) {
+            System.arraycopy(real, 0, out, 0, getNumberOfSamples());
+            return;
+        }
+        realInverse(real, imaginary, out);
+    }
+
     /**
      * Actual fast Fourier transform implementation.
+     * If {@code imaginaryIn} is {@code null} and this is a forward transform,
+     * the faster real-input algorithm is used.
      *
      * @param inverse      inverse or not
      * @param realIn       real portion input
@@ -99,9 +264,18 @@ public class PureJavaFFT extends AbstractFFT {
                           final float[] realOut,
                           final float[] imaginaryOut) {
         final int numberOfSamples = getNumberOfSamples();
-        if (realIn.length != numberOfSamples) {
+        if (realIn.length < numberOfSamples) {
             throw new IllegalArgumentException("Number of samples must be " + numberOfSamples + " for this instance of PureJavaFFT");
         }
+        if (mixedRadixFFT != null) {
+            mixedRadixTransform(inverse, realIn, imaginaryIn, realOut, imaginaryOut);
+            return;
+        }
+        if (!inverse && imaginaryIn == null && numberOfSamples >= 2) {
+            realForward(realIn, null, realOut, imaginaryOut);
+            mirror(realOut, imaginaryOut);
+            return;
+        }
         for (int i = 0; i < numberOfSamples; i++) {
             realOut[this.reverseIndices[i]] = realIn[i];
         }
@@ -109,62 +283,693 @@ public class PureJavaFFT extends AbstractFFT {
             for (int i = 0; i < numberOfSamples; i++) {
                 imaginaryOut[this.reverseIndices[i]] = imaginaryIn[i];
             }
+        } else {
+            // output arrays may be re-used, so we must not rely on them being zeroed
+            Arrays.fill(imaginaryOut, 0, numberOfSamples, 0f);
         }
 
-        int blockEnd = 1;
-        final double angleNumerator;
-        if (inverse) angleNumerator = -2.0 * Math.PI;
-        else angleNumerator = 2.0 * Math.PI;
-        for (int blockSize = 2; blockSize <= numberOfSamples; blockSize <<= 1) {
-            final double deltaAngle = angleNumerator / (float) blockSize;
-            final double sm2 = (-Math.sin(-2 * deltaAngle));
-            final double sm1 = (-Math.sin(-deltaAngle));
-            final double cm2 = (Math.cos(-2 * deltaAngle));
-            final double cm1 = (Math.cos(-deltaAngle));
-            final double w = 2 * cm1;
-            double ar1;
-            double ai1;
-            double ar2;
-            double ai2;
+        butterflies(numberOfSamples, inverse, realOut, imaginaryOut);
 
-            for (int i = 0; i < numberOfSamples; i += blockSize) {
-                ar2 = cm2;
-                ar1 = cm1;
+        // normalize, if inverse transform
+        if (inverse) {
+            normalize(realOut, imaginaryOut);
+        }
+    }
 
-                ai2 = sm2;
-                ai1 = sm1;
+    /**
+     * Restores the redundant bins {@code N/2+1} to {@code N-1} of the spectrum
+     * of a real signal, i.e. the complex conjugate mirror of bins {@code N/2-1} to {@code 1}.
+     */
+    private void mirror(final float[] realOut, final float[] imaginaryOut) {
+        final int numberOfSamples = getNumberOfSamples();
+        for (int i = 1; i < numberOfSamples / 2; i++) {
+            realOut[numberOfSamples - i] = realOut[i];
+            imaginaryOut[numberOfSamples - i] = -imaginaryOut[i];
+        }
+    }
 
-                for (int j = i, n = 0; n < blockEnd; j++, n++) {
-                    final double ar0 = w * ar1 - ar2;
-                    ar2 = ar1;
-                    ar1 = ar0;
+    /**
+     * Forward transform for real input.
+     * The {@code N} real samples are packed into a complex signal of length {@code N/2},
+     * with even samples as real and odd samples as imaginary part. After an
+     * {@code N/2}-point complex FFT, the spectra of even and odd samples are
+     * separated again and combined into the {@code N/2+1} non-redundant bins
+     * of the {@code N}-point spectrum. Everything happens in-place in the output arrays.
+     *
+     * @param samples samples
+     * @param window window coefficients, applied while packing the samples, or {@code null}
+     * @param realOut real out, at least {@code N/2+1} long
+     * @param imaginaryOut imaginary out, at least {@code N/2+1} long
+     */
+    private void realForward(final float[] samples, final float[] window, final float[] realOut, final float[] imaginaryOut) {
+        final int half = getNumberOfSamples() / 2;
+        // reverseIndices[2*i] equals the bit-reversal of i for N/2
+        if (window == null) {
+            for (int i = 0; i < half; i++) {
+                final int j = this.reverseIndices[2 * i];
+                realOut[j] = samples[2 * i];
+                imaginaryOut[j] = samples[2 * i + 1];
+            }
+        } else {
+            for (int i = 0; i < half; i++) {
+                final int j = this.reverseIndices[2 * i];
+                realOut[j] = samples[2 * i] * window[2 * i];
+                imaginaryOut[j] = samples[2 * i + 1] * window[2 * i + 1];
+            }
+        }
 
-                    final double ai0 = w * ai1 - ai2;
-                    ai2 = ai1;
-                    ai1 = ai0;
+        butterflies(half, false, realOut, imaginaryOut);
 
-                    final int k = j + blockEnd;
-                    /* temp real, temp imaginary */
-                    final double tr = ar0 * realOut[k] - ai0 * imaginaryOut[k];
-                    final double ti = ar0 * imaginaryOut[k] + ai0 * realOut[k];
+        final float z0r = realOut[0];
+        final float z0i = imaginaryOut[0];
+        realOut[0] = z0r + z0i;
+        imaginaryOut[0] = 0f;
+        realOut[half] = z0r - z0i;
+        imaginaryOut[half] = 0f;
+        // bins k and N/2-k depend on each other, so we compute them pairwise
+        for (int k = 1; k <= half / 2; k++) {
+            final int m = half - k;
+            final double a = realOut[k];
+            final double b = imaginaryOut[k];
+            final double c = realOut[m];
+            final double d = imaginaryOut[m];
+            // spectrum of the even samples
+            final double er = (a + c) * 0.5;
+            final double ei = (b - d) * 0.5;
+            // spectrum of the odd samples
+            final double or = (b + d) * 0.5;
+            final double oi = (c - a) * 0.5;
+            // twiddle exp(-2 pi i k/N)
+            final double wr = this.cos[half + k];
+            final double wi = -this.sin[half + k];
+            final double tr = wr * or - wi * oi;
+            final double ti = wr * oi + wi * or;
 
-                    realOut[k] = (float) (realOut[j] - tr);
-                    imaginaryOut[k] = (float)(imaginaryOut[j] - ti);
+            realOut[k] = (float) (er + tr);
+            imaginaryOut[k] = (float) (ei + ti);
+            realOut[m] = (float) (er - tr);
+            imaginaryOut[m] = (float) (ti - ei);
+        }
+    }
 
-                    realOut[j] += tr;
-                    imaginaryOut[j] += ti;
-                }
+    /**
+     * Inverse transform from the {@code N/2+1} non-redundant bins to a real signal.
+     * This reverses the steps of {@link #realForward(float[], float[], float[], float[])}:
+     * The spectra of even and odd samples are combined into one {@code N/2}-point
+     * complex spectrum, which is transformed with an {@code N/2}-point complex
+     * inverse FFT. Real and imaginary part of the result are the even and odd samples.
+     *
+     * @param real real part of bins {@code 0} to {@code N/2}
+     * @param imaginary imaginary part of bins {@code 0} to {@code N/2}
+     * @param out real output, at least {@code N} long
+     */
+    private void realInverse(final float[] real, final float[] imaginary, final float[] out) {
+        final int half = getNumberOfSamples() / 2;
+        final float[][] scratch = scratch(half);
+        final float[] zr = scratch[0];
+        final float[] zi = scratch[1];
+
+        // reverseIndices[2*i] equals the bit-reversal of i for N/2, and it's 0 for 0
+        zr[0] = (real[0] + real[half]) * 0.5f;
+        zi[0] = (real[0] - real[half]) * 0.5f;
+        for (int k = 1; k <= half / 2; k++) {
+            final int m = half - k;
+            final double a = real[k];
+            final double b = imaginary[k];
+            final double c = real[m];
+            final double d = imaginary[m];
+            // spectrum of the even samples
+            final double er = (a + c) * 0.5;
+            final double ei = (b - d) * 0.5;
+            // spectrum of the odd samples, multiplied with the twiddle exp(2 pi i k/N)
+            final double dr = (a - c) * 0.5;
+            final double di = (b + d) * 0.5;
+            final double wr = this.cos[half + k];
+            final double wi = this.sin[half + k];
+            final double or = dr * wr - di * wi;
+            final double oi = dr * wi + di * wr;
+
+            final int j = this.reverseIndices[2 * k];
+            final int l = this.reverseIndices[2 * m];
+            zr[j] = (float) (er - oi);
+            zi[j] = (float) (ei + or);
+            zr[l] = (float) (er + oi);
+            zi[l] = (float) (or - ei);
+        }
+
+        butterflies(half, true, zr, zi);
+
+        final float scale = 1f / half;
+        for (int i = 0; i < half; i++) {
+            out[2 * i] = zr[i] * scale;
+            out[2 * i + 1] = zi[i] * scale;
+        }
+    }
+
+    /**
+     * Decimation-in-time butterflies for data that has already been
+     * brought into bit-reversed order.
+     * The inverse transform is computed as forward transform with real and
+     * imaginary part swapped, so that only one set of kernels is needed.
+     *
+     * @param n            number of complex values to transform, power of 2, at most {@code N}
+     * @param inverse      inverse or not
+     * @param realOut      real part, transformed in-place
+     * @param imaginaryOut imaginary part, transformed in-place
+     */
+    private void butterflies(final int n, final boolean inverse,
+                             final float[] realOut, final float[] imaginaryOut) {
+        if (inverse) {
+            forwardButterflies(n, imaginaryOut, realOut);
+        } else {
+            forwardButterflies(n, realOut, imaginaryOut);
+        }
+    }
+
+    /**
+     * Forward butterflies. The first two or three radix-2 stages are done by
+     * twiddle-free 4- or 8-point codelets, all remaining stages pairwise by radix-4 passes.
+     * This way sizes 4 and 8 are handled by a codelet alone, 16 and 32 by a
+     * codelet and a single radix-4 pass.
+     *
+     * @param n  number of complex values to transform, power of 2, at most {@code N}
+     * @param re real part, transformed in-place
+     * @param im imaginary part, transformed in-place
+     */
+    private void forwardButterflies(final int n, final float[] re, final float[] im) {
+        if (n < 2) return;
+        if (n == 2) {
+            final float r = re[1];
+            final float i = im[1];
+            re[1] = re[0] - r;
+            im[1] = im[0] - i;
+            re[0] += r;
+            im[0] += i;
+            return;
+        }
+        int quarter;
+        if ((Integer.numberOfTrailingZeros(n) & 1) == 0) {
+            radix4Codelets(n, re, im);
+            quarter = 4;
+        } else {
+            radix8Codelets(n, re, im);
+            quarter = 8;
+        }
+        for (; quarter < n; quarter <<= 2) {
+            radix4Pass(n, quarter, re, im);
+        }
+    }
+
+    /**
+     * 4-point DFTs of each consecutive block of four bit-reversed values.
+     *
+     * @param n  number of complex values, multiple of 4
+     * @param re real part, transformed in-place
+     * @param im imaginary part, transformed in-place
+     */
+    private static void radix4Codelets(final int n, final float[] re, final float[] im) {
+        for (int i = 0; i < n; i += 4) {
+            // bit-reversed order: x0, x2, x1, x3
+            final float s0r = re[i] + re[i + 1];
+            final float s0i = im[i] + im[i + 1];
+            final float d0r = re[i] - re[i + 1];
+            final float d0i = im[i] - im[i + 1];
+            final float s1r = re[i + 2] + re[i + 3];
+            final float s1i = im[i + 2] + im[i + 3];
+            final float d1r = re[i + 2] - re[i + 3];
+            final float d1i = im[i + 2] - im[i + 3];
+            re[i] = s0r + s1r;
+            im[i] = s0i + s1i;
+            re[i + 2] = s0r - s1r;
+            im[i + 2] = s0i - s1i;
+            // -i * d1
+            re[i + 1] = d0r + d1i;
+            im[i + 1] = d0i - d1r;
+            re[i + 3] = d0r - d1i;
+            im[i + 3] = d0i + d1r;
+        }
+    }
+
+    /**
+     * 8-point DFTs of each consecutive block of eight bit-reversed values.
+     *
+     * @param n  number of complex values, multiple of 8
+     * @param re real part, transformed in-place
+     * @param im imaginary part, transformed in-place
+     */
+    private static void radix8Codelets(final int n, final float[] re, final float[] im) {
+        radix4Codelets(n, re, im);
+        for (int i = 0; i < n; i += 8) {
+            // combine the 4-point DFTs of the even (i..i+3) and odd (i+4..i+7) values
+            // with the twiddles 1, (1-i)/sqrt(2), -i, (-1-i)/sqrt(2)
+            final float o0r = re[i + 4];
+            final float o0i = im[i + 4];
+            final float o1r = (re[i + 5] + im[i + 5]) * SQRT1_2;
+            final float o1i = (im[i + 5] - re[i + 5]) * SQRT1_2;
+            final float o2r = im[i + 6];
+            final float o2i = -re[i + 6];
+            final float o3r = (im[i + 7] - re[i + 7]) * SQRT1_2;
+            final float o3i = -(re[i + 7] + im[i + 7]) * SQRT1_2;
+            re[i + 4] = re[i] - o0r;
+            im[i + 4] = im[i] - o0i;
+            re[i] += o0r;
+            im[i] += o0i;
+            re[i + 5] = re[i + 1] - o1r;
+            im[i + 5] = im[i + 1] - o1i;
+            re[i + 1] += o1r;
+            im[i + 1] += o1i;
+            re[i + 6] = re[i + 2] - o2r;
+            im[i + 6] = im[i + 2] - o2i;
+            re[i + 2] += o2r;
+            im[i + 2] += o2i;
+            re[i + 7] = re[i + 3] - o3r;
+            im[i + 7] = im[i + 3] - o3i;
+            re[i + 3] += o3r;
+            im[i + 3] += o3i;
+        }
+    }
+
+    /**
+     * Radix-4 pass, combining four DFTs of length {@code quarter} into one of
+     * length {@code 4 * quarter}. Compared to two radix-2 stages, this saves
+     * a quarter of the complex multiplications and one pass over the data.
+     * <p>
+     * This is the innermost loop for all but the smallest sizes, and therefore
+     * the place where subclasses may plug in an accelerated implementation.
+     * Input and output are in natural order within each block of length
+     * {@code 4 * quarter}, and the DFT of the {@code (4k+2)}-values precedes
+     * the one of the {@code (4k+1)}-values (bit-reversed order).
+     *
+     * @param n       number of complex values
+     * @param quarter length of the DFTs to combine, power of 2, at least 4
+     * @param re      real part, transformed in-place
+     * @param im      imaginary part, transformed in-place
+     */
+    protected void radix4Pass(final int n, final int quarter, final float[] re, final float[] im) {
+        final double[] cos = this.cos;
+        final double[] sin = this.sin;
+        final double[] cos3 = this.cos3;
+        final double[] sin3 = this.sin3;
+        final int twiddle1 = 2 * quarter;
+        final int twiddle2 = quarter;
+        for (int i = 0; i < n; i += 4 * quarter) {
+            for (int m = 0; m < quarter; m++) {
+                final int i0 = i + m;
+                final int i1 = i0 + quarter;
+                final int i2 = i1 + quarter;
+                final int i3 = i2 + quarter;
+                // bit-reversed order: the DFT of the (4k+2)-values precedes the one of the (4k+1)-values.
+                // twiddles are exp(-i pi m r/(2 quarter)), multiplications by (c - i s)
+                final double w2r = cos[twiddle2 + m];
+                final double w2i = sin[twiddle2 + m];
+                final double c2r = w2r * re[i1] + w2i * im[i1];
+                final double c2i = w2r * im[i1] - w2i * re[i1];
+                final double w1r = cos[twiddle1 + m];
+                final double w1i = sin[twiddle1 + m];
+                final double c1r = w1r * re[i2] + w1i * im[i2];
+                final double c1i = w1r * im[i2] - w1i * re[i2];
+                final double w3r = cos3[twiddle1 + m];
+                final double w3i = sin3[twiddle1 + m];
+                final double c3r = w3r * re[i3] + w3i * im[i3];
+                final double c3i = w3r * im[i3] - w3i * re[i3];
+
+                final double s0r = re[i0] + c2r;
+                final double s0i = im[i0] + c2i;
+                final double d0r = re[i0] - c2r;
+                final double d0i = im[i0] - c2i;
+                final double s1r = c1r + c3r;
+                final double s1i = c1i + c3i;
+                final double d1r = c1r - c3r;
+                final double d1i = c1i - c3i;
+
+                re[i0] = (float) (s0r + s1r);
+                im[i0] = (float) (s0i + s1i);
+                re[i2] = (float) (s0r - s1r);
+                im[i2] = (float) (s0i - s1i);
+                // -i * d1
+                re[i1] = (float) (d0r + d1i);
+                im[i1] = (float) (d0i - d1r);
+                re[i3] = (float) (d0r - d1i);
+                im[i3] = (float) (d0i + d1r);
             }
+        }
+    }
 
-            blockEnd = blockSize;
+    /**
+     * Fast Fourier transform with double precision.
+     * If {@code imaginaryIn} is {@code null} and this is a forward transform,
+     * the faster real-input algorithm is used.
+     *
+     * @param inverse      inverse or not
+     * @param realIn       real portion input
+     * @param imaginaryIn  imaginary in
+     * @param realOut      real out
+     * @param imaginaryOut imaginary out
+     * @see #transform(boolean, float[], float[], float[], float[])
+     */
+    public void transform(final boolean inverse,
+                          final double[] realIn,
+                          final double[] imaginaryIn,
+                          final double[] realOut,
+                          final double[] imaginaryOut) {
+        final int numberOfSamples = getNumberOfSamples();
+        if (realIn.length < numberOfSamples) {
+            throw new IllegalArgumentException("Number of samples must be " + numberOfSamples + " for this instance of PureJavaFFT");
+        }
+        if (mixedRadixFFT != null) {
+            mixedRadixTransform(inverse, realIn, imaginaryIn, realOut, imaginaryOut);
+            return;
+        }
+        if (!inverse && imaginaryIn == null && numberOfSamples >= 2) {
+            realForward(realIn, realOut, imaginaryOut);
+            // restore the redundant bins, i.e. the complex conjugate mirror
+            for (int i = 1; i < numberOfSamples / 2; i++) {
+                realOut[numberOfSamples - i] = realOut[i];
+                imaginaryOut[numberOfSamples - i] = -imaginaryOut[i];
+            }
+            return;
+        }
+        for (int i = 0; i < numberOfSamples; i++) {
+            realOut[this.reverseIndices[i]] = realIn[i];
+        }
+        if (imaginaryIn != null) {
+            for (int i = 0; i < numberOfSamples; i++) {
+                imaginaryOut[this.reverseIndices[i]] = imaginaryIn[i];
+            }
+        } else {
+            // output arrays may be re-used, so we must not rely on them being zeroed
+            Arrays.fill(imaginaryOut, 0, numberOfSamples, 0.0);
         }
 
-        // normalize, if inverse transform
         if (inverse) {
-            normalize(realOut, imaginaryOut);
+            // inverse transform is the forward transform with real and imaginary part swapped
+            forwardButterflies(numberOfSamples, imaginaryOut, realOut);
+            final double scale = 1.0 / numberOfSamples;
+            for (int i = 0; i < numberOfSamples; i++) {
+                realOut[i] *= scale;
+                imaginaryOut[i] *= scale;
+            }
+        } else {
+            forwardButterflies(numberOfSamples, realOut, imaginaryOut);
+        }
+    }
+
+    /**
+     * Forward transform for real input with double precision.
+     *
+     * @param samples samples
+     * @param realOut real out, at least {@code N/2+1} long
+     * @param imaginaryOut imaginary out, at least {@code N/2+1} long
+     * @see #realForward(float[], float[], float[], float[])
+     */
+    private void realForward(final double[] samples, final double[] realOut, final double[] imaginaryOut) {
+        final int half = getNumberOfSamples() / 2;
+        for (int i = 0; i < half; i++) {
+            final int j = this.reverseIndices[2 * i];
+            realOut[j] = samples[2 * i];
+            imaginaryOut[j] = samples[2 * i + 1];
+        }
+
+        forwardButterflies(half, realOut, imaginaryOut);
+
+        final double z0r = realOut[0];
+        final double z0i = imaginaryOut[0];
+        realOut[0] = z0r + z0i;
+        imaginaryOut[0] = 0.0;
+        realOut[half] = z0r - z0i;
+        imaginaryOut[half] = 0.0;
+        for (int k = 1; k <= half / 2; k++) {
+            final int m = half - k;
+            final double a = realOut[k];
+            final double b = imaginaryOut[k];
+            final double c = realOut[m];
+            final double d = imaginaryOut[m];
+            final double er = (a + c) * 0.5;
+            final double ei = (b - d) * 0.5;
+            final double or = (b + d) * 0.5;
+            final double oi = (c - a) * 0.5;
+            final double wr = this.cos[half + k];
+            final double wi = -this.sin[half + k];
+            final double tr = wr * or - wi * oi;
+            final double ti = wr * oi + wi * or;
+
+            realOut[k] = er + tr;
+            imaginaryOut[k] = ei + ti;
+            realOut[m] = er - tr;
+            imaginaryOut[m] = ti - ei;
+        }
+    }
+
+    /**
+     * Forward butterflies with double precision.
+     *
+     * @param n  number of complex values to transform, power of 2, at most {@code N}
+     * @param re real part, transformed in-place
+     * @param im imaginary part, transformed in-place
+     * @see #forwardButterflies(int, float[], float[])
+     */
+    private void forwardButterflies(final int n, final double[] re, final double[] im) {
+        if (n < 2) return;
+        if (n == 2) {
+            final double r = re[1];
+            final double i = im[1];
+            re[1] = re[0] - r;
+            im[1] = im[0] - i;
+            re[0] += r;
+            im[0] += i;
+            return;
+        }
+        int quarter;
+        if ((Integer.numberOfTrailingZeros(n) & 1) == 0) {
+            radix4Codelets(n, re, im);
+            quarter = 4;
+        } else {
+            radix8Codelets(n, re, im);
+            quarter = 8;
+        }
+        for (; quarter < n; quarter <<= 2) {
+            radix4Pass(n, quarter, re, im);
         }
     }
 
+    private static void radix4Codelets(final int n, final double[] re, final double[] im) {
+        for (int i = 0; i < n; i += 4) {
+            final double s0r = re[i] + re[i + 1];
+            final double s0i = im[i] + im[i + 1];
+            final double d0r = re[i] - re[i + 1];
+            final double d0i = im[i] - im[i + 1];
+            final double s1r = re[i + 2] + re[i + 3];
+            final double s1i = im[i + 2] + im[i + 3];
+            final double d1r = re[i + 2] - re[i + 3];
+            final double d1i = im[i + 2] - im[i + 3];
+            re[i] = s0r + s1r;
+            im[i] = s0i + s1i;
+            re[i + 2] = s0r - s1r;
+            im[i + 2] = s0i - s1i;
+            re[i + 1] = d0r + d1i;
+            im[i + 1] = d0i - d1r;
+            re[i + 3] = d0r - d1i;
+            im[i + 3] = d0i + d1r;
+        }
+    }
+
+    private static void radix8Codelets(final int n, final double[] re, final double[] im) {
+        final double sqrt1_2 = Math.sqrt(0.5);
+        radix4Codelets(n, re, im);
+        for (int i = 0; i < n; i += 8) {
+            final double o0r = re[i + 4];
+            final double o0i = im[i + 4];
+            final double o1r = (re[i + 5] + im[i + 5]) * sqrt1_2;
+            final double o1i = (im[i + 5] - re[i + 5]) * sqrt1_2;
+            final double o2r = im[i + 6];
+            final double o2i = -re[i + 6];
+            final double o3r = (im[i + 7] - re[i + 7]) * sqrt1_2;
+            final double o3i = -(re[i + 7] + im[i + 7]) * sqrt1_2;
+            re[i + 4] = re[i] - o0r;
+            im[i + 4] = im[i] - o0i;
+            re[i] += o0r;
+            im[i] += o0i;
+            re[i + 5] = re[i + 1] - o1r;
+            im[i + 5] = im[i + 1] - o1i;
+            re[i + 1] += o1r;
+            im[i + 1] += o1i;
+            re[i + 6] = re[i + 2] - o2r;
+            im[i + 6] = im[i + 2] - o2i;
+            re[i + 2] += o2r;
+            im[i + 2] += o2i;
+            re[i + 7] = re[i + 3] - o3r;
+            im[i + 7] = im[i + 3] - o3i;
+            re[i + 3] += o3r;
+            im[i + 3] += o3i;
+        }
+    }
+
+    private void radix4Pass(final int n, final int quarter, final double[] re, final double[] im) {
+        final double[] cos = this.cos;
+        final double[] sin = this.sin;
+        final double[] cos3 = this.cos3;
+        final double[] sin3 = this.sin3;
+        final int twiddle1 = 2 * quarter;
+        final int twiddle2 = quarter;
+        for (int i = 0; i < n; i += 4 * quarter) {
+            for (int m = 0; m < quarter; m++) {
+                final int i0 = i + m;
+                final int i1 = i0 + quarter;
+                final int i2 = i1 + quarter;
+                final int i3 = i2 + quarter;
+                final double w2r = cos[twiddle2 + m];
+                final double w2i = sin[twiddle2 + m];
+                final double c2r = w2r * re[i1] + w2i * im[i1];
+                final double c2i = w2r * im[i1] - w2i * re[i1];
+                final double w1r = cos[twiddle1 + m];
+                final double w1i = sin[twiddle1 + m];
+                final double c1r = w1r * re[i2] + w1i * im[i2];
+                final double c1i = w1r * im[i2] - w1i * re[i2];
+                final double w3r = cos3[twiddle1 + m];
+                final double w3i = sin3[twiddle1 + m];
+                final double c3r = w3r * re[i3] + w3i * im[i3];
+                final double c3i = w3r * im[i3] - w3i * re[i3];
+
+                final double s0r = re[i0] + c2r;
+                final double s0i = im[i0] + c2i;
+                final double d0r = re[i0] - c2r;
+                final double d0i = im[i0] - c2i;
+                final double s1r = c1r + c3r;
+                final double s1i = c1i + c3i;
+                final double d1r = c1r - c3r;
+                final double d1i = c1i - c3i;
+
+                re[i0] = s0r + s1r;
+                im[i0] = s0i + s1i;
+                re[i2] = s0r - s1r;
+                im[i2] = s0i - s1i;
+                re[i1] = d0r + d1i;
+                im[i1] = d0i - d1r;
+                re[i3] = d0r - d1i;
+                im[i3] = d0i + d1r;
+            }
+        }
+    }
+
+    /**
+     * Transform for sizes that are not a power of 2, computed with double precision.
+     * The inverse transform is computed as forward transform with real and imaginary part swapped.
+     */
+    private void mixedRadixTransform(final boolean inverse,
+                                     final float[] realIn, final float[] imaginaryIn,
+                                     final float[] realOut, final float[] imaginaryOut) {
+        final int numberOfSamples = getNumberOfSamples();
+        final double[][] scratch = doubleScratch(numberOfSamples);
+        final double[] re = inverse ? scratch[1] : scratch[0];
+        final double[] im = inverse ? scratch[0] : scratch[1];
+        for (int i = 0; i < numberOfSamples; i++) {
+            re[i] = realIn[i];
+            im[i] = imaginaryIn == null ? 0.0 : imaginaryIn[i];
+        }
+        mixedRadixFFT.transform(scratch[0], scratch[1]);
+        final double scale = inverse ? 1.0 / numberOfSamples : 1.0;
+        for (int i = 0; i < numberOfSamples; i++) {
+            realOut[i] = (float) (re[i] * scale);
+            imaginaryOut[i] = (float) (im[i] * scale);
+        }
+    }
+
+    /**
+     * Transform for sizes that are not a power of 2.
+     * The inverse transform is computed as forward transform with real and imaginary part swapped.
+     */
+    private void mixedRadixTransform(final boolean inverse,
+                                     final double[] realIn, final double[] imaginaryIn,
+                                     final double[] realOut, final double[] imaginaryOut) {
+        final int numberOfSamples = getNumberOfSamples();
+        System.arraycopy(realIn, 0, realOut, 0, numberOfSamples);
+        if (imaginaryIn == null) {
+            Arrays.fill(imaginaryOut, 0, numberOfSamples, 0.0);
+        } else {
+            System.arraycopy(imaginaryIn, 0, imaginaryOut, 0, numberOfSamples);
+        }
+        if (inverse) {
+            mixedRadixFFT.transform(imaginaryOut, realOut);
+            final double scale = 1.0 / numberOfSamples;
+            for (int i = 0; i < numberOfSamples; i++) {
+                realOut[i] *= scale;
+                imaginaryOut[i] *= scale;
+            }
+        } else {
+            mixedRadixFFT.transform(realOut, imaginaryOut);
+        }
+    }
+
+    private void mixedRadixHalfForward(final float[] samples, final float[] window, final float[] realOut, final float[] imaginaryOut) {
+        final int numberOfSamples = getNumberOfSamples();
+        final double[][] scratch = doubleScratch(numberOfSamples);
+        final double[] re = scratch[0];
+        final double[] im = scratch[1];
+        for (int i = 0; i < numberOfSamples; i++) {
+            re[i] = window == null ? samples[i] : samples[i] * window[i];
+            im[i] = 0.0;
+        }
+        mixedRadixFFT.transform(re, im);
+        for (int i = 0; i < getHalfSpectrumLength(); i++) {
+            realOut[i] = (float) re[i];
+            imaginaryOut[i] = (float) im[i];
+        }
+    }
+
+    private void mixedRadixHalfInverse(final float[] real, final float[] imaginary, final float[] out) {
+        final int numberOfSamples = getNumberOfSamples();
+        final double[][] scratch = doubleScratch(numberOfSamples);
+        // swapped real and imaginary part, so that the forward transform computes the inverse
+        final double[] re = scratch[1];
+        final double[] im = scratch[0];
+        final int halfSpectrumLength = getHalfSpectrumLength();
+        for (int i = 0; i < halfSpectrumLength; i++) {
+            re[i] = real[i];
+            im[i] = imaginary[i];
+        }
+        // restore the redundant bins, i.e. the complex conjugate mirror
+        for (int i = halfSpectrumLength; i < numberOfSamples; i++) {
+            re[i] = real[numberOfSamples - i];
+            im[i] = -imaginary[numberOfSamples - i];
+        }
+        mixedRadixFFT.transform(scratch[0], scratch[1]);
+        final double scale = 1.0 / numberOfSamples;
+        for (int i = 0; i < numberOfSamples; i++) {
+            out[i] = (float) (re[i] * scale);
+        }
+    }
+
+    /**
+     * Per-thread double scratch space for sizes that are not a power of 2.
+     *
+     * @param length minimum length
+     * @return two arrays of at least the given length
+     */
+    private static double[][] doubleScratch(final int length) {
+        double[][] scratch = DOUBLE_SCRATCH.get();
+        if (scratch == null || scratch[0].length < length) {
+            scratch = new double[2][length];
+            DOUBLE_SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    /**
+     * Per-thread scratch space, so that instances stay usable from multiple threads
+     * without allocating new arrays for every call.
+     *
+     * @param length minimum length
+     * @return two arrays of at least the given length
+     */
+    private static float[][] scratch(final int length) {
+        float[][] scratch = SCRATCH.get();
+        if (scratch == null || scratch[0].length < length) {
+            scratch = new float[2][length];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
     private void normalize(final float[] realOut, final float[] imaginaryOut) {
         final int numberOfSamples = getNumberOfSamples();
         for (int i = 0; i < numberOfSamples; i++) {
@@ -255,30 +1060,6 @@ fast Fourier transform implementation using floats internally.
     }
     */
 
-    private static int getNumberOfNeededBits(final int powerOfTwo) {
-        for (int i = 0; true; i++) {
-            final int j = powerOfTwo & 1 << i;
-            if (j != 0) return i;
-        }
-    }
-
-    private static int reverseBits(final int index, final int numberOfBits) {
-        int ind = index;
-        int rev = 0;
-        for (int i = 0; i < numberOfBits; i++) {
-            rev = rev << 1 | ind & 1;
-            ind >>= 1;
-        }
-        return rev;
-    }
-
-    private static int fastReverseBits(final int index, final int numberOfBits) {
-        if (numberOfBits <= MAX_FAST_BITS)
-            return FFT_BIT_TABLE[numberOfBits - 1][index];
-        else
-            return reverseBits(index, numberOfBits);
-    }
-
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
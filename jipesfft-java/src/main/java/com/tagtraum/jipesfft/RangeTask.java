@@ -0,0 +1,76 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a range of indices in halves until the pieces are small enough to give each
+ * thread of a {@link ForkJoinPool} a few of them, so that idle threads can steal work,
+ * then runs them.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class RangeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+    /** Number of pieces per thread. */
+    private static final int PIECES_PER_THREAD = 4;
+    private final int from;
+    private final int to;
+    private final int grain;
+    private final int unit;
+    private final Range range;
+
+    private RangeTask(final int from, final int to, final int grain, final int unit, final Range range) {
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+        this.unit = unit;
+        this.range = range;
+    }
+
+    /**
+     * Runs the given range in the pool and waits for it to complete.
+     *
+     * @param pool pool
+     * @param length indices {@code [0, length)}
+     * @param unit pieces start at multiples of this number
+     * @param range code to run for each piece
+     */
+    static void invoke(final ForkJoinPool pool, final int length, final int unit, final Range range) {
+        final int grain = Math.max(unit, length / (PIECES_PER_THREAD * pool.getParallelism()) / unit * unit);
+        pool.invoke(new RangeTask(0, length, grain, unit, range));
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= grain) {
+            range.run(from, to);
+            return;
+        }
+        // to - from is greater than grain and therefore unit
+        final int middle = from + Math.max(unit, (to - from) / 2 / unit * unit);
+        invokeAll(new RangeTask(from, middle, grain, unit, range), new RangeTask(middle, to, grain, unit, range));
+    }
+
+    /**
+     * Piece of a range.
+     */
+    @FunctionalInterface
+    interface Range {
+
+        /**
+         * Runs the indices {@code [from, to)}.
+         *
+         * @param from first index
+         * @param to index after the last index
+         */
+        void run(int from, int to);
+    }
+}
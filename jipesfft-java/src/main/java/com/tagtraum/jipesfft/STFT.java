@@ -0,0 +1,261 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.Arrays;
+
+/**
+ * Streaming short-time Fourier transform (STFT).
+ * <p>
+ * Samples of arbitrary length are {@link #push(float[], int, int, FrameConsumer) pushed}
+ * into an internal ring buffer. Whenever a frame is complete, i.e. {@code frameSize} samples
+ * for the first frame and {@code hopSize} new samples for each subsequent frame, the frame
+ * is multiplied with the {@link Window}, transformed to its {@code N/2+1} non-redundant bins
+ * and handed to a {@link FrameConsumer}.
+ * <p>
+ * All frames are transformed with the same {@link FFT} and therefore the same native plan.
+ * The arrays handed to the consumer are reused for every frame, so that no memory is
+ * allocated once an instance has been created. Consumers must copy the spectrum,
+ * if they need it beyond the {@link FrameConsumer#accept(long, float[], float[])} call.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class STFT implements AutoCloseable {
+
+    private final int frameSize;
+    private final int hopSize;
+    private final Window window;
+    private final FFT fft;
+    /** Last {@code frameSize} samples, {@link #position} points to the oldest one. */
+    private final float[] ring;
+    private final float[] frame;
+    private final float[] real;
+    private final float[] imaginary;
+    private int position;
+    /** Number of samples needed to complete the next frame. */
+    private int samplesUntilFrame;
+    /** Indicates whether samples have been pushed since the last frame. */
+    private boolean pending;
+    private long frameIndex;
+
+    /**
+     * Creates an STFT.
+     *
+     * @param frameSize number of samples per frame, i.e. the FFT size
+     * @param hopSize number of samples between the starts of two consecutive frames
+     * @param window window of size {@code frameSize}, applied by the transform while
+     *               it copies each frame, or {@code null} for a rectangular window
+     * @throws IllegalArgumentException if frame or hop size are not positive
+     * or the window's size is not the frame size
+     */
+    public STFT(final int frameSize, final int hopSize, final Window window) {
+        if (frameSize <= 0) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameSize);
+        }
+        if (hopSize <= 0) {
+            throw new IllegalArgumentException("Hop size must be positive: " + hopSize);
+        }
+        if (window != null && window.getSize() != frameSize) {
+            throw new IllegalArgumentException("Window size must be equal to frame size " + frameSize + ": " + window.getSize());
+        }
+        this.frameSize = frameSize;
+        this.hopSize = hopSize;
+        this.window = window;
+        this.fft = new FFT(frameSize);
+        this.ring = new float[frameSize];
+        this.frame = new float[frameSize];
+        this.real = new float[fft.getHalfSpectrumLength()];
+        this.imaginary = new float[fft.getHalfSpectrumLength()];
+        this.samplesUntilFrame = frameSize;
+    }
+
+    /**
+     * Number of samples per frame.
+     *
+     * @return frame size
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * Number of samples between the starts of two consecutive frames.
+     *
+     * @return hop size
+     */
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    /**
+     * Length of the spectra handed to the consumer, i.e. {@code frameSize/2+1}.
+     *
+     * @return number of bins
+     */
+    public int getHalfSpectrumLength() {
+        return fft.getHalfSpectrumLength();
+    }
+
+    /**
+     * Frequency of a bin of the spectra handed to the consumer.
+     *
+     * @param bin bin
+     * @return frequency (relative to a sample rate of 1)
+     * @see AbstractFFT#getFrequencyForBin(int)
+     */
+    public float getFrequencyForBin(final int bin) {
+        return fft.getFrequencyForBin(bin);
+    }
+
+    /**
+     * Number of frames emitted so far.
+     *
+     * @return frame count
+     */
+    public long getFrameCount() {
+        return frameIndex;
+    }
+
+    /**
+     * Pushes samples and hands the spectrum of every completed frame to the given consumer.
+     *
+     * @param samples samples
+     * @param offset index of the first sample to push
+     * @param length number of samples to push
+     * @param consumer consumer for completed frames
+     * @throws IndexOutOfBoundsException if offset and length don't fit the array
+     */
+    public void push(final float[] samples, final int offset, final int length, final FrameConsumer consumer) {
+        if (offset < 0 || length < 0 || offset > samples.length - length) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " and length " + length
+                + " out of bounds for array of length " + samples.length);
+        }
+        int index = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            final int count = Math.min(remaining, samplesUntilFrame);
+            write(samples, index, count);
+            index += count;
+            remaining -= count;
+            if (samplesUntilFrame == 0) {
+                emit(consumer);
+            }
+        }
+    }
+
+    /**
+     * Pushes samples and hands the spectrum of every completed frame to the given consumer.
+     *
+     * @param samples samples
+     * @param consumer consumer for completed frames
+     * @see #push(float[], int, int, FrameConsumer)
+     */
+    public void push(final float[] samples, final FrameConsumer consumer) {
+        push(samples, 0, samples.length, consumer);
+    }
+
+    /**
+     * Completes the current frame with zeros, if it contains samples that have
+     * not been part of any frame yet, and hands it to the given consumer.
+     * Afterwards, pushing may continue as if zeros had been pushed.
+     *
+     * @param consumer consumer for the completed frame
+     */
+    public void flush(final FrameConsumer consumer) {
+        // with a hop size greater than the frame size, pushed samples may not be part of the next frame
+        if (!pending || samplesUntilFrame >= frameSize) {
+            return;
+        }
+        while (samplesUntilFrame > 0) {
+            final int count = Math.min(samplesUntilFrame, frameSize - position);
+            Arrays.fill(ring, position, position + count, 0f);
+            advance(count);
+        }
+        emit(consumer);
+    }
+
+    /**
+     * Discards all buffered samples and resets the frame count,
+     * so that this instance can be used for a new stream.
+     */
+    public void reset() {
+        Arrays.fill(ring, 0f);
+        position = 0;
+        samplesUntilFrame = frameSize;
+        pending = false;
+        frameIndex = 0;
+    }
+
+    private void write(final float[] samples, final int offset, final int length) {
+        // with a hop size greater than the frame size, only the last frameSize samples matter
+        final int skip = Math.max(0, length - frameSize);
+        advance(skip);
+        final int count = length - skip;
+        final int first = Math.min(count, frameSize - position);
+        System.arraycopy(samples, offset + skip, ring, position, first);
+        System.arraycopy(samples, offset + skip + first, ring, 0, count - first);
+        advance(count);
+    }
+
+    private void advance(final int length) {
+        position = (position + length) % frameSize;
+        samplesUntilFrame -= length;
+        pending = true;
+    }
+
+    private void emit(final FrameConsumer consumer) {
+        // unroll the ring buffer, oldest sample first
+        final int first = frameSize - position;
+        System.arraycopy(ring, position, frame, 0, first);
+        System.arraycopy(ring, 0, frame, first, position);
+        if (window != null) {
+            fft.transformWindowedToHalfSpectrum(frame, window, real, imaginary);
+        } else {
+            fft.transformToHalfSpectrum(frame, real, imaginary);
+        }
+        samplesUntilFrame = hopSize;
+        pending = false;
+        consumer.accept(frameIndex++, real, imaginary);
+    }
+
+    /**
+     * Releases the underlying {@link FFT}.
+     */
+    @Override
+    public void close() {
+        fft.close();
+    }
+
+    @Override
+    public String toString() {
+        return "STFT{" +
+            "frameSize=" + frameSize +
+            ", hopSize=" + hopSize +
+            ", window=" + window +
+            '}';
+    }
+
+    /**
+     * Receives the spectra of completed frames.
+     */
+    @FunctionalInterface
+    public interface FrameConsumer {
+
+        /**
+         * Called for each completed frame with its {@code N/2+1} non-redundant bins.
+         * The arrays are reused for the next frame.
+         *
+         * @param frameIndex index of the frame, starting at 0. Frame {@code i} starts
+         *                   at sample {@code i * hopSize} of the stream
+         * @param real real part of the spectrum
+         * @param imaginary imaginary part of the spectrum
+         */
+        void accept(long frameIndex, float[] real, float[] imaginary);
+    }
+}
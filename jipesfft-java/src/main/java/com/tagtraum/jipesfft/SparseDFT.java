@@ -0,0 +1,214 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.util.Arrays;
+
+/**
+ * Computes only a few bins of the {@code N}-point DFT, e.g. to detect tones.
+ * <p>
+ * Bins are numbered like the result of {@link AbstractFFT#transform(float[])}, i.e.
+ * bin {@code k} has the frequency {@link #getFrequencyForBin(int)}, and the values are
+ * equal to the corresponding bins of the full transform. Two modes are supported:
+ * <ul>
+ *     <li>{@link #transform(float[], int, float[], float[])} computes the bins of one
+ *     block of {@code N} samples with the Goertzel algorithm in {@code O(N)} per bin.</li>
+ *     <li>{@link #push(float[], int, int)} feeds a stream of samples. After each sample,
+ *     the bins of the last {@code N} samples are updated with a sliding DFT in
+ *     {@code O(1)} per bin, and can be read with {@link #getSpectrum(float[], float[])}.</li>
+ * </ul>
+ * For fewer than about {@code log2(N)} bins this is cheaper than a full transform.
+ * Sliding DFT state is kept in double precision, so that rounding errors accumulate slowly.
+ * <p>
+ * Block transforms are thread-safe, the sliding DFT is not.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class SparseDFT {
+
+    private final int numberOfSamples;
+    private final int[] bins;
+    private final double[] cos;
+    private final double[] sin;
+    /** Last {@code N} samples, {@link #position} points to the oldest one. */
+    private final float[] ring;
+    private final double[] real;
+    private final double[] imaginary;
+    private int position;
+
+    /**
+     * Creates a sparse DFT.
+     *
+     * @param numberOfSamples number of samples {@code N}
+     * @param bins bins to compute, each in {@code [0, N)}
+     * @throws IllegalArgumentException if the number of samples is not positive or a bin is invalid
+     */
+    public SparseDFT(final int numberOfSamples, final int... bins) {
+        if (numberOfSamples <= 0) {
+            throw new IllegalArgumentException("Number of samples must be positive: " + numberOfSamples);
+        }
+        this.numberOfSamples = numberOfSamples;
+        this.bins = bins.clone();
+        this.cos = new double[bins.length];
+        this.sin = new double[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            final int bin = bins[i];
+            if (bin < 0) throw new IllegalArgumentException("Frequency bin must not be negative: " + bin);
+            if (bin >= numberOfSamples) throw new IllegalArgumentException("Frequency bin must not be greater than "
+                + (numberOfSamples-1) + ": " + bin);
+            final double omega = 2.0 * Math.PI * bin / numberOfSamples;
+            cos[i] = Math.cos(omega);
+            sin[i] = Math.sin(omega);
+        }
+        this.ring = new float[numberOfSamples];
+        this.real = new double[bins.length];
+        this.imaginary = new double[bins.length];
+    }
+
+    /**
+     * Number of samples {@code N}.
+     *
+     * @return number of samples
+     */
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    /**
+     * Bins computed by this instance, in the order of the computed values.
+     *
+     * @return copy of the bins
+     */
+    public int[] getBins() {
+        return bins.clone();
+    }
+
+    /**
+     * Frequency of the bin with the given index, using the same convention as
+     * {@link AbstractFFT#getFrequencyForBin(int)}.
+     *
+     * @param index index into {@link #getBins()}
+     * @return frequency (relative to a sample rate of 1)
+     */
+    public float getFrequencyForBin(final int index) {
+        final int bin = bins[index];
+        if (bin <= numberOfSamples / 2) {
+            return bin / (float) numberOfSamples;
+        } else {
+            return -((numberOfSamples - bin) / (float) numberOfSamples);
+        }
+    }
+
+    /**
+     * Computes the bins of {@code N} samples with the Goertzel algorithm.
+     *
+     * @param samples samples
+     * @param offset index of the first sample
+     * @param realOut array of at least {@code bins.length} the real parts are written to
+     * @param imaginaryOut array of at least {@code bins.length} the imaginary parts are written to
+     * @throws IllegalArgumentException if an array is too short
+     */
+    public void transform(final float[] samples, final int offset, final float[] realOut, final float[] imaginaryOut) {
+        if (offset < 0 || offset > samples.length - numberOfSamples) {
+            throw new IllegalArgumentException("Length of samples must be at least offset + " + numberOfSamples + ": " + samples.length);
+        }
+        checkOut(realOut, imaginaryOut);
+        for (int i = 0; i < bins.length; i++) {
+            final double coefficient = 2.0 * cos[i];
+            double s1 = 0;
+            double s2 = 0;
+            for (int n = offset; n < offset + numberOfSamples; n++) {
+                final double s = samples[n] + coefficient * s1 - s2;
+                s2 = s1;
+                s1 = s;
+            }
+            // X[k] = s[N] - e^(-iw) s[N-1] with one more iteration for x[N] = 0
+            realOut[i] = (float) (s1 * cos[i] - s2);
+            imaginaryOut[i] = (float) (s1 * sin[i]);
+        }
+    }
+
+    /**
+     * Pushes one sample into the sliding DFT.
+     *
+     * @param sample sample
+     */
+    public void push(final float sample) {
+        final float oldest = ring[position];
+        ring[position] = sample;
+        position = position + 1 == numberOfSamples ? 0 : position + 1;
+        final double delta = (double) sample - oldest;
+        // X_k = e^(iw) (X_k - oldest + sample), the phase of the newest sample is e^(-iw N) = 1
+        for (int i = 0; i < bins.length; i++) {
+            final double re = real[i] + delta;
+            final double im = imaginary[i];
+            real[i] = re * cos[i] - im * sin[i];
+            imaginary[i] = re * sin[i] + im * cos[i];
+        }
+    }
+
+    /**
+     * Pushes samples into the sliding DFT.
+     *
+     * @param samples samples
+     * @param offset index of the first sample to push
+     * @param length number of samples to push
+     * @throws IndexOutOfBoundsException if offset and length don't fit the array
+     */
+    public void push(final float[] samples, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > samples.length - length) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " and length " + length
+                + " out of bounds for array of length " + samples.length);
+        }
+        for (int n = offset; n < offset + length; n++) {
+            push(samples[n]);
+        }
+    }
+
+    /**
+     * Bins of the last {@code N} pushed samples, oldest sample first.
+     * Samples before the first pushed one are zero.
+     *
+     * @param realOut array of at least {@code bins.length} the real parts are written to
+     * @param imaginaryOut array of at least {@code bins.length} the imaginary parts are written to
+     * @throws IllegalArgumentException if an array is too short
+     */
+    public void getSpectrum(final float[] realOut, final float[] imaginaryOut) {
+        checkOut(realOut, imaginaryOut);
+        for (int i = 0; i < bins.length; i++) {
+            realOut[i] = (float) real[i];
+            imaginaryOut[i] = (float) imaginary[i];
+        }
+    }
+
+    /**
+     * Discards all pushed samples.
+     */
+    public void reset() {
+        Arrays.fill(ring, 0f);
+        Arrays.fill(real, 0);
+        Arrays.fill(imaginary, 0);
+        position = 0;
+    }
+
+    private void checkOut(final float[] realOut, final float[] imaginaryOut) {
+        if (realOut.length < bins.length) {
+            throw new IllegalArgumentException("Length of realOut must be at least " + bins.length + ": " + realOut.length);
+        }
+        if (imaginaryOut.length < bins.length) {
+            throw new IllegalArgumentException("Length of imaginaryOut must be at least " + bins.length + ": " + imaginaryOut.length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SparseDFT{" +
+            "numberOfSamples=" + numberOfSamples +
+            ", bins=" + Arrays.toString(bins) +
+            '}';
+    }
+}
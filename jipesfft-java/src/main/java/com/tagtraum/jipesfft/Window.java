@@ -0,0 +1,211 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Window function with precomputed coefficients, to be passed to transforms like
+ * {@link AbstractFFT#transformWindowedToHalfSpectrum(float[], Window, float[], float[])},
+ * which apply it while copying their input.
+ * <p>
+ * Predefined windows are periodic (DFT-even), i.e. a window of size {@code N} equals
+ * the first {@code N} values of the symmetric window of size {@code N+1}. This is
+ * what is usually wanted for spectral analysis and for overlap-add.
+ * Their coefficients are computed once per size and shared, as long as memory permits.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public final class Window {
+
+    private static final Map<String, SoftReference<Window>> CACHE = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final float[] coefficients;
+
+    private Window(final String name, final float[] coefficients) {
+        this.name = name;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Hann window.
+     *
+     * @param size number of samples
+     * @return window
+     */
+    public static Window hann(final int size) {
+        return cosineSum("hann", size, 0.5, 0.5);
+    }
+
+    /**
+     * Hamming window.
+     *
+     * @param size number of samples
+     * @return window
+     */
+    public static Window hamming(final int size) {
+        return cosineSum("hamming", size, 0.54, 0.46);
+    }
+
+    /**
+     * Blackman window.
+     *
+     * @param size number of samples
+     * @return window
+     */
+    public static Window blackman(final int size) {
+        return cosineSum("blackman", size, 0.42, 0.5, 0.08);
+    }
+
+    /**
+     * Four-term Blackman-Harris window.
+     *
+     * @param size number of samples
+     * @return window
+     */
+    public static Window blackmanHarris(final int size) {
+        return cosineSum("blackmanHarris", size, 0.35875, 0.48829, 0.14128, 0.01168);
+    }
+
+    /**
+     * Kaiser window.
+     *
+     * @param size number of samples
+     * @param beta shape parameter, {@code 0} yields a rectangular window, larger values
+     *             trade a wider main lobe for lower side lobes
+     * @return window
+     * @throws IllegalArgumentException if beta is negative
+     */
+    public static Window kaiser(final int size, final double beta) {
+        if (!(beta >= 0)) {
+            throw new IllegalArgumentException("Beta must not be negative: " + beta);
+        }
+        final double denominator = besselI0(beta);
+        return cached("kaiser(" + beta + ")", size, i -> {
+            final double x = 2.0 * i / size - 1.0;
+            return besselI0(beta * Math.sqrt(1.0 - x * x)) / denominator;
+        });
+    }
+
+    /**
+     * User-supplied window. Its coefficients are copied and not cached.
+     *
+     * @param coefficients coefficients
+     * @return window
+     */
+    public static Window of(final float[] coefficients) {
+        return new Window("custom", coefficients.clone());
+    }
+
+    /**
+     * Number of samples this window is made for.
+     *
+     * @return size
+     */
+    public int getSize() {
+        return coefficients.length;
+    }
+
+    /**
+     * Copy of the coefficients.
+     *
+     * @return coefficients
+     */
+    public float[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    /**
+     * Coefficients without copying them. Must not be modified.
+     *
+     * @return coefficients
+     */
+    float[] coefficients() {
+        return coefficients;
+    }
+
+    /**
+     * Multiplies {@code getSize()} samples with this window.
+     *
+     * @param samples samples
+     * @param offset index of the first sample
+     * @param out array the windowed samples are written to, starting at index 0.
+     *            May be the same array as {@code samples}.
+     * @throws IndexOutOfBoundsException if an array is too short
+     */
+    public void multiply(final float[] samples, final int offset, final float[] out) {
+        if (offset < 0 || offset > samples.length - coefficients.length || out.length < coefficients.length) {
+            throw new IndexOutOfBoundsException("Arrays are too short for window of size " + coefficients.length);
+        }
+        for (int i = 0; i < coefficients.length; i++) {
+            out[i] = samples[offset + i] * coefficients[i];
+        }
+    }
+
+    private static Window cosineSum(final String name, final int size, final double... a) {
+        return cached(name, size, i -> {
+            final double angle = 2.0 * Math.PI * i / size;
+            double value = 0;
+            for (int k = 0; k < a.length; k++) {
+                // alternating signs: a0 - a1 cos(x) + a2 cos(2x) - ...
+                value += (k % 2 == 0 ? a[k] : -a[k]) * Math.cos(k * angle);
+            }
+            return value;
+        });
+    }
+
+    private static Window cached(final String name, final int size, final IntToDoubleFunction function) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative: " + size);
+        }
+        final String key = name + ":" + size;
+        final SoftReference<Window> reference = CACHE.get(key);
+        Window window = reference == null ? null : reference.get();
+        if (window == null) {
+            // concurrent callers may compute the same window twice, which is harmless
+            final float[] coefficients = new float[size];
+            for (int i = 0; i < size; i++) {
+                coefficients[i] = (float) function.applyAsDouble(i);
+            }
+            window = new Window(name, coefficients);
+            CACHE.put(key, new SoftReference<>(window));
+        }
+        return window;
+    }
+
+    /**
+     * Zeroth order modified Bessel function of the first kind.
+     *
+     * @param x argument
+     * @return I0(x)
+     */
+    private static double besselI0(final double x) {
+        // power series, converges quickly for the arguments used for windows
+        final double quarterSquare = x * x / 4.0;
+        double sum = 1.0;
+        double term = 1.0;
+        for (int k = 1; k < 500 && term > sum * 1e-17; k++) {
+            term *= quarterSquare / ((double) k * k);
+            sum += term;
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "Window{" +
+            name +
+            ", size=" + coefficients.length +
+            '}';
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft.vector;
+
+import com.tagtraum.jipesfft.PureJavaFFT;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Pure Java FFT that uses the incubating Java Vector API for its radix-4 passes,
+ * i.e. SIMD instructions like AVX2, AVX-512 or NEON, if the CPU supports them.
+ * Passes that are too short to fill a vector and sizes that are not a power
+ * of 2 are left to {@link PureJavaFFT}.
+ * <p>
+ * Requires Java 17 or later and the module {@code jdk.incubator.vector}
+ * to be resolved, e.g. via {@code --add-modules jdk.incubator.vector}.
+ * If this is the case, {@link com.tagtraum.jipesfft.FFT} automatically
+ * uses this class instead of {@link PureJavaFFT} as fallback.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class VectorFFT extends PureJavaFFT {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private final float[] cos;
+    private final float[] sin;
+    private final float[] cos3;
+    private final float[] sin3;
+
+    /**
+     * Constructor for a given number of samples.
+     *
+     * @param numberOfSamples number of samples you intend to transform
+     */
+    public VectorFFT(final int numberOfSamples) {
+        super(numberOfSamples);
+        // radix4Pass is only used for powers of 2
+        final int tableSize = Integer.bitCount(numberOfSamples) == 1 ? numberOfSamples : 0;
+        // same layout as the tables used by PureJavaFFT: cos(pi m/h) at index h+m
+        this.cos = new float[tableSize];
+        this.sin = new float[tableSize];
+        this.cos3 = new float[tableSize];
+        this.sin3 = new float[tableSize];
+        for (int h = 1; h < tableSize; h <<= 1) {
+            for (int m = 0; m < h; m++) {
+                final double angle = Math.PI * m / h;
+                this.cos[h + m] = (float) Math.cos(angle);
+                this.sin[h + m] = (float) Math.sin(angle);
+                this.cos3[h + m] = (float) Math.cos(3 * angle);
+                this.sin3[h + m] = (float) Math.sin(3 * angle);
+            }
+        }
+    }
+
+    @Override
+    protected void radix4Pass(final int n, final int quarter, final float[] re, final float[] im) {
+        final int length = SPECIES.length();
+        if (quarter < length) {
+            super.radix4Pass(n, quarter, re, im);
+            return;
+        }
+        final int twiddle1 = 2 * quarter;
+        final int twiddle2 = quarter;
+        for (int i = 0; i < n; i += 4 * quarter) {
+            // quarter is a power of 2 and at least length, so there is no tail
+            for (int m = 0; m < quarter; m += length) {
+                final int i0 = i + m;
+                final int i1 = i0 + quarter;
+                final int i2 = i1 + quarter;
+                final int i3 = i2 + quarter;
+                // bit-reversed order: the DFT of the (4k+2)-values precedes the one of the (4k+1)-values.
+                // twiddles are exp(-i pi m r/(2 quarter)), multiplications by (c - i s)
+                final FloatVector a1r = FloatVector.fromArray(SPECIES, re, i1);
+                final FloatVector a1i = FloatVector.fromArray(SPECIES, im, i1);
+                final FloatVector w2r = FloatVector.fromArray(SPECIES, this.cos, twiddle2 + m);
+                final FloatVector w2i = FloatVector.fromArray(SPECIES, this.sin, twiddle2 + m);
+                final FloatVector c2r = a1r.fma(w2r, a1i.mul(w2i));
+                final FloatVector c2i = a1i.fma(w2r, a1r.mul(w2i).neg());
+
+                final FloatVector a2r = FloatVector.fromArray(SPECIES, re, i2);
+                final FloatVector a2i = FloatVector.fromArray(SPECIES, im, i2);
+                final FloatVector w1r = FloatVector.fromArray(SPECIES, this.cos, twiddle1 + m);
+                final FloatVector w1i = FloatVector.fromArray(SPECIES, this.sin, twiddle1 + m);
+                final FloatVector c1r = a2r.fma(w1r, a2i.mul(w1i));
+                final FloatVector c1i = a2i.fma(w1r, a2r.mul(w1i).neg());
+
+                final FloatVector a3r = FloatVector.fromArray(SPECIES, re, i3);
+                final FloatVector a3i = FloatVector.fromArray(SPECIES, im, i3);
+                final FloatVector w3r = FloatVector.fromArray(SPECIES, this.cos3, twiddle1 + m);
+                final FloatVector w3i = FloatVector.fromArray(SPECIES, this.sin3, twiddle1 + m);
+                final FloatVector c3r = a3r.fma(w3r, a3i.mul(w3i));
+                final FloatVector c3i = a3i.fma(w3r, a3r.mul(w3i).neg());
+
+                final FloatVector a0r = FloatVector.fromArray(SPECIES, re, i0);
+                final FloatVector a0i = FloatVector.fromArray(SPECIES, im, i0);
+                final FloatVector s0r = a0r.add(c2r);
+                final FloatVector s0i = a0i.add(c2i);
+                final FloatVector d0r = a0r.sub(c2r);
+                final FloatVector d0i = a0i.sub(c2i);
+                final FloatVector s1r = c1r.add(c3r);
+                final FloatVector s1i = c1i.add(c3i);
+                final FloatVector d1r = c1r.sub(c3r);
+                final FloatVector d1i = c1i.sub(c3i);
+
+                s0r.add(s1r).intoArray(re, i0);
+                s0i.add(s1i).intoArray(im, i0);
+                s0r.sub(s1r).intoArray(re, i2);
+                s0i.sub(s1i).intoArray(im, i2);
+                // -i * d1
+                d0r.add(d1i).intoArray(re, i1);
+                d0i.sub(d1r).intoArray(im, i1);
+                d0r.sub(d1i).intoArray(re, i3);
+                d0i.add(d1r).intoArray(im, i3);
+            }
+        }
+    }
+}
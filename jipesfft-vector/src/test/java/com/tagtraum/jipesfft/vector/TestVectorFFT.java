@@ -0,0 +1,58 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipesfft.vector;
+
+import com.tagtraum.jipesfft.PureJavaFFT;
+import org.junit.jupiter.api.Test;
+
+import static com.tagtraum.jipesfft.AbstractFFT.IMAGINARY;
+import static com.tagtraum.jipesfft.AbstractFFT.REAL;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test VectorFFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestVectorFFT {
+
+    @Test
+    public void testTransformByComparison() {
+        for (int numberOfSamples = 1; numberOfSamples <= 8192; numberOfSamples *= 2) {
+            final PureJavaFFT javaFFT = new PureJavaFFT(numberOfSamples);
+            final VectorFFT vectorFFT = new VectorFFT(numberOfSamples);
+            final float[] real = new float[numberOfSamples];
+            final float[] imaginary = new float[numberOfSamples];
+            for (int i = 0; i < numberOfSamples; i++) {
+                real[i] = (float) Math.sin(i * 0.3) + (i * 7919 % 13) / 13f;
+                imaginary[i] = (float) Math.cos(i * 0.7) - (i * 104729 % 11) / 11f;
+            }
+            final float delta = 0.0001f * numberOfSamples;
+
+            final float[][] javaRes = javaFFT.transform(real, imaginary);
+            final float[][] vectorRes = vectorFFT.transform(real, imaginary);
+            assertArrayEquals(javaRes[REAL], vectorRes[REAL], delta);
+            assertArrayEquals(javaRes[IMAGINARY], vectorRes[IMAGINARY], delta);
+
+            final float[][] javaRealRes = javaFFT.transform(real);
+            final float[][] vectorRealRes = vectorFFT.transform(real);
+            assertArrayEquals(javaRealRes[REAL], vectorRealRes[REAL], delta);
+            assertArrayEquals(javaRealRes[IMAGINARY], vectorRealRes[IMAGINARY], delta);
+
+            final float[][] inverse = vectorFFT.inverseTransform(vectorRes[REAL], vectorRes[IMAGINARY]);
+            assertArrayEquals(real, inverse[REAL], 0.001f);
+            assertArrayEquals(imaginary, inverse[IMAGINARY], 0.001f);
+        }
+    }
+
+    @Test
+    public void testToString() {
+        final VectorFFT fft = new VectorFFT(8);
+        assertEquals("VectorFFT{N=8}", fft.toString());
+    }
+}
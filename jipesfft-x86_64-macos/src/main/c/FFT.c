@@ -14,6 +14,26 @@
 
 #include "com_tagtraum_jipesfft_FFT.h"
 
+// ordinals of com.tagtraum.jipesfft.AbstractFFT.Spectrum
+#define SPECTRUM_MAGNITUDE 0
+#define SPECTRUM_POWER 1
+#define SPECTRUM_LOG_POWER 2
+// lower bound for the power before taking the logarithm, i.e. -200 dB
+#define MIN_POWER 1e-20f
+
+/**
+ * Native state of an FFT plan.
+ * Transforms only read it, so one plan may be used by many threads at once.
+ * Scratch space is either part of the output arrays or passed in by the caller,
+ * never on the stack, so that large transforms don't overflow it.
+ */
+typedef struct {
+    FFTSetup setup;
+    // created by initDouble
+    FFTSetupD setupD;
+    vDSP_Length log2n;
+} FFTInstance;
+
 
 /*
  * Class:     com_tagtraum_jipesfft_FFT
@@ -34,13 +54,21 @@ JNIEXPORT jlong JNICALL Java_com_tagtraum_jipesfft_FFT_init
         return 0;
     }
 
-    FFTSetup setup = vDSP_create_fftsetup((int)log2(numberOfSamples), FFT_RADIX2);
-    if (setup == NULL) {
+    FFTInstance *instance = calloc(1, sizeof(FFTInstance));
+    if (instance == NULL) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
+        ( * env) -> ThrowNew(env, excCls, "Failed to allocate FFT instance");
+        return 0;
+    }
+    instance->log2n = (vDSP_Length)log2(numberOfSamples);
+    instance->setup = vDSP_create_fftsetup(instance->log2n, FFT_RADIX2);
+    if (instance->setup == NULL) {
+        free(instance);
         jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
         ( * env) -> ThrowNew(env, excCls, "FFT_Setup failed to allocate enough memory for the real FFT");
         return 0;
     }
-    return (jlong)setup;
+    return (jlong)instance;
 }
 
 
@@ -51,135 +79,728 @@ JNIEXPORT jlong JNICALL Java_com_tagtraum_jipesfft_FFT_init
  */
 JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_destroy
 (JNIEnv *env, jclass clazz, jlong fftSetupPointer) {
-    if (fftSetupPointer != 0) {
-        vDSP_destroy_fftsetup((FFTSetup)fftSetupPointer);
+    FFTInstance *instance = (FFTInstance *)fftSetupPointer;
+    if (instance != NULL) {
+        vDSP_destroy_fftsetup(instance->setup);
+        if (instance->setupD != NULL) {
+            vDSP_destroy_fftsetupD(instance->setupD);
+        }
+        free(instance);
     }
 }
 
 
-JNIEXPORT jobjectArray JNICALL Java_com_tagtraum_jipesfft_FFT_realFFT
-(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jboolean forward, jint numberOfSamples, jfloatArray jrealIn, jfloatArray jimagIn) {
+/**
+ * Complex forward or inverse transform on raw memory.
+ * The input is copied into the output arrays, which are then transformed in-place.
+ * If imagIn is NULL, the imaginary part of the input is assumed to be 0.
+ */
+static void complexTransform(FFTSetup fftSetup, jboolean forward, jint numberOfSamples,
+    float *realIn, float *imagIn, float *realOut, float *imagOut) {
 
-    int direction;
-	DSPSplitComplex A;
-    FFTSetup fftSetup = NULL;
+    DSPSplitComplex A;
     UInt32        log2n = (int)log2(numberOfSamples);
-    UInt32        nOver2 = numberOfSamples / 2; // half of n as real part and imag part.
     SInt32        stride = 1;
-    float         realData[numberOfSamples] __attribute__ ((aligned (16)));
-    float         real[numberOfSamples] __attribute__ ((aligned (16)));
-    float         imag[numberOfSamples] __attribute__ ((aligned (16)));
 
+    memcpy(realOut, realIn, sizeof(float) * numberOfSamples);
+    if (imagIn != NULL) {
+        memcpy(imagOut, imagIn, sizeof(float) * numberOfSamples);
+    } else {
+        vDSP_vclr(imagOut, 1, numberOfSamples);
+    }
+    A.realp = realOut;
+    A.imagp = imagOut;
 
-    if ((*env)->GetArrayLength(env, jrealIn) < numberOfSamples) {
-        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
-        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than input array length");
-        return NULL;
+    // perform FFT, unlike vDSP_fft_zrip the forward result needs no scaling
+    vDSP_fft_zip(fftSetup, &A, stride, log2n, forward ? FFT_FORWARD : FFT_INVERSE);
+
+    if (!forward) {
+        float scale = (float)1.0/numberOfSamples;
+        vDSP_vsmul(A.realp, 1, &scale, A.realp, 1, numberOfSamples);
+        vDSP_vsmul(A.imagp, 1, &scale, A.imagp, 1, numberOfSamples);
     }
+}
 
-    // clear/init in-place arrays
-    vDSP_vclr(real, 1, numberOfSamples);
-    vDSP_vclr(imag, 1, numberOfSamples);
+/**
+ * Complex forward or inverse transform on raw memory with double precision.
+ *
+ * @see complexTransform
+ */
+static void complexTransformDouble(FFTSetupD fftSetup, jboolean forward, jint numberOfSamples,
+    double *realIn, double *imagIn, double *realOut, double *imagOut) {
 
-	A.realp = real;
-	A.imagp = imag;
+    DSPDoubleSplitComplex A;
+    UInt32        log2n = (int)log2(numberOfSamples);
+    SInt32        stride = 1;
 
-    if (forward) {
-        (*env)->GetFloatArrayRegion(env, jrealIn, 0, numberOfSamples, realData);
-        direction = FFT_FORWARD;
-        vDSP_ctoz((COMPLEX *) realData, 2, &A, 1, nOver2);
+    memcpy(realOut, realIn, sizeof(double) * numberOfSamples);
+    if (imagIn != NULL) {
+        memcpy(imagOut, imagIn, sizeof(double) * numberOfSamples);
     } else {
-        direction = FFT_INVERSE;
-        (*env)->GetFloatArrayRegion(env, jimagIn, 0, numberOfSamples, imag);
-        (*env)->GetFloatArrayRegion(env, jrealIn, 0, numberOfSamples, real);
-        // place data in packed complex format (see http://developer.apple.com/hardwaredrivers/ve/downloads/vDSP_Library.pdf)
-        imag[0] = real[nOver2];
+        vDSP_vclrD(imagOut, 1, numberOfSamples);
     }
+    A.realp = realOut;
+    A.imagp = imagOut;
 
-	if ((*env)->ExceptionOccurred(env)) {
-	    return NULL;
-	}
+    vDSP_fft_zipD(fftSetup, &A, stride, log2n, forward ? FFT_FORWARD : FFT_INVERSE);
 
-    fftSetup = (FFTSetup)fftSetupPointer;
-    // perform FFT
-	vDSP_fft_zrip(fftSetup, &A, stride, log2n, direction);    
-    
-    jobjectArray jtransformed = (*env)->NewObjectArray(env, 2, (*env)->FindClass(env, "[F"), NULL);
-    if (jtransformed == NULL) {
-        jclass excCls = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
-        (*env)->ThrowNew(env, excCls, "Failed to allocate jtransformed");
-        return NULL;
+    if (!forward) {
+        double scale = 1.0/numberOfSamples;
+        vDSP_vsmulD(A.realp, 1, &scale, A.realp, 1, numberOfSamples);
+        vDSP_vsmulD(A.imagp, 1, &scale, A.imagp, 1, numberOfSamples);
     }
+}
+
+/**
+ * Real forward or inverse transform on raw memory.
+ * The forward transform is computed in-place in the lower halves of the output arrays.
+ * If fullSpectrum is false, only the N/2+1 non-redundant bins are produced by the
+ * forward transform or expected by the inverse transform, and the inverse transform
+ * uses the N floats of scratch for the packed spectrum.
+ * With the full spectrum, the inverse transform is a complex transform, i.e. the input
+ * need not be the spectrum of real numbers, and scratch may be NULL.
+ * If window is not NULL, the forward transform multiplies the samples with it
+ * while splitting them into even and odd samples.
+ */
+static void realTransform(FFTInstance *instance, jboolean forward, jboolean fullSpectrum, jint numberOfSamples,
+    float *realIn, float *imagIn, float *realOut, float *imagOut, float *scratch, const float *window) {
+
+	DSPSplitComplex A;
+    FFTSetup      fftSetup = instance->setup;
+    UInt32        log2n = (int)log2(numberOfSamples);
+    UInt32        nOver2 = numberOfSamples / 2; // half of n as real part and imag part.
+    SInt32        stride = 1;
 
     if (forward) {
+        A.realp = realOut;
+        A.imagp = imagOut;
+        if (window) {
+            // windowing and splitting in one pass: even samples to realp, odd samples to imagp
+            vDSP_vmul(realIn, 2, window, 2, A.realp, 1, nOver2);
+            vDSP_vmul(realIn + 1, 2, window + 1, 2, A.imagp, 1, nOver2);
+        } else {
+            vDSP_ctoz((COMPLEX *) realIn, 2, &A, 1, nOver2);
+        }
+
+        // perform FFT
+        vDSP_fft_zrip(fftSetup, &A, stride, log2n, FFT_FORWARD);
+
         // scale it..
         float scale = (float)1.0/2.0;
         vDSP_vsmul(A.realp, 1, &scale, A.realp, 1, nOver2);
         vDSP_vsmul(A.imagp, 1, &scale, A.imagp, 1, nOver2);
 
-        // create real array
-        {
-            jfloatArray jreal = (*env)->NewFloatArray(env, numberOfSamples);
-            if (jreal == NULL) {
-                jclass excCls = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
-                (*env)->ThrowNew(env, excCls, "Failed to allocate jreal");
-                return NULL;
-            }
-            A.realp[nOver2] = A.imagp[0];
-            int from = nOver2-1;
-            int to = nOver2+1;
-            for (; to<numberOfSamples; to++, from--) {
-                A.realp[to] = A.realp[from];
-            }
-            (*env)->SetFloatArrayRegion(env, jreal, 0, numberOfSamples, A.realp);
-            (*env)->SetObjectArrayElement(env, jtransformed, 0, jreal);
-        }
+        // unpack Nyquist value
+        realOut[nOver2] = imagOut[0];
+        imagOut[0] = 0;
+        imagOut[nOver2] = 0;
 
-        // create imaginary array
-        {
-            jfloatArray jimag = (*env)->NewFloatArray(env, numberOfSamples);
-            if (jimag == NULL) {
-                jclass excCls = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
-                (*env)->ThrowNew(env, excCls, "Failed to allocate jimag");
-                return NULL;
-            }
-            A.imagp[0] = 0;
+        if (fullSpectrum) {
+            // mirror the lower half
             int from = nOver2-1;
             int to = nOver2+1;
             for (; to<numberOfSamples; to++, from--) {
-                A.imagp[to] = -A.imagp[from];
+                realOut[to] = realOut[from];
+                imagOut[to] = -imagOut[from];
             }
-            (*env)->SetFloatArrayRegion(env, jimag, 0, numberOfSamples, A.imagp);
-            (*env)->SetObjectArrayElement(env, jtransformed, 1, jimag);
         }
+    } else if (fullSpectrum) {
+        complexTransform(fftSetup, JNI_FALSE, numberOfSamples, realIn, imagIn, realOut, imagOut);
     } else {
-        // inverse
+        float         *real = scratch;
+        float         *imag = scratch + nOver2;
+
+        // place data in packed complex format (see http://developer.apple.com/hardwaredrivers/ve/downloads/vDSP_Library.pdf)
+        memcpy(real, realIn, sizeof(float) * nOver2);
+        if (imagIn != NULL) {
+            memcpy(imag, imagIn, sizeof(float) * nOver2);
+        } else {
+            vDSP_vclr(imag, 1, nOver2);
+        }
+        imag[0] = realIn[nOver2];
+        A.realp = real;
+        A.imagp = imag;
+
+        // perform FFT
+        vDSP_fft_zrip(fftSetup, &A, stride, log2n, FFT_INVERSE);
+
         // scale it..
         float scale = (float)1.0/numberOfSamples;
         vDSP_vsmul(A.realp, 1, &scale, A.realp, 1, nOver2);
         vDSP_vsmul(A.imagp, 1, &scale, A.imagp, 1, nOver2);
-        vDSP_ztoc(&A, 1, (COMPLEX *) realData, 2, nOver2);
+        vDSP_ztoc(&A, 1, (COMPLEX *) realOut, 2, nOver2);
+    }
+}
 
-        // create real array
-        jfloatArray jreal = (*env)->NewFloatArray(env, numberOfSamples);
-        if (jreal == NULL) {
-            jclass excCls = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
-            (*env)->ThrowNew(env, excCls, "Failed to allocate jreal");
-            return NULL;
+/**
+ * Real forward or inverse transform on raw memory with double precision,
+ * always using the full spectrum. Like with floats, the inverse transform
+ * is a complex transform.
+ *
+ * @see realTransform
+ */
+static void realTransformDouble(FFTInstance *instance, jboolean forward, jint numberOfSamples,
+    double *realIn, double *imagIn, double *realOut, double *imagOut) {
+
+    DSPDoubleSplitComplex A;
+    FFTSetupD     fftSetup = instance->setupD;
+    UInt32        log2n = (int)log2(numberOfSamples);
+    UInt32        nOver2 = numberOfSamples / 2;
+    SInt32        stride = 1;
+
+    if (forward) {
+        A.realp = realOut;
+        A.imagp = imagOut;
+        vDSP_ctozD((DSPDoubleComplex *) realIn, 2, &A, 1, nOver2);
+
+        // perform FFT
+        vDSP_fft_zripD(fftSetup, &A, stride, log2n, FFT_FORWARD);
+
+        // scale it..
+        double scale = 1.0/2.0;
+        vDSP_vsmulD(A.realp, 1, &scale, A.realp, 1, nOver2);
+        vDSP_vsmulD(A.imagp, 1, &scale, A.imagp, 1, nOver2);
+
+        // unpack Nyquist value
+        realOut[nOver2] = imagOut[0];
+        imagOut[0] = 0;
+        imagOut[nOver2] = 0;
+
+        // mirror the lower half
+        int from = nOver2-1;
+        int to = nOver2+1;
+        for (; to<numberOfSamples; to++, from--) {
+            realOut[to] = realOut[from];
+            imagOut[to] = -imagOut[from];
         }
-        (*env)->SetFloatArrayRegion(env, jreal, 0, numberOfSamples, realData);
-        (*env)->SetObjectArrayElement(env, jtransformed, 0, jreal);
+    } else {
+        complexTransformDouble(fftSetup, JNI_FALSE, numberOfSamples, realIn, imagIn, realOut, imagOut);
+    }
+}
 
-        // add empty imag array
-        jfloatArray jimag = (*env)->NewFloatArray(env, numberOfSamples);
-        if (jimag == NULL) {
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    initDouble
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_initDouble
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer) {
+    FFTInstance *instance = (FFTInstance *)fftSetupPointer;
+    if (instance->setupD == NULL) {
+        instance->setupD = vDSP_create_fftsetupD(instance->log2n, FFT_RADIX2);
+        if (instance->setupD == NULL) {
             jclass excCls = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
-            (*env)->ThrowNew(env, excCls, "Failed to allocate jimag");
-            return NULL;
+            (*env)->ThrowNew(env, excCls, "FFT_SetupD failed to allocate enough memory for the FFT");
         }
-        (*env)->SetObjectArrayElement(env, jtransformed, 1, jimag);
     }
+}
 
-	return jtransformed;
+/**
+ * Validates that initDouble has been called for the given instance.
+ * Throws an IllegalStateException, if this is not the case.
+ *
+ * @return true, if the double precision setup is available
+ */
+static jboolean checkSetupD(JNIEnv *env, FFTInstance *instance) {
+    if (instance->setupD == NULL) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalStateException");
+        (*env)->ThrowNew(env, excCls, "FFT plan is not initialized for double precision");
+        return JNI_FALSE;
+    }
+    return JNI_TRUE;
 }
 
+/**
+ * Returns the address of a direct FloatBuffer plus the given offset (in floats).
+ * Throws an IllegalArgumentException, if the buffer is not direct or too small.
+ */
+static float *directFloats(JNIEnv *env, jobject buffer, jint offset, jint numberOfSamples) {
+    float *address = (*env)->GetDirectBufferAddress(env, buffer);
+    if (address == NULL) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Buffer is not a direct buffer");
+        return NULL;
+    }
+    if (offset < 0 || (*env)->GetDirectBufferCapacity(env, buffer) < (jlong) offset + numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than buffer capacity");
+        return NULL;
+    }
+    return address + offset;
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFT
+ * Signature: (JZI[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFT
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jboolean forward, jint numberOfSamples,
+ jfloatArray jrealIn, jfloatArray jimagIn, jfloatArray jrealOut, jfloatArray jimagOut) {
+
+    float         *realIn = NULL;
+    float         *imagIn = NULL;
+    float         *realOut = NULL;
+    float         *imagOut = NULL;
+
+    if ((*env)->GetArrayLength(env, jrealIn) < numberOfSamples
+        || (!forward && jimagIn != NULL && (*env)->GetArrayLength(env, jimagIn) < numberOfSamples)) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
+    }
+    if ((*env)->GetArrayLength(env, jrealOut) < numberOfSamples
+        || (*env)->GetArrayLength(env, jimagOut) < numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = (*env)->GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    // a missing imaginary part of the inverse transform's input is treated as 0
+    if (!forward && jimagIn != NULL) {
+        imagIn = (*env)->GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = (*env)->GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = (*env)->GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    realTransform((FFTInstance *)fftSetupPointer, forward, JNI_TRUE, numberOfSamples, realIn, imagIn, realOut, imagOut, NULL, NULL);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) (*env)->ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) (*env)->ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) (*env)->ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) (*env)->ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFTDouble
+ * Signature: (JZI[D[D[D[D)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFTDouble
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jboolean forward, jint numberOfSamples,
+ jdoubleArray jrealIn, jdoubleArray jimagIn, jdoubleArray jrealOut, jdoubleArray jimagOut) {
+
+    FFTInstance   *instance = (FFTInstance *)fftSetupPointer;
+    double        *realIn = NULL;
+    double        *imagIn = NULL;
+    double        *realOut = NULL;
+    double        *imagOut = NULL;
+
+    if ((*env)->GetArrayLength(env, jrealIn) < numberOfSamples
+        || (!forward && jimagIn != NULL && (*env)->GetArrayLength(env, jimagIn) < numberOfSamples)) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
+    }
+    if ((*env)->GetArrayLength(env, jrealOut) < numberOfSamples
+        || (*env)->GetArrayLength(env, jimagOut) < numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+    if (!checkSetupD(env, instance)) {
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = (*env)->GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    // a missing imaginary part of the inverse transform's input is treated as 0
+    if (!forward && jimagIn != NULL) {
+        imagIn = (*env)->GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = (*env)->GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = (*env)->GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    realTransformDouble(instance, forward, numberOfSamples, realIn, imagIn, realOut, imagOut);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) (*env)->ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) (*env)->ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) (*env)->ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) (*env)->ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    complexFFT
+ * Signature: (JI[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_complexFFT
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jint numberOfSamples,
+ jfloatArray jrealIn, jfloatArray jimagIn, jfloatArray jrealOut, jfloatArray jimagOut) {
+
+    float         *realIn = NULL;
+    float         *imagIn = NULL;
+    float         *realOut = NULL;
+    float         *imagOut = NULL;
+
+    if ((*env)->GetArrayLength(env, jrealIn) < numberOfSamples
+        || (jimagIn != NULL && (*env)->GetArrayLength(env, jimagIn) < numberOfSamples)) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
+    }
+    if ((*env)->GetArrayLength(env, jrealOut) < numberOfSamples
+        || (*env)->GetArrayLength(env, jimagOut) < numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = (*env)->GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    if (jimagIn != NULL) {
+        imagIn = (*env)->GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = (*env)->GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = (*env)->GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    complexTransform(((FFTInstance *)fftSetupPointer)->setup, JNI_TRUE, numberOfSamples, realIn, imagIn, realOut, imagOut);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) (*env)->ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) (*env)->ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) (*env)->ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) (*env)->ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    complexFFTDouble
+ * Signature: (JI[D[D[D[D)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_complexFFTDouble
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jint numberOfSamples,
+ jdoubleArray jrealIn, jdoubleArray jimagIn, jdoubleArray jrealOut, jdoubleArray jimagOut) {
+
+    FFTInstance   *instance = (FFTInstance *)fftSetupPointer;
+    double        *realIn = NULL;
+    double        *imagIn = NULL;
+    double        *realOut = NULL;
+    double        *imagOut = NULL;
+
+    if ((*env)->GetArrayLength(env, jrealIn) < numberOfSamples
+        || (jimagIn != NULL && (*env)->GetArrayLength(env, jimagIn) < numberOfSamples)) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
+    }
+    if ((*env)->GetArrayLength(env, jrealOut) < numberOfSamples
+        || (*env)->GetArrayLength(env, jimagOut) < numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+    if (!checkSetupD(env, instance)) {
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = (*env)->GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    if (jimagIn != NULL) {
+        imagIn = (*env)->GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = (*env)->GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = (*env)->GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    complexTransformDouble(instance->setupD, JNI_TRUE, numberOfSamples, realIn, imagIn, realOut, imagOut);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) (*env)->ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) (*env)->ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) (*env)->ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) (*env)->ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realHalfFFT
+ * Signature: (JZI[F[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realHalfFFT
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jboolean forward, jint numberOfSamples,
+ jfloatArray jrealIn, jfloatArray jimagIn, jfloatArray jrealOut, jfloatArray jimagOut, jfloatArray jscratch) {
+
+    jint          halfSpectrumLength = numberOfSamples / 2 + 1;
+    float         *realIn = NULL;
+    float         *imagIn = NULL;
+    float         *realOut = NULL;
+    float         *imagOut = NULL;
+    float         *scratch = NULL;
+
+    if ((*env)->GetArrayLength(env, jrealIn) < (forward ? numberOfSamples : halfSpectrumLength)
+        || (!forward && (*env)->GetArrayLength(env, jimagIn) < halfSpectrumLength)) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
+    }
+    if ((*env)->GetArrayLength(env, jrealOut) < (forward ? halfSpectrumLength : numberOfSamples)
+        || (forward && (*env)->GetArrayLength(env, jimagOut) < halfSpectrumLength)) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+    if (!forward && (*env)->GetArrayLength(env, jscratch) < numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Scratch array must be at least N long");
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    if (!forward) {
+        scratch = (*env)->GetPrimitiveArrayCritical(env, jscratch, NULL);
+        if (!scratch) goto BAIL;
+    }
+    realIn = (*env)->GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    // a missing imaginary part of the inverse transform's input is treated as 0
+    if (!forward && jimagIn != NULL) {
+        imagIn = (*env)->GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = (*env)->GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    if (forward) {
+        imagOut = (*env)->GetPrimitiveArrayCritical(env, jimagOut, NULL);
+        if (!imagOut) goto BAIL;
+    }
+
+    realTransform((FFTInstance *)fftSetupPointer, forward, JNI_FALSE, numberOfSamples, realIn, imagIn, realOut, imagOut, scratch, NULL);
+
+    BAIL:
+
+    // release in reverse order, inputs and scratch are not written back
+    if (imagOut) (*env)->ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) (*env)->ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) (*env)->ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) (*env)->ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+    if (scratch) (*env)->ReleasePrimitiveArrayCritical(env, jscratch, scratch, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFTFrames
+ * Signature: (JZI[FIII[F[F[FI[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFTFrames
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jboolean fullSpectrum, jint numberOfSamples,
+ jfloatArray jsamples, jint offset, jint hopSize, jint frameCount,
+ jfloatArray jwindow, jfloatArray jrealOut, jfloatArray jimagOut, jint outOffset, jfloatArray jscratch) {
+
+    FFTInstance *instance = (FFTInstance *)fftSetupPointer;
+    jint spectrumLength = fullSpectrum ? numberOfSamples : numberOfSamples / 2 + 1;
+    jlong outLength = 0;
+    jint f;
+    float *samples = NULL;
+    float *window = NULL;
+    float *realOut = NULL;
+    float *imagOut = NULL;
+
+    if (offset < 0 || hopSize <= 0 || frameCount < 0 || outOffset < 0) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Invalid offset, hop size, frame count or output offset");
+        return;
+    }
+    if (frameCount == 0) {
+        return;
+    }
+    if ((*env)->GetArrayLength(env, jsamples) < offset + (jlong) (frameCount - 1) * hopSize + numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Samples array is too short for the given frames");
+        return;
+    }
+    if (jwindow != NULL && (*env)->GetArrayLength(env, jwindow) < numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Window must not be shorter than the number of samples");
+        return;
+    }
+    outLength = (*env)->GetArrayLength(env, jrealOut);
+    if ((*env)->GetArrayLength(env, jimagOut) < outLength) {
+        outLength = (*env)->GetArrayLength(env, jimagOut);
+    }
+    if (outLength < outOffset + (jlong) frameCount * spectrumLength) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Output arrays are too short for the given frames");
+        return;
+    }
+
+    // one JNI crossing and one set of critical sections for all frames
+    samples = (*env)->GetPrimitiveArrayCritical(env, jsamples, NULL);
+    if (!samples) goto BAIL;
+    if (jwindow != NULL) {
+        window = (*env)->GetPrimitiveArrayCritical(env, jwindow, NULL);
+        if (!window) goto BAIL;
+    }
+    realOut = (*env)->GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = (*env)->GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    for (f = 0; f < frameCount; f++) {
+        // the forward half spectrum transform only writes N/2+1 bins, so no scratch is needed
+        realTransform(instance, JNI_TRUE, fullSpectrum, numberOfSamples, samples + offset + (size_t) f * hopSize, NULL,
+            realOut + outOffset + (size_t) f * spectrumLength, imagOut + outOffset + (size_t) f * spectrumLength, NULL, window);
+    }
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) (*env)->ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) (*env)->ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (window) (*env)->ReleasePrimitiveArrayCritical(env, jwindow, window, JNI_ABORT);
+    if (samples) (*env)->ReleasePrimitiveArrayCritical(env, jsamples, samples, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realSpectrum
+ * Signature: (JII[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realSpectrum
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jint spectrum, jint numberOfSamples,
+ jfloatArray jsamples, jfloatArray jwindow, jfloatArray jout, jfloatArray jscratch) {
+
+    FFTInstance *instance = (FFTInstance *)fftSetupPointer;
+    vDSP_Length bins = numberOfSamples / 2 + 1;
+    DSPSplitComplex A;
+    float minPower = MIN_POWER;
+    float reference = 1.0f;
+    float *samples = NULL;
+    float *window = NULL;
+    float *out = NULL;
+    float *scratch = NULL;
+
+    if ((*env)->GetArrayLength(env, jsamples) < numberOfSamples
+        || (jwindow != NULL && (*env)->GetArrayLength(env, jwindow) < numberOfSamples)
+        || (*env)->GetArrayLength(env, jout) < (jsize) bins
+        || (*env)->GetArrayLength(env, jscratch) < 2 * numberOfSamples) {
+        jclass excCls = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, excCls, "Arrays are too short for the number of samples");
+        return;
+    }
+
+    scratch = (*env)->GetPrimitiveArrayCritical(env, jscratch, NULL);
+    if (!scratch) goto BAIL;
+    samples = (*env)->GetPrimitiveArrayCritical(env, jsamples, NULL);
+    if (!samples) goto BAIL;
+    if (jwindow != NULL) {
+        window = (*env)->GetPrimitiveArrayCritical(env, jwindow, NULL);
+        if (!window) goto BAIL;
+    }
+    out = (*env)->GetPrimitiveArrayCritical(env, jout, NULL);
+    if (!out) goto BAIL;
+
+    // the complex half spectrum stays in scratch space, only the result is written to the Java array
+    A.realp = scratch;
+    A.imagp = scratch + numberOfSamples;
+    realTransform(instance, JNI_TRUE, JNI_FALSE, numberOfSamples, samples, NULL, A.realp, A.imagp, NULL, window);
+    switch (spectrum) {
+        case SPECTRUM_MAGNITUDE:
+            vDSP_zvabs(&A, 1, out, 1, bins);
+            break;
+        case SPECTRUM_POWER:
+            vDSP_zvmags(&A, 1, out, 1, bins);
+            break;
+        default:
+            vDSP_zvmags(&A, 1, out, 1, bins);
+            vDSP_vthr(out, 1, &minPower, out, 1, bins);
+            // power, i.e. 10 * log10(out / reference)
+            vDSP_vdbcon(out, 1, &reference, out, 1, bins, 0);
+            break;
+    }
+
+    BAIL:
+
+    // release in reverse order, inputs and scratch are not written back
+    if (out) (*env)->ReleasePrimitiveArrayCritical(env, jout, out, 0);
+    if (window) (*env)->ReleasePrimitiveArrayCritical(env, jwindow, window, JNI_ABORT);
+    if (samples) (*env)->ReleasePrimitiveArrayCritical(env, jsamples, samples, JNI_ABORT);
+    if (scratch) (*env)->ReleasePrimitiveArrayCritical(env, jscratch, scratch, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFTDirect
+ * Signature: (JZILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFTDirect
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jboolean forward, jint numberOfSamples,
+ jobject jrealIn, jint realInOffset, jobject jimagIn, jint imagInOffset,
+ jobject jrealOut, jint realOutOffset, jobject jimagOut, jint imagOutOffset) {
+
+    float         *realIn = NULL;
+    float         *imagIn = NULL;
+    float         *realOut = NULL;
+    float         *imagOut = NULL;
+
+    // no copies, we operate directly on the buffers' memory
+    realIn = directFloats(env, jrealIn, realInOffset, numberOfSamples);
+    if (!realIn) return;
+    if (!forward && jimagIn != NULL) {
+        imagIn = directFloats(env, jimagIn, imagInOffset, numberOfSamples);
+        if (!imagIn) return;
+    }
+    realOut = directFloats(env, jrealOut, realOutOffset, numberOfSamples);
+    if (!realOut) return;
+    imagOut = directFloats(env, jimagOut, imagOutOffset, numberOfSamples);
+    if (!imagOut) return;
+
+    realTransform((FFTInstance *)fftSetupPointer, forward, JNI_TRUE, numberOfSamples, realIn, imagIn, realOut, imagOut, NULL, NULL);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    complexFFTDirect
+ * Signature: (JILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_complexFFTDirect
+(JNIEnv *env, jclass clazz, jlong fftSetupPointer, jint numberOfSamples,
+ jobject jrealIn, jint realInOffset, jobject jimagIn, jint imagInOffset,
+ jobject jrealOut, jint realOutOffset, jobject jimagOut, jint imagOutOffset) {
+
+    float         *realIn = NULL;
+    float         *imagIn = NULL;
+    float         *realOut = NULL;
+    float         *imagOut = NULL;
+
+    // no copies, we operate directly on the buffers' memory
+    realIn = directFloats(env, jrealIn, realInOffset, numberOfSamples);
+    if (!realIn) return;
+    if (jimagIn != NULL) {
+        imagIn = directFloats(env, jimagIn, imagInOffset, numberOfSamples);
+        if (!imagIn) return;
+    }
+    realOut = directFloats(env, jrealOut, realOutOffset, numberOfSamples);
+    if (!realOut) return;
+    imagOut = directFloats(env, jimagOut, imagOutOffset, numberOfSamples);
+    if (!imagOut) return;
+
+    complexTransform(((FFTInstance *)fftSetupPointer)->setup, JNI_TRUE, numberOfSamples, realIn, imagIn, realOut, imagOut);
+}
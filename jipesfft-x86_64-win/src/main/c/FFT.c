@@ -2,28 +2,22 @@
 #include <stdio.h>
 #include <stdbool.h>
 #include <math.h>
+#ifdef _WIN32
+#include <malloc.h>
+#endif
 #include "FFT.h"
 
-int ** gFFTBitTable = NULL;
-const int maxFastBits = 16;
+/**
+ * Alignment of all plan arrays, i.e. one cache line.
+ */
+#define PLAN_ALIGNMENT 64
 
-static bool isPowerOfTwo(int x);
 static int numberOfBitsNeeded(int powerOfTwo);
-static int reverseBits(int index, int numBits);
-static int fastReverseBits(int index, int numBits);
-
-bool isPowerOfTwo(int x) {
-    if (x < 2) return false;
-    if (x & (x - 1)) return false;
-    return true;
-}
+static void * alignedAlloc(size_t size);
+static void alignedFree(void * memory);
 
 int numberOfBitsNeeded(int powerOfTwo) {
     int i;
-    if (powerOfTwo < 2) {
-        fprintf(stderr, "Error: FFT called with size %d\n", powerOfTwo);
-        exit(1);
-    }
     for (i = 0;; i++) {
         if (powerOfTwo & (1 << i)) {
             return i;
@@ -31,126 +25,74 @@ int numberOfBitsNeeded(int powerOfTwo) {
     }
 }
 
-int reverseBits(int index, int numBits) {
-    int i, rev;
-    for (i = rev = 0; i < numBits; i++) {
-        rev = (rev << 1) | (index & 1);
-        index >>= 1;
+void * alignedAlloc(size_t size) {
+    #ifdef _WIN32
+    return _aligned_malloc(size, PLAN_ALIGNMENT);
+    #else
+    void * memory = NULL;
+    if (posix_memalign(&memory, PLAN_ALIGNMENT, size) != 0) {
+        return NULL;
     }
-    return rev;
+    return memory;
+    #endif
 }
 
-void init() {
-    gFFTBitTable = malloc(sizeof(int * ) * maxFastBits);
-
-    int len = 2;
-    int b = 1;
-    int i = 1;
-    for (b = 1; b <= maxFastBits; b++) {
-        gFFTBitTable[b - 1] = malloc(sizeof(int) * len);
-        for (i = 0; i < len; i++) {
-            gFFTBitTable[b - 1][i] = reverseBits(i, b);
-        }
-        len <<= 1;
-    }
+void alignedFree(void * memory) {
+    #ifdef _WIN32
+    _aligned_free(memory);
+    #else
+    free(memory);
+    #endif
 }
 
-inline int fastReverseBits(int i, int numBits) {
-    if (numBits <= maxFastBits)
-        return gFFTBitTable[numBits - 1][i];
-    else
-        return reverseBits(i, numBits);
-}
+#define FFT_REAL float
+#define FFT_NAME(name) name
+#include "FFTKernel.h"
+#undef FFT_NAME
+#undef FFT_REAL
 
-/**
- * Complex Fast Fourier Transform.
- */
-void fft(int numSamples,
-        bool inverse,
-        float * realIn, float * imagIn,
-        float * realOut, float * imagOut) {
-
-    double angle_numerator = 2.0 * M_PI;
-
-    // Number of bits needed to store indices
-    int numBits;
-    int i, j, k, n;
-    int blockSize, blockEnd;
+#define FFT_REAL double
+#define FFT_NAME(name) name##Double
+#include "FFTKernel.h"
+#undef FFT_NAME
+#undef FFT_REAL
 
-    // temp real, temp imaginary
-    double tr, ti;
-
-    if (!isPowerOfTwo(numSamples)) {
-        fprintf(stderr, "%d is not a power of two\n", numSamples);
-        return;
+FFTPlan * createPlan(int numberOfSamples) {
+    int i;
+    FFTPlan * plan = calloc(1, sizeof(FFTPlan));
+    if (plan == NULL) {
+        return NULL;
     }
-
-    if (inverse) {
-        angle_numerator = -angle_numerator;
+    plan -> numberOfSamples = numberOfSamples;
+    plan -> numberOfBits = numberOfBitsNeeded(numberOfSamples);
+    plan -> reverseIndices = alignedAlloc(sizeof(int) * numberOfSamples);
+    if (plan -> reverseIndices == NULL || !createTwiddles(plan)) {
+        destroyPlan(plan);
+        return NULL;
     }
-
-    numBits = numberOfBitsNeeded(numSamples);
-
-    // do simultaneous data copy and bit-reversal ordering into outputs.
-    for (i = 0; i < numSamples; i++) {
-        j = fastReverseBits(i, numBits);
-        realOut[j] = realIn[i];
-        imagOut[j] = (imagIn == NULL) ? 0.0 : imagIn[i];
-    }
-
-    // FFT itself
-    blockEnd = 1;
-    for (blockSize = 2; blockSize <= numSamples; blockSize <<= 1) {
-
-        double delta_angle = angle_numerator / (double) blockSize;
-
-        double sm2 = -sin(-2 * delta_angle);
-        double sm1 = -sin(-delta_angle);
-        double cm2 = cos(-2 * delta_angle);
-        double cm1 = cos(-delta_angle);
-        double w = 2 * cm1;
-        double ar0, ar1, ar2, ai0, ai1, ai2;
-
-        for (i = 0; i < numSamples; i += blockSize) {
-            ar2 = cm2;
-            ar1 = cm1;
-
-            ai2 = sm2;
-            ai1 = sm1;
-
-            for (j = i, n = 0; n < blockEnd; j++, n++) {
-                ar0 = w * ar1 - ar2;
-                ar2 = ar1;
-                ar1 = ar0;
-
-                ai0 = w * ai1 - ai2;
-                ai2 = ai1;
-                ai1 = ai0;
-
-                k = j + blockEnd;
-                tr = ar0 * realOut[k] - ai0 * imagOut[k];
-                ti = ar0 * imagOut[k] + ai0 * realOut[k];
-
-                realOut[k] = realOut[j] - tr;
-                imagOut[k] = imagOut[j] - ti;
-
-                realOut[j] += tr;
-                imagOut[j] += ti;
-            }
-        }
-
-        blockEnd = blockSize;
+    plan -> reverseIndices[0] = 0;
+    for (i = 1; i < numberOfSamples; i++) {
+        plan -> reverseIndices[i] = (plan -> reverseIndices[i >> 1] >> 1) | ((i & 1) << (plan -> numberOfBits - 1));
     }
+    return plan;
+}
 
-    /**
-     * Normalize, if inverse transform.
-     */
-    if (inverse) {
-        float denom = (float) numSamples;
+bool createDoublePlan(FFTPlan * plan) {
+    return plan -> twiddleCosDouble != NULL || createTwiddlesDouble(plan);
+}
 
-        for (i = 0; i < numSamples; i++) {
-            realOut[i] /= denom;
-            imagOut[i] /= denom;
-        }
+void destroyPlan(FFTPlan * plan) {
+    if (plan == NULL) {
+        return;
     }
-}
\ No newline at end of file
+    alignedFree(plan -> reverseIndices);
+    alignedFree(plan -> twiddleCos);
+    alignedFree(plan -> twiddleSin);
+    alignedFree(plan -> twiddleCos3);
+    alignedFree(plan -> twiddleSin3);
+    alignedFree(plan -> twiddleCosDouble);
+    alignedFree(plan -> twiddleSinDouble);
+    alignedFree(plan -> twiddleCos3Double);
+    alignedFree(plan -> twiddleSin3Double);
+    free(plan);
+}
@@ -2,15 +2,79 @@
 #define	M_PI		3.14159265358979323846  /* pi */
 #endif
 
+#ifndef M_SQRT1_2
+#define	M_SQRT1_2	0.70710678118654752440  /* 1/sqrt(2) */
+#endif
+
+/**
+ * Everything a transform of a given size needs, computed once per plan,
+ * so that a transform itself does not allocate memory or call sin/cos.
+ * All arrays are aligned to a cache line.
+ * Transforms only read the plan, so one plan may be used by many threads at once.
+ */
+typedef struct {
+    int numberOfSamples;
+    int numberOfBits;
+    /* bit-reversal permutation */
+    int * reverseIndices;
+    /*
+     * twiddle factors per radix-4 pass: cos(pi m/h), sin(pi m/h),
+     * cos(3 pi m/h) and sin(3 pi m/h) for 0 <= m < h at index h+m
+     */
+    float * twiddleCos;
+    float * twiddleSin;
+    float * twiddleCos3;
+    float * twiddleSin3;
+    /* double precision twiddle factors, created by createDoublePlan */
+    double * twiddleCosDouble;
+    double * twiddleSinDouble;
+    double * twiddleCos3Double;
+    double * twiddleSin3Double;
+} FFTPlan;
+
 /**
- * Initializes the FFT code.
+ * Creates a plan for the given number of samples, which must be a power of 2.
+ *
+ * @return plan or NULL, if memory could not be allocated
  */
-void init();
+FFTPlan * createPlan(int numberOfSamples);
+
+/**
+ * Creates the double precision twiddle factors of the given plan, if necessary.
+ * Not thread-safe, callers must make sure this is called once before the plan
+ * is used by multiple threads for double precision transforms.
+ *
+ * @return true, if the plan can be used for double precision transforms
+ */
+bool createDoublePlan(FFTPlan * plan);
+
+/**
+ * Frees the plan and all its memory.
+ */
+void destroyPlan(FFTPlan * plan);
 
 /**
  * Computes a FFT of complex input and returns complex output.
  * Currently this is the only function here that supports the
  * inverse transform as well.
+ * imagIn may be NULL for real input.
  */
-void fft(int numSamples, bool inverseTransform, float *realIn, float *imagIn, float *realOut, float *imagOut);
+void fft(const FFTPlan * plan, bool inverseTransform, float *realIn, float *imagIn, float *realOut, float *imagOut);
 
+/**
+ * Computes a FFT of complex input and returns complex output with double precision.
+ * Requires createDoublePlan to have been called successfully.
+ */
+void fftDouble(const FFTPlan * plan, bool inverseTransform, double *realIn, double *imagIn, double *realOut, double *imagOut);
+
+/**
+ * Computes a forward FFT of real input, which is multiplied with the given
+ * window of length numberOfSamples while it is copied, and returns complex output.
+ */
+void windowedFft(const FFTPlan * plan, float *realIn, const float *window, float *realOut, float *imagOut);
+
+/**
+ * Computes a forward FFT of windowed real input with double precision.
+ * Requires createDoublePlan to have been called successfully.
+ */
+void windowedFftDouble(const FFTPlan * plan, double *realIn, const double *window, double *realOut, double *imagOut);
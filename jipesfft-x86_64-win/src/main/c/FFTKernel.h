@@ -0,0 +1,261 @@
+/**
+ * FFTKernel.h
+ *
+ * FFT kernels, written once for both precisions.
+ * This file is included by FFT.c once with FFT_REAL defined as float and
+ * once as double. FFT_NAME(name) derives the function names for each precision.
+ * Therefore it deliberately has no include guard.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+
+/**
+ * 4-point DFTs of each consecutive block of four bit-reversed values.
+ */
+static void FFT_NAME(radix4Codelets)(int n, FFT_REAL * re, FFT_REAL * im) {
+    int i;
+    FFT_REAL s0r, s0i, d0r, d0i, s1r, s1i, d1r, d1i;
+
+    for (i = 0; i < n; i += 4) {
+        // bit-reversed order: x0, x2, x1, x3
+        s0r = re[i] + re[i + 1];
+        s0i = im[i] + im[i + 1];
+        d0r = re[i] - re[i + 1];
+        d0i = im[i] - im[i + 1];
+        s1r = re[i + 2] + re[i + 3];
+        s1i = im[i + 2] + im[i + 3];
+        d1r = re[i + 2] - re[i + 3];
+        d1i = im[i + 2] - im[i + 3];
+        re[i] = s0r + s1r;
+        im[i] = s0i + s1i;
+        re[i + 2] = s0r - s1r;
+        im[i + 2] = s0i - s1i;
+        // -i * d1
+        re[i + 1] = d0r + d1i;
+        im[i + 1] = d0i - d1r;
+        re[i + 3] = d0r - d1i;
+        im[i + 3] = d0i + d1r;
+    }
+}
+
+/**
+ * 8-point DFTs of each consecutive block of eight bit-reversed values.
+ */
+static void FFT_NAME(radix8Codelets)(int n, FFT_REAL * re, FFT_REAL * im) {
+    const FFT_REAL sqrt1_2 = (FFT_REAL) M_SQRT1_2;
+    FFT_REAL oddr[4], oddi[4];
+    int i, k;
+
+    FFT_NAME(radix4Codelets)(n, re, im);
+    for (i = 0; i < n; i += 8) {
+        // combine the 4-point DFTs of the even and odd values
+        // with the twiddles 1, (1-i)/sqrt(2), -i, (-1-i)/sqrt(2)
+        oddr[0] = re[i + 4];
+        oddi[0] = im[i + 4];
+        oddr[1] = (re[i + 5] + im[i + 5]) * sqrt1_2;
+        oddi[1] = (im[i + 5] - re[i + 5]) * sqrt1_2;
+        oddr[2] = im[i + 6];
+        oddi[2] = -re[i + 6];
+        oddr[3] = (im[i + 7] - re[i + 7]) * sqrt1_2;
+        oddi[3] = -(re[i + 7] + im[i + 7]) * sqrt1_2;
+        for (k = 0; k < 4; k++) {
+            re[i + k + 4] = re[i + k] - oddr[k];
+            im[i + k + 4] = im[i + k] - oddi[k];
+            re[i + k] += oddr[k];
+            im[i + k] += oddi[k];
+        }
+    }
+}
+
+/**
+ * Allocates and computes the twiddle factors of the given plan for this precision.
+ * Like the bit-reversal permutation, they only depend on N and are computed once per plan.
+ *
+ * @return false, if memory could not be allocated
+ */
+static bool FFT_NAME(createTwiddles)(FFTPlan * plan) {
+    const int n = plan -> numberOfSamples;
+    const int top = n / 2;
+    FFT_REAL * twiddleCos = alignedAlloc(sizeof(FFT_REAL) * n);
+    FFT_REAL * twiddleSin = alignedAlloc(sizeof(FFT_REAL) * n);
+    FFT_REAL * twiddleCos3 = alignedAlloc(sizeof(FFT_REAL) * n);
+    FFT_REAL * twiddleSin3 = alignedAlloc(sizeof(FFT_REAL) * n);
+    double angle;
+    int h, m, stride;
+
+    if (twiddleCos == NULL || twiddleSin == NULL || twiddleCos3 == NULL || twiddleSin3 == NULL) {
+        alignedFree(twiddleCos);
+        alignedFree(twiddleSin);
+        alignedFree(twiddleCos3);
+        alignedFree(twiddleSin3);
+        return false;
+    }
+    for (m = 0; m < top; m++) {
+        angle = M_PI * m / top;
+        twiddleCos[top + m] = (FFT_REAL) cos(angle);
+        twiddleSin[top + m] = (FFT_REAL) sin(angle);
+        twiddleCos3[top + m] = (FFT_REAL) cos(3 * angle);
+        twiddleSin3[top + m] = (FFT_REAL) sin(3 * angle);
+    }
+    // lower stages are subsets of the top stage
+    for (h = top / 2; h >= 1; h /= 2) {
+        stride = top / h;
+        for (m = 0; m < h; m++) {
+            twiddleCos[h + m] = twiddleCos[top + m * stride];
+            twiddleSin[h + m] = twiddleSin[top + m * stride];
+            twiddleCos3[h + m] = twiddleCos3[top + m * stride];
+            twiddleSin3[h + m] = twiddleSin3[top + m * stride];
+        }
+    }
+    plan -> FFT_NAME(twiddleCos) = twiddleCos;
+    plan -> FFT_NAME(twiddleSin) = twiddleSin;
+    plan -> FFT_NAME(twiddleCos3) = twiddleCos3;
+    plan -> FFT_NAME(twiddleSin3) = twiddleSin3;
+    return true;
+}
+
+/**
+ * Radix-4 pass, combining four DFTs of length quarter into one of length 4 * quarter.
+ * Twiddles are looked up in the plan's tables, contiguously for each block.
+ */
+static void FFT_NAME(radix4Pass)(const FFTPlan * plan, int n, int quarter, FFT_REAL * re, FFT_REAL * im) {
+    // exp(-i pi m/(2 quarter)) and its cube are stored for stage 2 quarter, its square for stage quarter
+    const FFT_REAL * cos1 = plan -> FFT_NAME(twiddleCos) + 2 * quarter;
+    const FFT_REAL * sin1 = plan -> FFT_NAME(twiddleSin) + 2 * quarter;
+    const FFT_REAL * cos2 = plan -> FFT_NAME(twiddleCos) + quarter;
+    const FFT_REAL * sin2 = plan -> FFT_NAME(twiddleSin) + quarter;
+    const FFT_REAL * cos3 = plan -> FFT_NAME(twiddleCos3) + 2 * quarter;
+    const FFT_REAL * sin3 = plan -> FFT_NAME(twiddleSin3) + 2 * quarter;
+    FFT_REAL c1r, c1i, c2r, c2i, c3r, c3i;
+    FFT_REAL s0r, s0i, d0r, d0i, s1r, s1i, d1r, d1i;
+    int i, m, i0, i1, i2, i3;
+
+    for (i = 0; i < n; i += 4 * quarter) {
+        for (m = 0; m < quarter; m++) {
+            i0 = i + m;
+            i1 = i0 + quarter;
+            i2 = i1 + quarter;
+            i3 = i2 + quarter;
+            // bit-reversed order: the DFT of the (4k+2)-values precedes the one of the (4k+1)-values.
+            // twiddles are multiplications by (c - i s)
+            c2r = cos2[m] * re[i1] + sin2[m] * im[i1];
+            c2i = cos2[m] * im[i1] - sin2[m] * re[i1];
+            c1r = cos1[m] * re[i2] + sin1[m] * im[i2];
+            c1i = cos1[m] * im[i2] - sin1[m] * re[i2];
+            c3r = cos3[m] * re[i3] + sin3[m] * im[i3];
+            c3i = cos3[m] * im[i3] - sin3[m] * re[i3];
+
+            s0r = re[i0] + c2r;
+            s0i = im[i0] + c2i;
+            d0r = re[i0] - c2r;
+            d0i = im[i0] - c2i;
+            s1r = c1r + c3r;
+            s1i = c1i + c3i;
+            d1r = c1r - c3r;
+            d1i = c1i - c3i;
+
+            re[i0] = s0r + s1r;
+            im[i0] = s0i + s1i;
+            re[i2] = s0r - s1r;
+            im[i2] = s0i - s1i;
+            // -i * d1
+            re[i1] = d0r + d1i;
+            im[i1] = d0i - d1r;
+            re[i3] = d0r - d1i;
+            im[i3] = d0i + d1r;
+        }
+    }
+}
+
+/**
+ * Forward butterflies for data in bit-reversed order.
+ * The first two or three radix-2 stages are done by 4- or 8-point codelets,
+ * all remaining stages pairwise by radix-4 passes.
+ */
+static void FFT_NAME(forwardButterflies)(const FFTPlan * plan, FFT_REAL * re, FFT_REAL * im) {
+    const int n = plan -> numberOfSamples;
+    int quarter;
+    FFT_REAL r, i;
+
+    if (n == 2) {
+        r = re[1];
+        i = im[1];
+        re[1] = re[0] - r;
+        im[1] = im[0] - i;
+        re[0] += r;
+        im[0] += i;
+        return;
+    }
+    if ((plan -> numberOfBits & 1) == 0) {
+        FFT_NAME(radix4Codelets)(n, re, im);
+        quarter = 4;
+    } else {
+        FFT_NAME(radix8Codelets)(n, re, im);
+        quarter = 8;
+    }
+    for (; quarter < n; quarter <<= 2) {
+        FFT_NAME(radix4Pass)(plan, n, quarter, re, im);
+    }
+}
+
+/**
+ * Complex Fast Fourier Transform.
+ */
+void FFT_NAME(fft)(const FFTPlan * plan,
+        bool inverse,
+        FFT_REAL * realIn, FFT_REAL * imagIn,
+        FFT_REAL * realOut, FFT_REAL * imagOut) {
+
+    const int numSamples = plan -> numberOfSamples;
+    const int * reverseIndices = plan -> reverseIndices;
+    int i, j;
+
+    // do simultaneous data copy and bit-reversal ordering into outputs.
+    for (i = 0; i < numSamples; i++) {
+        j = reverseIndices[i];
+        realOut[j] = realIn[i];
+        imagOut[j] = (imagIn == NULL) ? 0.0 : imagIn[i];
+    }
+
+    // FFT itself. The inverse transform is the forward transform
+    // with real and imaginary part swapped.
+    if (inverse) {
+        FFT_NAME(forwardButterflies)(plan, imagOut, realOut);
+    } else {
+        FFT_NAME(forwardButterflies)(plan, realOut, imagOut);
+    }
+
+    /**
+     * Normalize, if inverse transform.
+     */
+    if (inverse) {
+        FFT_REAL denom = (FFT_REAL) numSamples;
+
+        for (i = 0; i < numSamples; i++) {
+            realOut[i] /= denom;
+            imagOut[i] /= denom;
+        }
+    }
+}
+
+/**
+ * Forward Fast Fourier Transform of real input, which is multiplied with
+ * the given window during the bit-reversal copy.
+ */
+void FFT_NAME(windowedFft)(const FFTPlan * plan,
+        FFT_REAL * realIn, const FFT_REAL * window,
+        FFT_REAL * realOut, FFT_REAL * imagOut) {
+
+    const int numSamples = plan -> numberOfSamples;
+    const int * reverseIndices = plan -> reverseIndices;
+    int i, j;
+
+    // windowing, data copy and bit-reversal ordering in one pass
+    for (i = 0; i < numSamples; i++) {
+        j = reverseIndices[i];
+        realOut[j] = realIn[i] * window[i];
+        imagOut[j] = 0.0;
+    }
+
+    FFT_NAME(forwardButterflies)(plan, realOut, imagOut);
+}
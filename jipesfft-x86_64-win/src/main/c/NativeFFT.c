@@ -7,9 +7,36 @@
 #include <stdlib.h>
 #include <stdbool.h>
 #include <math.h>
+#include <stdint.h>
 #include "FFT.h"
 #include "com_tagtraum_jipesfft_FFT.h"
 
+// ordinals of com.tagtraum.jipesfft.AbstractFFT.Spectrum
+#define SPECTRUM_MAGNITUDE 0
+#define SPECTRUM_POWER 1
+#define SPECTRUM_LOG_POWER 2
+// lower bound for the power before taking the logarithm, i.e. -200 dB
+#define MIN_POWER 1e-20f
+
+
+/**
+ * Validates the number of samples and throws an IllegalArgumentException, if it is not supported.
+ *
+ * @return true, if the number of samples is supported
+ */
+static bool checkNumberOfSamples(JNIEnv * env, jint numberOfSamples) {
+    if (numberOfSamples < 4) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples is less than 4");
+        return false;
+    }
+    if (numberOfSamples & (numberOfSamples - 1)) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples is not a power of 2");
+        return false;
+    }
+    return true;
+}
 
 /*
  * Class:     com_tagtraum_jipesfft_FFT
@@ -18,8 +45,19 @@
  */
 JNIEXPORT jlong JNICALL Java_com_tagtraum_jipesfft_FFT_init
     (JNIEnv * env, jclass clazz, jint numberOfSamples) {
-    // do nothing
-    return 1L;
+
+    FFTPlan * plan = NULL;
+
+    if (!checkNumberOfSamples(env, numberOfSamples)) {
+        return 0;
+    }
+    plan = createPlan(numberOfSamples);
+    if (plan == NULL) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
+        ( * env) -> ThrowNew(env, excCls, "Failed to allocate FFT plan");
+        return 0;
+    }
+    return (jlong) (intptr_t) plan;
 }
 
 /*
@@ -29,116 +67,684 @@ JNIEXPORT jlong JNICALL Java_com_tagtraum_jipesfft_FFT_init
  */
 JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_destroy
     (JNIEnv * env, jclass clazz, jlong fftSetupPointer) {
-    // do nothing
+    destroyPlan((FFTPlan *) (intptr_t) fftSetupPointer);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    initDouble
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_initDouble
+    (JNIEnv * env, jclass clazz, jlong fftSetupPointer) {
+    if (!createDoublePlan((FFTPlan *) (intptr_t) fftSetupPointer)) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
+        ( * env) -> ThrowNew(env, excCls, "Failed to allocate double precision FFT plan");
+    }
+}
+
+/**
+ * Returns the plan for the given pointer and validates that it was made for the given number of samples.
+ * Throws an IllegalArgumentException, if this is not the case.
+ *
+ * @return plan or NULL
+ */
+static FFTPlan * getPlan(JNIEnv * env, jlong setupPointer, jint numberOfSamples) {
+    FFTPlan * plan = (FFTPlan *) (intptr_t) setupPointer;
+    if (plan == NULL || plan -> numberOfSamples != numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples does not match the FFT plan");
+        return NULL;
+    }
+    return plan;
+}
+
+/**
+ * Returns the plan for the given pointer like getPlan, validating that it supports double precision.
+ * Throws an IllegalStateException, if initDouble has not been called for the plan.
+ *
+ * @return plan or NULL
+ */
+static FFTPlan * getDoublePlan(JNIEnv * env, jlong setupPointer, jint numberOfSamples) {
+    FFTPlan * plan = getPlan(env, setupPointer, numberOfSamples);
+    if (plan != NULL && plan -> twiddleCosDouble == NULL) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalStateException");
+        ( * env) -> ThrowNew(env, excCls, "FFT plan is not initialized for double precision");
+        return NULL;
+    }
+    return plan;
+}
+
+/**
+ * Real forward or inverse transform on raw memory.
+ */
+static void realTransform(const FFTPlan * plan, jboolean forward, jint numberOfSamples,
+    float * realIn, float * imagIn, float * realOut, float * imagOut) {
+
+    if (forward) {
+        fft(plan, false, realIn, NULL, realOut, imagOut);
+    } else {
+        // complex inverse, the input need not be the spectrum of real numbers
+        fft(plan, true, realIn, imagIn, realOut, imagOut);
+    }
 }
 
-JNIEXPORT jobjectArray JNICALL Java_com_tagtraum_jipesfft_FFT_realFFT
-    (JNIEnv * env, jclass clazz, jlong setupPointer, jboolean forward, jint numberOfSamples, jfloatArray jrealIn, jfloatArray jimagIn) {
+/**
+ * Real forward or inverse transform on raw memory with double precision.
+ */
+static void realTransformDouble(const FFTPlan * plan, jboolean forward, jint numberOfSamples,
+    double * realIn, double * imagIn, double * realOut, double * imagOut) {
 
+    if (forward) {
+        fftDouble(plan, false, realIn, NULL, realOut, imagOut);
+    } else {
+        // complex inverse, the input need not be the spectrum of real numbers
+        fftDouble(plan, true, realIn, imagIn, realOut, imagOut);
+    }
+}
+
+/**
+ * Returns the address of a direct FloatBuffer plus the given offset (in floats).
+ * Throws an IllegalArgumentException, if the buffer is not direct or too small.
+ */
+static float * directFloats(JNIEnv * env, jobject buffer, jint offset, jint numberOfSamples) {
+    float * address = ( * env) -> GetDirectBufferAddress(env, buffer);
+    if (address == NULL) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Buffer is not a direct buffer");
+        return NULL;
+    }
+    if (offset < 0 || ( * env) -> GetDirectBufferCapacity(env, buffer) < (jlong) offset + numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than buffer capacity");
+        return NULL;
+    }
+    return address + offset;
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFT
+ * Signature: (JZI[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFT
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jboolean forward, jint numberOfSamples,
+     jfloatArray jrealIn, jfloatArray jimagIn, jfloatArray jrealOut, jfloatArray jimagOut) {
+
+    FFTPlan * plan = NULL;
     float * realIn = NULL;
     float * imagIn = NULL;
     float * realOut = NULL;
     float * imagOut = NULL;
 
-    if (numberOfSamples < 4) {
+    plan = getPlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jrealIn) < numberOfSamples
+        || (!forward && jimagIn != NULL && ( * env) -> GetArrayLength(env, jimagIn) < numberOfSamples)) {
         jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
-        ( * env) -> ThrowNew(env, excCls, "Number of samples is less than 4");
-        return NULL;
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
     }
-    if (numberOfSamples & (numberOfSamples - 1)) {
+    if (( * env) -> GetArrayLength(env, jrealOut) < numberOfSamples
+        || ( * env) -> GetArrayLength(env, jimagOut) < numberOfSamples) {
         jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
-        ( * env) -> ThrowNew(env, excCls, "Number of samples is not a power of 2");
-        return NULL;
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = ( * env) -> GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    // a missing imaginary part of the inverse transform's input is treated as 0
+    if (!forward && jimagIn != NULL) {
+        imagIn = ( * env) -> GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
     }
-    if (( * env) -> GetArrayLength(env, jrealIn) < numberOfSamples) {
+    realOut = ( * env) -> GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = ( * env) -> GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    realTransform(plan, forward, numberOfSamples, realIn, imagIn, realOut, imagOut);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFTDouble
+ * Signature: (JZI[D[D[D[D)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFTDouble
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jboolean forward, jint numberOfSamples,
+     jdoubleArray jrealIn, jdoubleArray jimagIn, jdoubleArray jrealOut, jdoubleArray jimagOut) {
+
+    FFTPlan * plan = NULL;
+    double * realIn = NULL;
+    double * imagIn = NULL;
+    double * realOut = NULL;
+    double * imagOut = NULL;
+
+    plan = getDoublePlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jrealIn) < numberOfSamples
+        || (!forward && jimagIn != NULL && ( * env) -> GetArrayLength(env, jimagIn) < numberOfSamples)) {
         jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
         ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than input array length");
-        return NULL;
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jrealOut) < numberOfSamples
+        || ( * env) -> GetArrayLength(env, jimagOut) < numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
     }
 
-    realIn = malloc(sizeof(float) * numberOfSamples);
-    if (!realIn) {
-        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
-        ( * env) -> ThrowNew(env, excCls, "Failed to allocate realIn");
-        goto BAIL;
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = ( * env) -> GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    // a missing imaginary part of the inverse transform's input is treated as 0
+    if (!forward && jimagIn != NULL) {
+        imagIn = ( * env) -> GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
     }
-    imagIn = malloc(sizeof(float) * numberOfSamples);
-    if (!imagIn) {
-        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
-        ( * env) -> ThrowNew(env, excCls, "Failed to allocate imagIn");
-        goto BAIL;
+    realOut = ( * env) -> GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = ( * env) -> GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    realTransformDouble(plan, forward, numberOfSamples, realIn, imagIn, realOut, imagOut);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    complexFFT
+ * Signature: (JI[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_complexFFT
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jint numberOfSamples,
+     jfloatArray jrealIn, jfloatArray jimagIn, jfloatArray jrealOut, jfloatArray jimagOut) {
+
+    FFTPlan * plan = NULL;
+    float * realIn = NULL;
+    float * imagIn = NULL;
+    float * realOut = NULL;
+    float * imagOut = NULL;
+
+    plan = getPlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
     }
-    realOut = malloc(sizeof(float) * numberOfSamples);
-    if (!realOut) {
-        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
-        ( * env) -> ThrowNew(env, excCls, "Failed to allocate realOut");
-        goto BAIL;
+    if (( * env) -> GetArrayLength(env, jrealIn) < numberOfSamples
+        || (jimagIn != NULL && ( * env) -> GetArrayLength(env, jimagIn) < numberOfSamples)) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
     }
-    imagOut = malloc(sizeof(float) * numberOfSamples);
-    if (!imagOut) {
-        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
-        ( * env) -> ThrowNew(env, excCls, "Failed to allocate imagOut");
-        goto BAIL;
+    if (( * env) -> GetArrayLength(env, jrealOut) < numberOfSamples
+        || ( * env) -> GetArrayLength(env, jimagOut) < numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = ( * env) -> GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    if (jimagIn != NULL) {
+        imagIn = ( * env) -> GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = ( * env) -> GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = ( * env) -> GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    fft(plan, false, realIn, imagIn, realOut, imagOut);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    complexFFTDouble
+ * Signature: (JI[D[D[D[D)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_complexFFTDouble
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jint numberOfSamples,
+     jdoubleArray jrealIn, jdoubleArray jimagIn, jdoubleArray jrealOut, jdoubleArray jimagOut) {
+
+    FFTPlan * plan = NULL;
+    double * realIn = NULL;
+    double * imagIn = NULL;
+    double * realOut = NULL;
+    double * imagOut = NULL;
+
+    plan = getDoublePlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jrealIn) < numberOfSamples
+        || (jimagIn != NULL && ( * env) -> GetArrayLength(env, jimagIn) < numberOfSamples)) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jrealOut) < numberOfSamples
+        || ( * env) -> GetArrayLength(env, jimagOut) < numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+
+    // operate directly on the Java arrays, no copies, no allocations
+    realIn = ( * env) -> GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    if (jimagIn != NULL) {
+        imagIn = ( * env) -> GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = ( * env) -> GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = ( * env) -> GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
+
+    fftDouble(plan, false, realIn, imagIn, realOut, imagOut);
+
+    BAIL:
+
+    // release in reverse order, inputs are not written back
+    if (imagOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realHalfFFT
+ * Signature: (JZI[F[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realHalfFFT
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jboolean forward, jint numberOfSamples,
+     jfloatArray jrealIn, jfloatArray jimagIn, jfloatArray jrealOut, jfloatArray jimagOut, jfloatArray jscratch) {
+
+    FFTPlan * plan = NULL;
+    int halfSpectrumLength = numberOfSamples / 2 + 1;
+    int i;
+    float * realIn = NULL;
+    float * imagIn = NULL;
+    float * realOut = NULL;
+    float * imagOut = NULL;
+    float * scratch = NULL;
+    float * fullReal = NULL;
+    float * fullImag = NULL;
+    float * imagScratch = NULL;
+
+    plan = getPlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jrealIn) < (forward ? numberOfSamples : halfSpectrumLength)
+        || (!forward && ( * env) -> GetArrayLength(env, jimagIn) < halfSpectrumLength)) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than input array length");
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jrealOut) < (forward ? halfSpectrumLength : numberOfSamples)
+        || (forward && ( * env) -> GetArrayLength(env, jimagOut) < halfSpectrumLength)) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Number of samples must not be less than output array length");
+        return;
+    }
+
+    // fft() always computes the full spectrum, so we need the caller's scratch space
+    if (( * env) -> GetArrayLength(env, jscratch) < 3 * numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Scratch array must be at least 3N long");
+        return;
+    }
+
+    scratch = ( * env) -> GetPrimitiveArrayCritical(env, jscratch, NULL);
+    if (!scratch) goto BAIL;
+    fullReal = scratch;
+    fullImag = scratch + numberOfSamples;
+    imagScratch = scratch + 2 * numberOfSamples;
+    realIn = ( * env) -> GetPrimitiveArrayCritical(env, jrealIn, NULL);
+    if (!realIn) goto BAIL;
+    // a missing imaginary part of the inverse transform's input is treated as 0
+    if (!forward && jimagIn != NULL) {
+        imagIn = ( * env) -> GetPrimitiveArrayCritical(env, jimagIn, NULL);
+        if (!imagIn) goto BAIL;
+    }
+    realOut = ( * env) -> GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    if (forward) {
+        imagOut = ( * env) -> GetPrimitiveArrayCritical(env, jimagOut, NULL);
+        if (!imagOut) goto BAIL;
     }
 
-    ( * env) -> GetFloatArrayRegion(env, jrealIn, 0, numberOfSamples, realIn);
     if (forward) {
-        fft(numberOfSamples, false, realIn, NULL, realOut, imagOut);
+        fft(plan, false, realIn, NULL, fullReal, fullImag);
+        for (i = 0; i < halfSpectrumLength; i++) {
+            realOut[i] = fullReal[i];
+            imagOut[i] = fullImag[i];
+        }
     } else {
-        ( * env) -> GetFloatArrayRegion(env, jimagIn, 0, numberOfSamples, imagIn);
-        fft(numberOfSamples, true, realIn, imagIn, realOut, imagOut);
+        // restore the redundant bins, i.e. the complex conjugate mirror
+        for (i = 0; i < halfSpectrumLength; i++) {
+            fullReal[i] = realIn[i];
+            fullImag[i] = imagIn[i];
+        }
+        for (i = 1; i < numberOfSamples / 2; i++) {
+            fullReal[numberOfSamples - i] = realIn[i];
+            fullImag[numberOfSamples - i] = -imagIn[i];
+        }
+        fft(plan, true, fullReal, fullImag, realOut, imagScratch);
     }
 
-    jfloatArray jreal = NULL;
-    jfloatArray jimag = NULL;
-    jobjectArray jtransformed = NULL;
+    BAIL:
 
-    jtransformed = ( * env) -> NewObjectArray(env, 2, ( * env) -> FindClass(env, "[F"), NULL);
+    // release in reverse order, inputs and scratch are not written back
+    if (imagOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (imagIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagIn, imagIn, JNI_ABORT);
+    if (realIn) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealIn, realIn, JNI_ABORT);
+    if (scratch) ( * env) -> ReleasePrimitiveArrayCritical(env, jscratch, scratch, JNI_ABORT);
+}
 
-    if (jtransformed == NULL) {
-        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
-        ( * env) -> ThrowNew(env, excCls, "Failed to allocate jtransformed");
-        goto BAIL;
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFTFrames
+ * Signature: (JZI[FIII[F[F[FI[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFTFrames
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jboolean fullSpectrum, jint numberOfSamples,
+     jfloatArray jsamples, jint offset, jint hopSize, jint frameCount,
+     jfloatArray jwindow, jfloatArray jrealOut, jfloatArray jimagOut, jint outOffset, jfloatArray jscratch) {
+
+    FFTPlan * plan = NULL;
+    jint spectrumLength = fullSpectrum ? numberOfSamples : numberOfSamples / 2 + 1;
+    jlong outLength = 0;
+    jint f;
+    jint i;
+    float * samples = NULL;
+    float * window = NULL;
+    float * realOut = NULL;
+    float * imagOut = NULL;
+    float * scratch = NULL;
+    float * frameIn = NULL;
+    float * frameReal = NULL;
+    float * frameImag = NULL;
+
+    plan = getPlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+    if (offset < 0 || hopSize <= 0 || frameCount < 0 || outOffset < 0) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Invalid offset, hop size, frame count or output offset");
+        return;
+    }
+    if (frameCount == 0) {
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jsamples) < offset + (jlong) (frameCount - 1) * hopSize + numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Samples array is too short for the given frames");
+        return;
+    }
+    if (jwindow != NULL && ( * env) -> GetArrayLength(env, jwindow) < numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Window must not be shorter than the number of samples");
+        return;
+    }
+    outLength = ( * env) -> GetArrayLength(env, jrealOut);
+    if (( * env) -> GetArrayLength(env, jimagOut) < outLength) {
+        outLength = ( * env) -> GetArrayLength(env, jimagOut);
+    }
+    if (outLength < outOffset + (jlong) frameCount * spectrumLength) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Output arrays are too short for the given frames");
+        return;
+    }
+    if (!fullSpectrum && ( * env) -> GetArrayLength(env, jscratch) < 2 * numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Scratch array must be at least 2N long");
+        return;
     }
 
-    jreal = ( * env) -> NewFloatArray(env, numberOfSamples);
+    // one JNI crossing and one set of critical sections for all frames
+    if (!fullSpectrum) {
+        scratch = ( * env) -> GetPrimitiveArrayCritical(env, jscratch, NULL);
+        if (!scratch) goto BAIL;
+    }
+    samples = ( * env) -> GetPrimitiveArrayCritical(env, jsamples, NULL);
+    if (!samples) goto BAIL;
+    if (jwindow != NULL) {
+        window = ( * env) -> GetPrimitiveArrayCritical(env, jwindow, NULL);
+        if (!window) goto BAIL;
+    }
+    realOut = ( * env) -> GetPrimitiveArrayCritical(env, jrealOut, NULL);
+    if (!realOut) goto BAIL;
+    imagOut = ( * env) -> GetPrimitiveArrayCritical(env, jimagOut, NULL);
+    if (!imagOut) goto BAIL;
 
-    if (jreal == NULL) {
-        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
-        ( * env) -> ThrowNew(env, excCls, "Failed to allocate jreal");
-        goto BAIL;
+    for (f = 0; f < frameCount; f++) {
+        frameIn = samples + offset + (size_t) f * hopSize;
+        if ((jlong) f * spectrumLength + numberOfSamples <= (jlong) frameCount * spectrumLength) {
+            // the full spectrum fits into this call's output range,
+            // the redundant bins are overwritten by the next frame
+            frameReal = realOut + outOffset + (size_t) f * spectrumLength;
+            frameImag = imagOut + outOffset + (size_t) f * spectrumLength;
+        } else {
+            // only possible for half spectra, copied from the scratch space below
+            frameReal = scratch;
+            frameImag = scratch + numberOfSamples;
+        }
+        if (window) {
+            windowedFft(plan, frameIn, window, frameReal, frameImag);
+        } else {
+            fft(plan, false, frameIn, NULL, frameReal, frameImag);
+        }
+        if (frameReal == scratch) {
+            for (i = 0; i < spectrumLength; i++) {
+                realOut[outOffset + (size_t) f * spectrumLength + i] = scratch[i];
+                imagOut[outOffset + (size_t) f * spectrumLength + i] = scratch[numberOfSamples + i];
+            }
+        }
     }
 
-    ( * env) -> SetFloatArrayRegion(env, jreal, 0, numberOfSamples, realOut);
-    ( * env) -> SetObjectArrayElement(env, jtransformed, 0, jreal);
-    jimag = ( * env) -> NewFloatArray(env, numberOfSamples);
+    BAIL:
+
+    // release in reverse order, inputs and scratch are not written back
+    if (imagOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jimagOut, imagOut, 0);
+    if (realOut) ( * env) -> ReleasePrimitiveArrayCritical(env, jrealOut, realOut, 0);
+    if (window) ( * env) -> ReleasePrimitiveArrayCritical(env, jwindow, window, JNI_ABORT);
+    if (samples) ( * env) -> ReleasePrimitiveArrayCritical(env, jsamples, samples, JNI_ABORT);
+    if (scratch) ( * env) -> ReleasePrimitiveArrayCritical(env, jscratch, scratch, JNI_ABORT);
+}
 
-    if (jimag == NULL) {
-        jclass excCls = ( * env) -> FindClass(env, "java/lang/OutOfMemoryError");
-        ( * env) -> ThrowNew(env, excCls, "Failed to allocate jimag");
-        goto BAIL;
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realSpectrum
+ * Signature: (JII[F[F[F[F)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realSpectrum
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jint spectrum, jint numberOfSamples,
+     jfloatArray jsamples, jfloatArray jwindow, jfloatArray jout, jfloatArray jscratch) {
+
+    FFTPlan * plan = NULL;
+    jint bins = numberOfSamples / 2 + 1;
+    jint i;
+    float power;
+    float * samples = NULL;
+    float * window = NULL;
+    float * out = NULL;
+    float * scratch = NULL;
+    float * real = NULL;
+    float * imag = NULL;
+
+    plan = getPlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+    if (( * env) -> GetArrayLength(env, jsamples) < numberOfSamples
+        || (jwindow != NULL && ( * env) -> GetArrayLength(env, jwindow) < numberOfSamples)
+        || ( * env) -> GetArrayLength(env, jout) < bins
+        || ( * env) -> GetArrayLength(env, jscratch) < 2 * numberOfSamples) {
+        jclass excCls = ( * env) -> FindClass(env, "java/lang/IllegalArgumentException");
+        ( * env) -> ThrowNew(env, excCls, "Arrays are too short for the number of samples");
+        return;
     }
 
-    if (forward) {
-        ( * env) -> SetFloatArrayRegion(env, jimag, 0, numberOfSamples, imagOut);
+    scratch = ( * env) -> GetPrimitiveArrayCritical(env, jscratch, NULL);
+    if (!scratch) goto BAIL;
+    samples = ( * env) -> GetPrimitiveArrayCritical(env, jsamples, NULL);
+    if (!samples) goto BAIL;
+    if (jwindow != NULL) {
+        window = ( * env) -> GetPrimitiveArrayCritical(env, jwindow, NULL);
+        if (!window) goto BAIL;
+    }
+    out = ( * env) -> GetPrimitiveArrayCritical(env, jout, NULL);
+    if (!out) goto BAIL;
+
+    // the complex spectrum stays in scratch space, only the result is written to the Java array
+    real = scratch;
+    imag = scratch + numberOfSamples;
+    if (window) {
+        windowedFft(plan, samples, window, real, imag);
+    } else {
+        fft(plan, false, samples, NULL, real, imag);
+    }
+    switch (spectrum) {
+        case SPECTRUM_MAGNITUDE:
+            for (i = 0; i < bins; i++) {
+                out[i] = sqrtf(real[i] * real[i] + imag[i] * imag[i]);
+            }
+            break;
+        case SPECTRUM_POWER:
+            for (i = 0; i < bins; i++) {
+                out[i] = real[i] * real[i] + imag[i] * imag[i];
+            }
+            break;
+        default:
+            for (i = 0; i < bins; i++) {
+                power = real[i] * real[i] + imag[i] * imag[i];
+                out[i] = 10.0f * log10f(power > MIN_POWER ? power : MIN_POWER);
+            }
+            break;
     }
-    ( * env) -> SetObjectArrayElement(env, jtransformed, 1, jimag);
 
     BAIL:
 
-    if (realOut) free(realOut);
-    if (imagOut) free(imagOut);
-    if (realIn) free(realIn);
-    if (imagIn) free(imagIn);
+    // release in reverse order, inputs and scratch are not written back
+    if (out) ( * env) -> ReleasePrimitiveArrayCritical(env, jout, out, 0);
+    if (window) ( * env) -> ReleasePrimitiveArrayCritical(env, jwindow, window, JNI_ABORT);
+    if (samples) ( * env) -> ReleasePrimitiveArrayCritical(env, jsamples, samples, JNI_ABORT);
+    if (scratch) ( * env) -> ReleasePrimitiveArrayCritical(env, jscratch, scratch, JNI_ABORT);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    realFFTDirect
+ * Signature: (JZILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_realFFTDirect
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jboolean forward, jint numberOfSamples,
+     jobject jrealIn, jint realInOffset, jobject jimagIn, jint imagInOffset,
+     jobject jrealOut, jint realOutOffset, jobject jimagOut, jint imagOutOffset) {
+
+    FFTPlan * plan = NULL;
+    float * realIn = NULL;
+    float * imagIn = NULL;
+    float * realOut = NULL;
+    float * imagOut = NULL;
+
+    plan = getPlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+
+    // no copies, we operate directly on the buffers' memory
+    realIn = directFloats(env, jrealIn, realInOffset, numberOfSamples);
+    if (!realIn) return;
+    if (!forward && jimagIn != NULL) {
+        imagIn = directFloats(env, jimagIn, imagInOffset, numberOfSamples);
+        if (!imagIn) return;
+    }
+    realOut = directFloats(env, jrealOut, realOutOffset, numberOfSamples);
+    if (!realOut) return;
+    imagOut = directFloats(env, jimagOut, imagOutOffset, numberOfSamples);
+    if (!imagOut) return;
+
+    realTransform(plan, forward, numberOfSamples, realIn, imagIn, realOut, imagOut);
+}
+
+/*
+ * Class:     com_tagtraum_jipesfft_FFT
+ * Method:    complexFFTDirect
+ * Signature: (JILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;ILjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_tagtraum_jipesfft_FFT_complexFFTDirect
+    (JNIEnv * env, jclass clazz, jlong setupPointer, jint numberOfSamples,
+     jobject jrealIn, jint realInOffset, jobject jimagIn, jint imagInOffset,
+     jobject jrealOut, jint realOutOffset, jobject jimagOut, jint imagOutOffset) {
+
+    FFTPlan * plan = NULL;
+    float * realIn = NULL;
+    float * imagIn = NULL;
+    float * realOut = NULL;
+    float * imagOut = NULL;
+
+    plan = getPlan(env, setupPointer, numberOfSamples);
+    if (!plan) {
+        return;
+    }
+
+    // no copies, we operate directly on the buffers' memory
+    realIn = directFloats(env, jrealIn, realInOffset, numberOfSamples);
+    if (!realIn) return;
+    if (jimagIn != NULL) {
+        imagIn = directFloats(env, jimagIn, imagInOffset, numberOfSamples);
+        if (!imagIn) return;
+    }
+    realOut = directFloats(env, jrealOut, realOutOffset, numberOfSamples);
+    if (!realOut) return;
+    imagOut = directFloats(env, jimagOut, imagOutOffset, numberOfSamples);
+    if (!imagOut) return;
 
-    return jtransformed;
+    fft(plan, false, realIn, imagIn, realOut, imagOut);
 }
 
 JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM * vm, void * reserved) {
     #ifdef DEBUG
     printf("JNI_OnLoad\n");
     #endif
-    init();
     // Return the JNI version
     return JNI_VERSION_1_4;
 }